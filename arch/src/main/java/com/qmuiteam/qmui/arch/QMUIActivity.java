@@ -100,6 +100,7 @@ public class QMUIActivity extends InnerBaseActivity implements ActivitySchemeRef
                     decorView.addView(mSwipeBackgroundView, 0, new FrameLayout.LayoutParams(
                             ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
                 }
+                mSwipeBackgroundView.setSnapshotEnabled(useSnapshotForSwipeBackground());
                 mSwipeBackgroundView.bind(prevActivity,
                         QMUIActivity.this, restoreSubWindowWhenDragBack());
                 SwipeBackLayout.translateInSwipeBack(mSwipeBackgroundView, moveEdge,
@@ -218,6 +219,14 @@ public class QMUIActivity extends InnerBaseActivity implements ActivitySchemeRef
         return false;
     }
 
+    /**
+     * draw a recorded snapshot of the previous activity during swipe back instead of drawing its views
+     * on every frame, see {@link SwipeBackgroundView#setSnapshotEnabled(boolean)}
+     */
+    protected boolean useSnapshotForSwipeBackground(){
+        return true;
+    }
+
     /**
      * disable or enable drag back
      *
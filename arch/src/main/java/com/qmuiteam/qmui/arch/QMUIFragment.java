@@ -31,8 +31,10 @@ import android.animation.AnimatorInflater;
 import android.animation.AnimatorListenerAdapter;
 import android.annotation.SuppressLint;
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.Intent;
+import android.content.res.Configuration;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.KeyEvent;
@@ -118,6 +120,10 @@ public abstract class QMUIFragment extends Fragment implements
     public static final int ANIMATION_ENTER_STATUS_STARTED = 0;
     public static final int ANIMATION_ENTER_STATUS_END = 1;
     private static boolean sPopBackWhenSwipeFinished = false;
+    private static int sSwipeBackRetainedViewMaxCount = 2;
+    // the fragments holding a retained swipe back view, the least recently retained is the first
+    private static final ArrayList<QMUIFragment> sSwipeBackRetainedFragments = new ArrayList<>();
+    private static ComponentCallbacks2 sSwipeBackTrimMemoryCallbacks = null;
 
     private static final int NO_REQUEST_CODE = 0;
     private static final AtomicInteger sNextRc = new AtomicInteger(1);
@@ -131,6 +137,7 @@ public abstract class QMUIFragment extends Fragment implements
     private View mCacheRootView;
     private SwipeBackLayout mCacheSwipeBackView;
     private boolean isCreateForSwipeBack = false;
+    private View mSwipeBackRetainedView;
     private SwipeBackLayout.ListenerRemover mListenerRemover;
     private SwipeBackgroundView mSwipeBackgroundView;
     private boolean mIsInSwipeBack = false;
@@ -629,6 +636,7 @@ public abstract class QMUIFragment extends Fragment implements
     private SwipeBackLayout.SwipeListener mSwipeListener = new SwipeBackLayout.SwipeListener() {
 
         private QMUIFragment mModifiedFragment = null;
+        private View mModifiedFragmentView = null;
 
         @Override
         public void onScrollStateChange(int state, float scrollPercent) {
@@ -660,7 +668,9 @@ public abstract class QMUIFragment extends Fragment implements
                     return;
                 }
                 if (scrollPercent <= 0.0F) {
-                    handleSwipeBackCancelOrFinished(container);
+                    if (!retainViewInSwipeBack(container)) {
+                        handleSwipeBackCancelOrFinished(container);
+                    }
                 } else if (scrollPercent >= 1.0F) {
                     handleSwipeBackCancelOrFinished(container);
                     FragmentManager fragmentManager = provider.getContainerFragmentManager();
@@ -765,12 +775,21 @@ public abstract class QMUIFragment extends Fragment implements
                                     Object fragmentObject = fragmentField.get(op);
                                     if (fragmentObject instanceof QMUIFragment) {
                                         mModifiedFragment = (QMUIFragment) fragmentObject;
-                                        mModifiedFragment.isCreateForSwipeBack = true;
-                                        View baseView = mModifiedFragment.onCreateView(LayoutInflater.from(getContext()), container, null);
-                                        mModifiedFragment.isCreateForSwipeBack = false;
+                                        View baseView = mModifiedFragment.takeSwipeBackRetainedView();
                                         if (baseView != null) {
+                                            // child fragment views are still in the retained view
                                             addViewInSwipeBack(container, baseView, 0);
-                                            handleChildFragmentListWhenSwipeBackStart(mModifiedFragment, baseView);
+                                        } else {
+                                            mModifiedFragment.isCreateForSwipeBack = true;
+                                            baseView = mModifiedFragment.onCreateView(LayoutInflater.from(getContext()), container, null);
+                                            mModifiedFragment.isCreateForSwipeBack = false;
+                                            if (baseView != null) {
+                                                addViewInSwipeBack(container, baseView, 0);
+                                                handleChildFragmentListWhenSwipeBackStart(mModifiedFragment, baseView);
+                                            }
+                                        }
+                                        mModifiedFragmentView = baseView;
+                                        if (baseView != null) {
                                             SwipeBackLayout.translateInSwipeBack(baseView, moveEdge,
                                                     Math.abs(backViewInitOffset(baseView.getContext(), dragDirection, moveEdge)));
                                         }
@@ -809,6 +828,7 @@ public abstract class QMUIFragment extends Fragment implements
                         decorView.addView(mSwipeBackgroundView, 0, new FrameLayout.LayoutParams(
                                 ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
                     }
+                    mSwipeBackgroundView.setSnapshotEnabled(useSnapshotForSwipeBackground());
                     mSwipeBackgroundView.bind(prevActivity, currentActivity, restoreSubWindowWhenDragBack());
                     SwipeBackLayout.translateInSwipeBack(mSwipeBackgroundView, moveEdge,
                             Math.abs(backViewInitOffset(decorView.getContext(), dragDirection, moveEdge)));
@@ -832,24 +852,6 @@ public abstract class QMUIFragment extends Fragment implements
             }
         }
 
-        private void removeViewInSwipeBack(ViewGroup parent, Function<View, Void> onRemove) {
-            if (parent != null) {
-                int childCount = parent.getChildCount();
-                for (int i = childCount - 1; i >= 0; i--) {
-                    View view = parent.getChildAt(i);
-                    Object tag = view.getTag(R.id.qmui_arch_swipe_layout_in_back);
-                    if (SWIPE_BACK_VIEW.equals(tag)) {
-                        if (onRemove != null) {
-                            onRemove.apply(view);
-                        }
-                        view.setTranslationY(0);
-                        view.setTranslationX(0);
-                        parent.removeView(view);
-                    }
-                }
-            }
-        }
-
 
         private void handleChildFragmentListWhenSwipeBackStart(Fragment parentFragment, View baseView) throws IllegalAccessException {
             // handle issue #235
@@ -894,42 +896,164 @@ public abstract class QMUIFragment extends Fragment implements
             removeViewInSwipeBack(container, new Function<View, Void>() {
                 @Override
                 public Void apply(View input) {
-                    if (mModifiedFragment == null) {
-                        return null;
-                    }
-                    if (input instanceof ViewGroup) {
-                        ViewGroup childMainContainer = (ViewGroup) input;
-                        FragmentManager childFragmentManager = mModifiedFragment.getChildFragmentManager();
-                        List<Fragment> childFragmentList = childFragmentManager.getFragments();
-                        int childContainerId = 0;
-                        try {
-                            for (Fragment fragment : childFragmentList) {
-                                if (fragment instanceof QMUIFragment) {
-                                    QMUIFragment qmuiFragment = (QMUIFragment) fragment;
-                                    Field containerIdField = Fragment.class.getDeclaredField("mContainerId");
-                                    containerIdField.setAccessible(true);
-                                    int containerId = containerIdField.getInt(qmuiFragment);
-                                    if (containerId != 0 && childContainerId != containerId) {
-                                        childContainerId = containerId;
-                                        ViewGroup childContainer = childMainContainer.findViewById(containerId);
-                                        removeViewInSwipeBack(childContainer, null);
-                                    }
-                                }
-                            }
-                        } catch (IllegalAccessException e) {
-                            e.printStackTrace();
-                        } catch (NoSuchFieldException e) {
-                            e.printStackTrace();
-                        }
-
+                    if (mModifiedFragment != null) {
+                        removeChildViewInSwipeBack(mModifiedFragment, input);
                     }
                     return null;
                 }
             });
             mModifiedFragment = null;
+            mModifiedFragmentView = null;
+        }
+
+        private boolean retainViewInSwipeBack(ViewGroup container) {
+            QMUIFragment fragment = mModifiedFragment;
+            View view = mModifiedFragmentView;
+            if (fragment == null || view == null || view.getParent() != container
+                    || !fragment.retainViewForSwipeBack()) {
+                return false;
+            }
+            view.setTranslationY(0);
+            view.setTranslationX(0);
+            container.removeView(view);
+            // the child fragment views are kept in the retained view, only clear other views left in swipe back
+            mModifiedFragment = null;
+            handleSwipeBackCancelOrFinished(container);
+            fragment.retainSwipeBackView(view);
+            return true;
         }
     };
 
+    private static void removeViewInSwipeBack(ViewGroup parent, Function<View, Void> onRemove) {
+        if (parent != null) {
+            int childCount = parent.getChildCount();
+            for (int i = childCount - 1; i >= 0; i--) {
+                View view = parent.getChildAt(i);
+                Object tag = view.getTag(R.id.qmui_arch_swipe_layout_in_back);
+                if (SWIPE_BACK_VIEW.equals(tag)) {
+                    if (onRemove != null) {
+                        onRemove.apply(view);
+                    }
+                    view.setTranslationY(0);
+                    view.setTranslationX(0);
+                    parent.removeView(view);
+                }
+            }
+        }
+    }
+
+    private static void removeChildViewInSwipeBack(Fragment parentFragment, View view) {
+        if (view instanceof ViewGroup) {
+            ViewGroup childMainContainer = (ViewGroup) view;
+            FragmentManager childFragmentManager = parentFragment.getChildFragmentManager();
+            List<Fragment> childFragmentList = childFragmentManager.getFragments();
+            int childContainerId = 0;
+            try {
+                for (Fragment fragment : childFragmentList) {
+                    if (fragment instanceof QMUIFragment) {
+                        QMUIFragment qmuiFragment = (QMUIFragment) fragment;
+                        Field containerIdField = Fragment.class.getDeclaredField("mContainerId");
+                        containerIdField.setAccessible(true);
+                        int containerId = containerIdField.getInt(qmuiFragment);
+                        if (containerId != 0 && childContainerId != containerId) {
+                            childContainerId = containerId;
+                            ViewGroup childContainer = childMainContainer.findViewById(containerId);
+                            removeViewInSwipeBack(childContainer, null);
+                        }
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+            } catch (NoSuchFieldException e) {
+                e.printStackTrace();
+            }
+
+        }
+    }
+
+    /**
+     * Whether to keep the view created for swipe back after the swipe back from the fragment on top of this one
+     * is canceled. The next swipe back then adds the retained view directly instead of calling
+     * {@link #onCreateView(LayoutInflater, ViewGroup, Bundle)} again for this fragment and its child fragments.
+     * The retained views are limited by {@link #setSwipeBackRetainedViewMaxCount(int)} and released when
+     * the system is low on memory, then the view is created again as usual.
+     */
+    protected boolean retainViewForSwipeBack() {
+        return false;
+    }
+
+    /**
+     * set the max count of the fragments which hold a retained swipe back view, 0 to disable the retaining.
+     */
+    public static void setSwipeBackRetainedViewMaxCount(int count) {
+        sSwipeBackRetainedViewMaxCount = Math.max(0, count);
+        trimSwipeBackRetainedViews(sSwipeBackRetainedViewMaxCount);
+    }
+
+    private void retainSwipeBackView(View view) {
+        releaseSwipeBackRetainedView();
+        if (sSwipeBackRetainedViewMaxCount <= 0) {
+            removeChildViewInSwipeBack(this, view);
+            return;
+        }
+        if (sSwipeBackTrimMemoryCallbacks == null) {
+            sSwipeBackTrimMemoryCallbacks = new ComponentCallbacks2() {
+                @Override
+                public void onTrimMemory(int level) {
+                    if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                        trimSwipeBackRetainedViews(0);
+                    }
+                }
+
+                @Override
+                public void onConfigurationChanged(@NonNull Configuration newConfig) {
+
+                }
+
+                @Override
+                public void onLowMemory() {
+                    trimSwipeBackRetainedViews(0);
+                }
+            };
+            view.getContext().getApplicationContext().registerComponentCallbacks(sSwipeBackTrimMemoryCallbacks);
+        }
+        mSwipeBackRetainedView = view;
+        sSwipeBackRetainedFragments.add(this);
+        trimSwipeBackRetainedViews(sSwipeBackRetainedViewMaxCount);
+    }
+
+    @Nullable
+    private View takeSwipeBackRetainedView() {
+        View view = mSwipeBackRetainedView;
+        if (view == null) {
+            return null;
+        }
+        mSwipeBackRetainedView = null;
+        sSwipeBackRetainedFragments.remove(this);
+        if (view.getParent() != null || mCacheRootView == null || !(view instanceof SwipeBackLayout)
+                || ((SwipeBackLayout) view).getContentView() != mCacheRootView
+                || mCacheRootView.getParent() != view) {
+            // mCacheRootView has been moved to another SwipeBackLayout
+            removeChildViewInSwipeBack(this, view);
+            return null;
+        }
+        return view;
+    }
+
+    private void releaseSwipeBackRetainedView() {
+        if (mSwipeBackRetainedView != null) {
+            removeChildViewInSwipeBack(this, mSwipeBackRetainedView);
+            mSwipeBackRetainedView = null;
+            sSwipeBackRetainedFragments.remove(this);
+        }
+    }
+
+    private static void trimSwipeBackRetainedViews(int maxCount) {
+        while (sSwipeBackRetainedFragments.size() > maxCount) {
+            sSwipeBackRetainedFragments.get(0).releaseSwipeBackRetainedView();
+        }
+    }
+
     public boolean isInSwipeBack() {
         return mIsInSwipeBack;
     }
@@ -938,8 +1062,20 @@ public abstract class QMUIFragment extends Fragment implements
         return false;
     }
 
+    /**
+     * draw a recorded snapshot of the previous activity during swipe back instead of drawing its views
+     * on every frame, see {@link SwipeBackgroundView#setSnapshotEnabled(boolean)}
+     */
+    protected boolean useSnapshotForSwipeBackground(){
+        return true;
+    }
+
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        if (!isCreateForSwipeBack) {
+            // mCacheRootView will be moved to the new SwipeBackLayout
+            releaseSwipeBackRetainedView();
+        }
         SwipeBackLayout swipeBackLayout = newSwipeBackLayout();
         if (!isCreateForSwipeBack) {
             mBaseView = swipeBackLayout.getContentView();
@@ -1466,6 +1602,7 @@ public abstract class QMUIFragment extends Fragment implements
             mSwipeBackgroundView.unBind();
             mSwipeBackgroundView = null;
         }
+        releaseSwipeBackRetainedView();
 
         // help gc, sometimes user may hold fragment instance in somewhere,
         // then these objects can not be released in time.
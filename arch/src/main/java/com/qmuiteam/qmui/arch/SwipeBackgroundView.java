@@ -21,11 +21,16 @@ import android.content.Context;
 import android.content.pm.ActivityInfo;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.os.Build;
 import android.os.IBinder;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 import android.util.AttributeSet;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.Window;
 import android.view.WindowManager;
 
@@ -41,6 +46,19 @@ public class SwipeBackgroundView extends View {
     private ArrayList<ViewInfo> mViewWeakReference;
     private boolean mDoRotate = false;
 
+    // snapshot: record the previous windows once at swipe start and replay the record during the drag
+    private boolean mSnapshotEnabled = true;
+    private boolean mSnapshotFallbackToLive = false;
+    private RenderNodeSnapshot mSnapshot;
+
+    private final ViewTreeObserver.OnPreDrawListener mOnPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            checkContentAnimating();
+            return true;
+        }
+    };
+
     public SwipeBackgroundView(Context context, boolean forceDisableHardwareAccelerated) {
         super(context);
         if(forceDisableHardwareAccelerated){
@@ -48,8 +66,24 @@ public class SwipeBackgroundView extends View {
         }
     }
 
+    /**
+     * if enabled, the previous windows are recorded to a {@link RenderNode} when bound and the record is
+     * drawn during the drag, instead of drawing the views of previous windows on every draw.
+     * It only works on Android Q and above with hardware acceleration, and it falls back to drawing the
+     * views directly when the content of the previous windows is changing.
+     */
+    public void setSnapshotEnabled(boolean snapshotEnabled) {
+        if (mSnapshotEnabled != snapshotEnabled) {
+            mSnapshotEnabled = snapshotEnabled;
+            releaseSnapshot();
+            invalidate();
+        }
+    }
+
     public void bind(Activity activity, Activity swipeActivity, boolean restoreForSubWindow) {
         mDoRotate = false;
+        mSnapshotFallbackToLive = false;
+        releaseSnapshot();
         if (mViewWeakReference != null) {
             mViewWeakReference.clear();
         }
@@ -147,6 +181,52 @@ public class SwipeBackgroundView extends View {
         }
         mViewWeakReference = null;
         mDoRotate = false;
+        mSnapshotFallbackToLive = false;
+        releaseSnapshot();
+    }
+
+    private void releaseSnapshot() {
+        if (mSnapshot != null) {
+            mSnapshot.release();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnPreDrawListener(mOnPreDrawListener);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getViewTreeObserver().removeOnPreDrawListener(mOnPreDrawListener);
+        releaseSnapshot();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * the snapshot is out of date if any previous window is invalidated after it's recorded,
+     * e.g. an animation is running in the previous activity. Then draw the views directly.
+     */
+    private void checkContentAnimating() {
+        if (mViewWeakReference == null) {
+            return;
+        }
+        boolean isSnapshotDrawn = mSnapshot != null && mSnapshot.isRecorded();
+        if (!isSnapshotDrawn && !mSnapshotFallbackToLive) {
+            return;
+        }
+        for (int i = 0; i < mViewWeakReference.size(); i++) {
+            View view = mViewWeakReference.get(i).viewRef.get();
+            if (view != null && view.isDirty()) {
+                if (isSnapshotDrawn) {
+                    mSnapshotFallbackToLive = true;
+                    releaseSnapshot();
+                }
+                invalidate();
+                return;
+            }
+        }
     }
 
     boolean hasChildWindow() {
@@ -156,6 +236,25 @@ public class SwipeBackgroundView extends View {
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
+        if (mViewWeakReference == null || mViewWeakReference.isEmpty()) {
+            return;
+        }
+        if (mSnapshotEnabled && !mSnapshotFallbackToLive && canvas.isHardwareAccelerated()
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                && getWidth() > 0 && getHeight() > 0) {
+            if (mSnapshot == null) {
+                mSnapshot = new RenderNodeSnapshot();
+            }
+            if (!mSnapshot.isRecorded()) {
+                mSnapshot.record(this, getWidth(), getHeight());
+            }
+            mSnapshot.draw(canvas);
+            return;
+        }
+        drawContent(canvas);
+    }
+
+    void drawContent(Canvas canvas) {
         if (mViewWeakReference != null && mViewWeakReference.size() > 0) {
             if (mDoRotate) {
                 canvas.translate(0, getHeight());
@@ -169,6 +268,38 @@ public class SwipeBackgroundView extends View {
         }
     }
 
+    @RequiresApi(Build.VERSION_CODES.Q)
+    static class RenderNodeSnapshot {
+        private final RenderNode mRenderNode = new RenderNode("QMUISwipeBackground");
+        private boolean mIsRecorded = false;
+
+        boolean isRecorded() {
+            return mIsRecorded;
+        }
+
+        void record(SwipeBackgroundView view, int width, int height) {
+            mRenderNode.setPosition(0, 0, width, height);
+            RecordingCanvas recordingCanvas = mRenderNode.beginRecording(width, height);
+            try {
+                view.drawContent(recordingCanvas);
+            } finally {
+                mRenderNode.endRecording();
+            }
+            mIsRecorded = true;
+        }
+
+        void draw(Canvas canvas) {
+            canvas.drawRenderNode(mRenderNode);
+        }
+
+        void release() {
+            if (mIsRecorded) {
+                mRenderNode.discardDisplayList();
+                mIsRecorded = false;
+            }
+        }
+    }
+
     static class ViewInfo {
         WeakReference<View> viewRef;
         WindowManager.LayoutParams lp;
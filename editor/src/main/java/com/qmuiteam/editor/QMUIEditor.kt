@@ -209,30 +209,40 @@ private fun updateTextFieldValue(
                 item.modifyByInsert(toInsertPos, index == mutableParagraph.size - 1)
             }
             val stopSpans = mutableListOf<MutableRange<SpanStyle>>()
-            val normalSpans = mutableListOf<MutableRange<SpanStyle>>()
             mutableSpan.forEach {
                 if (it.tag.startsWith(StopBehavior.prefix)) {
                     stopSpans.add(it)
-                } else {
-                    normalSpans.add(it)
                 }
             }
+            // index the stop spans by end and the paragraphs by start, so every span finds its stop span and
+            // companion paragraph in O(1) instead of walking all of them.
+            val stopSpansByEnd = stopSpans.groupByTo(HashMap()) { it.end }
+            val paragraphsByStart = mutableParagraph.groupByTo(HashMap()) { it.start }
             mutableSpan.forEach { item ->
+                val oldEnd = item.end
                 item.modifyByInsert(
                     toInsertPos,
-                    stopSpans.find { it.end == item.end && it.tag.endsWith(item.tag) } == null
+                    stopSpansByEnd[oldEnd]?.find { it.tag.endsWith(item.tag) } == null
                 )
                 // update companion span.
-                mutableParagraph.find { it.tag == item.tag && it.start == item.start }?.let {
+                paragraphsByStart[item.start]?.find { it.tag == item.tag }?.let {
                     item.end = it.end
                 }
+                if (item.end != oldEnd && item.tag.startsWith(StopBehavior.prefix)) {
+                    stopSpansByEnd[oldEnd]?.remove(item)
+                    stopSpansByEnd.getOrPut(item.end) { mutableListOf() }.add(item)
+                }
             }
+            val endedStopSpans = HashSet<MutableRange<SpanStyle>>()
             stopSpans.forEach {
                 it.modifyByInsert(toInsertPos, true)
                 if (it.end > it.start) {
-                    mutableSpan.remove(it)
+                    endedStopSpans.add(it)
                 }
             }
+            if (endedStopSpans.isNotEmpty()) {
+                mutableSpan.removeAll { it in endedStopSpans }
+            }
 
             if (next.text[point.newIndex] == '\n') {
                 for (i in 0 until mutableParagraph.size) {
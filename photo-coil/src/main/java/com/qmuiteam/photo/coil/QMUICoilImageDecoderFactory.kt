@@ -16,6 +16,7 @@ import coil.size.pxOrElse
 import com.qmuiteam.photo.data.QMUIBitmapRegionHolderDrawable
 import com.qmuiteam.photo.data.loadLongImage
 import com.qmuiteam.photo.data.loadLongImageThumbnail
+import com.qmuiteam.photo.util.QMUIPhotoBitmapPool
 import kotlinx.coroutines.runInterruptible
 import kotlinx.coroutines.sync.Semaphore
 import kotlinx.coroutines.sync.withPermit
@@ -32,6 +33,7 @@ class QMUICoilImageDecoderFactory(maxParallelism: Int = 4) : Decoder.Factory {
 
     override fun create(result: SourceResult, options: Options, imageLoader: ImageLoader): Decoder? {
         return if ((options.parameters["isLongImage"] as? Boolean) == true) {
+            QMUIPhotoBitmapPool.shared.registerComponentCallbacks(options.context)
             QMUICoilLongImageDecoder(result.source, options, parallelismLock)
         } else {
             BitmapFactoryDecoder(result.source, options, parallelismLock)
@@ -201,8 +201,8 @@ class QMUICoilPhoto(
         onSuccess: ((PhotoResult) -> Unit)?,
         onError: ((Throwable) -> Unit)?
     ) {
-        var images by remember {
-            mutableStateOf(emptyList<QMUIBitmapRegionProvider>())
+        var bitmapRegion by remember {
+            mutableStateOf<QMUIBitmapRegion?>(null)
         }
         val context = LocalContext.current
         LaunchedEffect(key1 = "") {
@@ -217,23 +217,30 @@ class QMUICoilPhoto(
             }
             if (result is SuccessResult) {
                 (result.drawable as? QMUIBitmapRegionHolderDrawable)?.bitmapRegion?.let {
-                    images = it.list
+                    bitmapRegion = it
                 }
                 onSuccess?.invoke(PhotoResult(uri, result.drawable))
             } else if (result is ErrorResult) {
                 onError?.invoke(result.throwable)
             }
         }
-        if (images.isNotEmpty()) {
+        val region = bitmapRegion
+        DisposableEffect(region) {
+            onDispose {
+                // release the decoders and tiles, they are created again if the region is displayed again
+                region?.tileDecoder?.release()
+            }
+        }
+        if (region != null && region.list.isNotEmpty()) {
             LazyColumn(modifier = Modifier.fillMaxSize()) {
-                items(images) { image ->
+                items(region.list) { image ->
                     BoxWithConstraints() {
                         val width = constraints.maxWidth
                         val height = width * image.height / image.width
                         val heightDp = with(LocalDensity.current) {
                             height.toDp()
                         }
-                        QMUIBitmapRegionItem(image, maxWidth, heightDp)
+                        QMUIBitmapRegionItem(image, maxWidth, heightDp, region.tileDecoder)
                     }
                 }
             }
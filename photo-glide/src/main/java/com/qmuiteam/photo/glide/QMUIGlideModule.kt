@@ -18,6 +18,7 @@ import com.bumptech.glide.module.LibraryGlideModule
 import com.qmuiteam.photo.data.QMUIBitmapRegionHolderDrawable
 import com.qmuiteam.photo.data.loadLongImage
 import com.qmuiteam.photo.data.loadLongImageThumbnail
+import com.qmuiteam.photo.util.QMUIPhotoBitmapPool
 import java.io.IOException
 import java.io.InputStream
 import java.nio.ByteBuffer
@@ -34,6 +35,7 @@ class QMUILongGlidePhotoData(
 class QMUIGlideModule : LibraryGlideModule() {
 
     override fun registerComponents(context: Context, glide: Glide, registry: Registry) {
+        QMUIPhotoBitmapPool.shared.registerComponentCallbacks(context)
         registry.prepend(
             Registry.BUCKET_BITMAP,
             InputStream::class.java,
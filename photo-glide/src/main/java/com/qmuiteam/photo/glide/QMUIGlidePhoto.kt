@@ -154,6 +154,12 @@ private fun LongImageContent(drawable: QMUIBitmapRegionHolderDrawable) {
     val images by remember(drawable) {
         mutableStateOf(drawable.bitmapRegion.list)
     }
+    DisposableEffect(drawable) {
+        onDispose {
+            // release the decoders and tiles, they are created again if the drawable is displayed again
+            drawable.bitmapRegion.tileDecoder?.release()
+        }
+    }
     if (images.isNotEmpty()) {
         LazyColumn(modifier = Modifier.fillMaxSize()) {
             items(images) { image ->
@@ -163,7 +169,7 @@ private fun LongImageContent(drawable: QMUIBitmapRegionHolderDrawable) {
                     val heightDp = with(LocalDensity.current) {
                         height.toDp()
                     }
-                    QMUIBitmapRegionItem(image, maxWidth, heightDp)
+                    QMUIBitmapRegionItem(image, maxWidth, heightDp, drawable.bitmapRegion.tileDecoder)
                 }
             }
         }
@@ -3,6 +3,7 @@ package com.qmuiteam.photo.activity
 import android.Manifest
 import android.app.Application
 import android.content.Intent
+import android.graphics.Bitmap
 import android.net.Uri
 import android.os.Build
 import android.os.Bundle
@@ -233,6 +234,15 @@ open class QMUIPhotoPickerActivity : AppCompatActivity() {
             QMUIPhotoPickerLoadState.permissionDenied -> {
                 PermissionDenied()
             }
+            QMUIPhotoPickerLoadState.dataLoadingMore -> {
+                val list = data.data
+                if (list == null || list.isEmpty()) {
+                    Loading()
+                } else {
+                    PhotoPickerContent(viewModel, list)
+                    LoadingMore()
+                }
+            }
             QMUIPhotoPickerLoadState.dataLoaded -> {
                 val error = data.error
                 val list = data.data
@@ -566,11 +576,22 @@ open class QMUIPhotoPickerActivity : AppCompatActivity() {
         LaunchedEffect("") {
             WindowCompat.getInsetsController(window, window.decorView)?.hide(WindowInsetsCompat.Type.statusBars())
         }
-        QMUIPhotoPickerEdit(onBackPressedDispatcher, scene.current) {
+        QMUIPhotoPickerEdit(
+            onBackPressedDispatcher,
+            scene.current,
+            onEditResult = {
+                onPhotoEdited(viewModel, scene.current, it)
+            }
+        ) {
             viewModel.updateScene(viewModel.prevScene ?: QMUIPhotoPickerGridScene)
         }
     }
 
+    protected open fun onPhotoEdited(viewModel: QMUIPhotoPickerViewModel, photo: QMUIMediaPhotoVO, bitmap: Bitmap) {
+        viewModel.putEditResult(photo.model.id, bitmap)
+        viewModel.updateScene(viewModel.prevScene ?: QMUIPhotoPickerGridScene)
+    }
+
     @Composable
     protected open fun BoxScope.Loading() {
         Box(modifier = Modifier.align(Alignment.Center)) {
@@ -578,6 +599,17 @@ open class QMUIPhotoPickerActivity : AppCompatActivity() {
         }
     }
 
+    @Composable
+    protected open fun BoxScope.LoadingMore() {
+        Box(
+            modifier = Modifier
+                .align(Alignment.BottomCenter)
+                .padding(bottom = 80.dp)
+        ) {
+            QMUIPhotoLoading(size = 24.dp, lineColor = QMUILocalPickerConfig.current.loadingColor)
+        }
+    }
+
     @Composable
     protected open fun BoxScope.PermissionDenied() {
         CommonTip(text = "选择图片需要存储权限\n请先前往设置打开存储权限")
@@ -1,22 +1,48 @@
 package com.qmuiteam.photo.compose
 
 import android.graphics.Bitmap
+import android.view.Choreographer
+import androidx.compose.foundation.Canvas
 import androidx.compose.foundation.Image
 import androidx.compose.foundation.layout.Box
 import androidx.compose.foundation.layout.fillMaxSize
 import androidx.compose.foundation.layout.size
 import androidx.compose.runtime.*
 import androidx.compose.ui.Modifier
+import androidx.compose.ui.draw.clipToBounds
+import androidx.compose.ui.geometry.Offset
 import androidx.compose.ui.graphics.asImageBitmap
 import androidx.compose.ui.graphics.painter.BitmapPainter
 import androidx.compose.ui.layout.ContentScale
+import androidx.compose.ui.layout.LayoutCoordinates
+import androidx.compose.ui.layout.boundsInWindow
+import androidx.compose.ui.layout.onGloballyPositioned
 import androidx.compose.ui.unit.Dp
+import androidx.compose.ui.unit.IntOffset
+import androidx.compose.ui.unit.IntSize
 import com.qmuiteam.photo.data.QMUIBitmapRegionProvider
+import com.qmuiteam.photo.data.QMUIBitmapTileDecoder
+import com.qmuiteam.photo.data.QMUIBitmapTileKey
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
+import kotlin.math.ceil
 
+private class VisibleTileArea(val srcRect: android.graphics.Rect, val srcPerDisplayPixel: Float)
+
+/**
+ * @param tileDecoder if provided, the visible part of the region is decoded in tiles when it's zoomed in
+ * beyond the resolution of the loaded region bitmap.
+ */
 @Composable
-fun QMUIBitmapRegionItem(bmRegion: QMUIBitmapRegionProvider, w: Dp, h: Dp) {
+fun QMUIBitmapRegionItem(
+    bmRegion: QMUIBitmapRegionProvider,
+    w: Dp,
+    h: Dp,
+    tileDecoder: QMUIBitmapTileDecoder? = null
+) {
     var bitmap by remember {
         mutableStateOf<Bitmap?>(null)
     }
@@ -25,7 +51,20 @@ fun QMUIBitmapRegionItem(bmRegion: QMUIBitmapRegionProvider, w: Dp, h: Dp) {
             bitmap = bmRegion.loader.load()
         }
     }
-    Box(modifier = Modifier.size(w, h)) {
+    val srcRect = bmRegion.srcRect
+    var visibleArea by remember(bmRegion) {
+        mutableStateOf<VisibleTileArea?>(null)
+    }
+    Box(modifier = Modifier
+        .size(w, h)
+        .let {
+            if (tileDecoder != null && srcRect != null) {
+                it.onGloballyPositioned { coordinates ->
+                    visibleArea = calculateVisibleTileArea(coordinates, srcRect)
+                }
+            } else it
+        }
+    ) {
         val bm = bitmap
         if (bm != null) {
             Image(
@@ -35,5 +74,127 @@ fun QMUIBitmapRegionItem(bmRegion: QMUIBitmapRegionProvider, w: Dp, h: Dp) {
                 modifier = Modifier.fillMaxSize()
             )
         }
+        val area = visibleArea
+        if (tileDecoder != null && srcRect != null && area != null) {
+            val regionSampleSize = srcRect.width() / (bm?.width ?: bmRegion.width).coerceAtLeast(1)
+            val sampleSize = tileDecoder.sampleSizeFor(area.srcPerDisplayPixel)
+            if (sampleSize < regionSampleSize) {
+                QMUIBitmapRegionTiles(tileDecoder, srcRect, area.srcRect, sampleSize)
+            }
+        }
+    }
+}
+
+private fun calculateVisibleTileArea(coordinates: LayoutCoordinates, srcRect: android.graphics.Rect): VisibleTileArea? {
+    val size = coordinates.size
+    if (size.width <= 0 || size.height <= 0 || !coordinates.isAttached) {
+        return null
+    }
+    val bounds = coordinates.boundsInWindow()
+    if (bounds.isEmpty) {
+        return null
+    }
+    val displayWidth = coordinates.localToWindow(Offset(size.width.toFloat(), 0f)).x - coordinates.localToWindow(Offset.Zero).x
+    if (displayWidth <= 0) {
+        return null
+    }
+    val topLeft = coordinates.windowToLocal(bounds.topLeft)
+    val bottomRight = coordinates.windowToLocal(bounds.bottomRight)
+    val srcScale = srcRect.width().toFloat() / size.width
+    return VisibleTileArea(
+        android.graphics.Rect(
+            srcRect.left + (topLeft.x * srcScale).toInt(),
+            srcRect.top + (topLeft.y * srcScale).toInt(),
+            srcRect.left + ceil(bottomRight.x * srcScale).toInt(),
+            srcRect.top + ceil(bottomRight.y * srcScale).toInt()
+        ),
+        srcRect.width() / displayWidth
+    )
+}
+
+@Composable
+private fun QMUIBitmapRegionTiles(
+    tileDecoder: QMUIBitmapTileDecoder,
+    regionSrcRect: android.graphics.Rect,
+    visibleSrcRect: android.graphics.Rect,
+    sampleSize: Int
+) {
+    val tiles = remember(tileDecoder, regionSrcRect) {
+        mutableStateMapOf<QMUIBitmapTileKey, Bitmap>()
+    }
+    val keys = remember(visibleSrcRect, sampleSize) {
+        tileDecoder.tilesIn(visibleSrcRect, sampleSize)
+    }
+    DisposableEffect(tiles) {
+        onDispose {
+            tileDecoder.releaseTilesAfterDrawn(tiles.values.toList())
+            tiles.clear()
+        }
+    }
+    LaunchedEffect(keys) {
+        // drop the invisible tiles so that their bitmaps can be reused by the decoder
+        val keySet = keys.toSet()
+        val dropped = arrayListOf<Bitmap>()
+        tiles.keys.filter { it !in keySet }.forEach { key ->
+            tiles.remove(key)?.let { dropped.add(it) }
+        }
+        tileDecoder.releaseTilesAfterDrawn(dropped)
+        keys.forEach { key ->
+            if (!tiles.containsKey(key)) {
+                val cached = tileDecoder.getCachedTile(key)
+                if (cached != null) {
+                    tiles[key] = cached
+                } else {
+                    launch {
+                        // not cancellable, so that the referenced tile is always released if it's not displayed
+                        val bm = withContext(NonCancellable + Dispatchers.IO) {
+                            tileDecoder.loadTile(key)
+                        }
+                        if (bm != null) {
+                            if (isActive) {
+                                tiles.put(key, bm)?.let {
+                                    tileDecoder.releaseTilesAfterDrawn(listOf(it))
+                                }
+                            } else {
+                                tileDecoder.releaseTile(bm)
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+    Canvas(modifier = Modifier
+        .fillMaxSize()
+        .clipToBounds()) {
+        val srcScale = regionSrcRect.width() / size.width
+        tiles.forEach { (key, bm) ->
+            val rect = tileDecoder.tileRect(key)
+            val left = ((rect.left - regionSrcRect.left) / srcScale).toInt()
+            val top = ((rect.top - regionSrcRect.top) / srcScale).toInt()
+            val right = ceil((rect.right - regionSrcRect.left) / srcScale).toInt()
+            val bottom = ceil((rect.bottom - regionSrcRect.top) / srcScale).toInt()
+            drawImage(
+                bm.asImageBitmap(),
+                dstOffset = IntOffset(left, top),
+                dstSize = IntSize(right - left, bottom - top)
+            )
+        }
+    }
+}
+
+/**
+ * the frame drawing the tiles may still be rendered by the render thread after they are removed from
+ * the composition, so the tiles are released after the next two frames.
+ */
+private fun QMUIBitmapTileDecoder.releaseTilesAfterDrawn(bitmaps: List<Bitmap>) {
+    if (bitmaps.isEmpty()) {
+        return
+    }
+    val choreographer = Choreographer.getInstance()
+    choreographer.postFrameCallback {
+        choreographer.postFrameCallback {
+            bitmaps.forEach { releaseTile(it) }
+        }
     }
-}
\ No newline at end of file
+}
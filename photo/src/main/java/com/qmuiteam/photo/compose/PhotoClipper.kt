@@ -16,7 +16,7 @@
 package com.qmuiteam.photo.compose
 
 import android.graphics.Bitmap
-import android.graphics.Matrix
+import android.graphics.drawable.BitmapDrawable
 import android.graphics.drawable.Drawable
 import androidx.compose.foundation.Canvas
 import androidx.compose.foundation.layout.*
@@ -32,9 +32,11 @@ import androidx.compose.ui.graphics.drawscope.DrawScope
 import androidx.compose.ui.graphics.withSaveLayer
 import androidx.compose.ui.layout.ContentScale
 import androidx.compose.ui.unit.dp
-import androidx.core.graphics.drawable.toBitmap
 import com.qmuiteam.photo.data.PhotoLoadStatus
 import com.qmuiteam.photo.data.QMUIPhotoProvider
+import com.qmuiteam.photo.util.QMUIPhotoBitmapPool
+import com.qmuiteam.photo.util.toPooledBitmap
+import kotlin.math.roundToInt
 
 private class ClipperPhotoInfo(
     var scale: Float = 1f,
@@ -58,18 +60,17 @@ fun QMUIPhotoClipper(
             blendMode = BlendMode.DstOut
         )
     },
+    bitmapPool: QMUIPhotoBitmapPool = QMUILocalPhotoConfig.current.bitmapPool,
     bitmapClipper: (origin: Bitmap, clipArea: Rect, scale: Float) -> Bitmap? = { origin, clipArea, scale ->
-        val matrix = Matrix()
-        matrix.postScale(scale, scale)
-        Bitmap.createBitmap(
-            origin,
-            clipArea.left.toInt(),
-            clipArea.top.toInt(),
-            clipArea.width.toInt(),
-            clipArea.height.toInt(),
-            matrix,
-            false
+        val result = bitmapPool.get(
+            (clipArea.width * scale).roundToInt().coerceAtLeast(1),
+            (clipArea.height * scale).roundToInt().coerceAtLeast(1)
         )
+        val canvas = android.graphics.Canvas(result)
+        canvas.scale(scale, scale)
+        canvas.translate(-clipArea.left, -clipArea.top)
+        canvas.drawBitmap(origin, 0f, 0f, null)
+        result
     },
     operateContent: @Composable BoxWithConstraintsScope.(doClip: () -> Bitmap?) -> Unit
 ) {
@@ -89,10 +90,12 @@ fun QMUIPhotoClipper(
             clipArea = focusArea
         }
 
-        val doClip = remember(photoInfo) {
+        val doClip = remember(photoInfo, bitmapPool) {
             val func: () -> Bitmap? = lambda@{
-                val origin = photoInfo.drawable?.toBitmap() ?: return@lambda null
+                val drawable = photoInfo.drawable ?: return@lambda null
                 val rect = photoInfo.rect ?: return@lambda null
+                val drawableBitmap = (drawable as? BitmapDrawable)?.bitmap
+                val origin = drawableBitmap ?: drawable.toPooledBitmap(bitmapPool)
                 val scale = rect.width / origin.width
                 val clipRect = photoInfo.clipArea.translate(Offset(-rect.left, -rect.top))
                 val imageArea = Rect(
@@ -101,7 +104,11 @@ fun QMUIPhotoClipper(
                     clipRect.right / scale,
                     clipRect.bottom / scale
                 )
-                bitmapClipper(origin, imageArea, scale)
+                bitmapClipper(origin, imageArea, scale).also {
+                    if (drawableBitmap == null && it !== origin) {
+                        bitmapPool.put(origin)
+                    }
+                }
             }
             func
         }
@@ -5,12 +5,20 @@ import androidx.compose.foundation.layout.Box
 import androidx.compose.foundation.layout.fillMaxSize
 import androidx.compose.runtime.Composable
 import androidx.compose.runtime.CompositionLocalProvider
+import androidx.compose.runtime.LaunchedEffect
 import androidx.compose.runtime.staticCompositionLocalOf
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.graphics.Color
+import androidx.compose.ui.platform.LocalContext
+import com.qmuiteam.photo.util.QMUIPhotoBitmapPool
 
+/**
+ * @param bitmapPool the pool that the bitmaps of viewer, editor and clipper are drawn from and released to,
+ * create a [QMUIPhotoBitmapPool] with another max size to change the memory budget.
+ */
 class QMUIPhotoConfig(
-    val blankColor: Color = Color.LightGray
+    val blankColor: Color = Color.LightGray,
+    val bitmapPool: QMUIPhotoBitmapPool = QMUIPhotoBitmapPool.shared
 )
 
 val qmuiPhotoDefaultConfig by lazy { QMUIPhotoConfig() }
@@ -19,6 +27,10 @@ val QMUILocalPhotoConfig = staticCompositionLocalOf { qmuiPhotoDefaultConfig }
 
 @Composable
 fun QMUIDefaultPhotoConfigProvider(content: @Composable () -> Unit) {
+    val context = LocalContext.current
+    LaunchedEffect(qmuiPhotoDefaultConfig.bitmapPool) {
+        qmuiPhotoDefaultConfig.bitmapPool.registerComponentCallbacks(context)
+    }
     CompositionLocalProvider(QMUILocalPhotoConfig provides qmuiPhotoDefaultConfig) {
         content()
     }
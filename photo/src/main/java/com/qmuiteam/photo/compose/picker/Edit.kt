@@ -1,5 +1,7 @@
 package com.qmuiteam.photo.compose.picker
 
+import android.graphics.Bitmap
+import android.graphics.drawable.BitmapDrawable
 import android.graphics.drawable.Drawable
 import androidx.activity.OnBackPressedCallback
 import androidx.activity.OnBackPressedDispatcher
@@ -47,8 +49,11 @@ import com.qmuiteam.compose.core.helper.OnePx
 import com.qmuiteam.compose.core.provider.QMUILocalWindowInsets
 import com.qmuiteam.compose.core.provider.dp
 import com.qmuiteam.photo.compose.QMUIGesturePhoto
+import com.qmuiteam.photo.compose.QMUILocalPhotoConfig
 import com.qmuiteam.photo.data.QMUIMediaPhotoVO
+import com.qmuiteam.photo.util.toPooledBitmap
 import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.flow.MutableStateFlow
 
 private sealed class PickerEditScene
@@ -72,7 +77,8 @@ internal data class PickerPhotoLayoutInfo(val scale: Float, val rect: Rect)
 fun QMUIPhotoPickerEdit(
     onBackPressedDispatcher: OnBackPressedDispatcher,
     data: QMUIMediaPhotoVO,
-    onBack: () -> Unit,
+    onEditResult: ((Bitmap) -> Unit)? = null,
+    onBack: () -> Unit
 ) {
     val sceneState = remember(data) {
         mutableStateOf<PickerEditScene>(PickerEditSceneNormal)
@@ -100,6 +106,18 @@ fun QMUIPhotoPickerEdit(
         mutableStateOf(false)
     }
 
+    val scope = rememberCoroutineScope()
+    val bitmapPool = QMUILocalPhotoConfig.current.bitmapPool
+
+    DisposableEffect(photoInfo) {
+        onDispose {
+            photoInfo.mosaicBitmapCache.values.forEach {
+                bitmapPool.put(it.asAndroidBitmap())
+            }
+            photoInfo.mosaicBitmapCache.clear()
+        }
+    }
+
     BoxWithConstraints(modifier = Modifier.fillMaxSize()) {
         QMUIGesturePhoto(
             containerWidth = maxWidth,
@@ -129,6 +147,7 @@ fun QMUIPhotoPickerEdit(
 
         QMUIPhotoEditHistoryList(
             photoLayoutInfo,
+            photoInfo,
             paintEditLayers,
             textEditLayers,
             onFocusLayer = { focusLayer ->
@@ -174,7 +193,15 @@ fun QMUIPhotoPickerEdit(
                     paintEditLayers.add(it)
                 },
                 onEnsureClick = {
-
+                    val drawable = photoInfo.drawable
+                    val layoutInfo = photoLayoutInfo
+                    if (drawable != null && onEditResult != null && layoutInfo.rect != Rect.Zero) {
+                        val source = (drawable as? BitmapDrawable)?.bitmap ?: drawable.toBitmap()
+                        val layers = paintEditLayers.toList()
+                        scope.launch {
+                            onEditResult(compositePaintEditLayers(source, layers, layoutInfo.rect.size / layoutInfo.scale, bitmapPool))
+                        }
+                    }
                 },
                 onRevoke = {
                     paintEditLayers.removeLastOrNull()
@@ -587,6 +614,7 @@ fun QMUIPhotoPickerEditPhotoContent(
 @Composable
 private fun QMUIPhotoEditHistoryList(
     layoutInfo: PickerPhotoLayoutInfo,
+    photoInfo: MutablePickerPhotoInfo,
     editLayers: List<PaintEditLayer>,
     textEditLayers: List<TextEditLayer>,
     onFocusLayer: (TextEditLayer) -> Unit,
@@ -603,6 +631,15 @@ private fun QMUIPhotoEditHistoryList(
             layoutInfo.rect.height.toDp()
         )
     }
+    val bitmapPool = QMUILocalPhotoConfig.current.bitmapPool
+    val layerCache = remember(photoInfo, bitmapPool) {
+        PaintEditLayerCache(bitmapPool)
+    }
+    DisposableEffect(layerCache) {
+        onDispose {
+            layerCache.clear()
+        }
+    }
     Canvas(modifier = Modifier
         .width(w / layoutInfo.scale)
         .height(h / layoutInfo.scale)
@@ -614,10 +651,10 @@ private fun QMUIPhotoEditHistoryList(
             this.scaleY = layoutInfo.scale
             this.clip = true
         }) {
-        editLayers.forEach {
-            with(it) {
-                draw()
-            }
+        val photoWidth = photoInfo.drawable?.intrinsicWidth ?: 0
+        val rasterScale = if (photoWidth > 0) photoWidth / size.width else 1f
+        with(layerCache) {
+            drawLayers(editLayers, rasterScale)
         }
     }
     textEditLayers.forEach {
@@ -649,6 +686,7 @@ private fun QMUIPhotoPaintCanvas(
     onTouchEnd: (PaintEditLayer) -> Unit
 ) {
     val drawable = photoInfo.drawable ?: return
+    val bitmapPool = QMUILocalPhotoConfig.current.bitmapPool
     val (w, h) = with(LocalDensity.current) {
         arrayOf(
             layoutInfo.rect.width.toDp(),
@@ -668,7 +706,8 @@ private fun QMUIPhotoPaintCanvas(
                 GraffitiEditLayer(Path(), editPaint.color, graffitiStrokeWidth / layoutInfo.scale)
             }
             is MosaicEditPaint -> {
-                val image = photoInfo.mosaicBitmapCache[editPaint.scaleLevel] ?: drawable.toBitmap(
+                val image = photoInfo.mosaicBitmapCache[editPaint.scaleLevel] ?: drawable.toPooledBitmap(
+                    bitmapPool,
                     drawable.intrinsicWidth / editPaint.scaleLevel,
                     drawable.intrinsicHeight / editPaint.scaleLevel
                 ).asImageBitmap().also {
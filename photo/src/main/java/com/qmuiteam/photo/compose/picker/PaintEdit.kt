@@ -1,5 +1,7 @@
 package com.qmuiteam.photo.compose.picker
 
+import android.graphics.Bitmap
+import android.os.Build
 import androidx.compose.foundation.clickable
 import androidx.compose.foundation.interaction.MutableInteractionSource
 import androidx.compose.foundation.layout.size
@@ -8,13 +10,24 @@ import androidx.compose.runtime.remember
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.geometry.Offset
 import androidx.compose.ui.geometry.Rect
+import androidx.compose.ui.geometry.Size
 import androidx.compose.ui.graphics.*
+import androidx.compose.ui.graphics.drawscope.CanvasDrawScope
 import androidx.compose.ui.graphics.drawscope.DrawScope
 import androidx.compose.ui.graphics.drawscope.Stroke
+import androidx.compose.ui.graphics.drawscope.scale
 import androidx.compose.ui.platform.LocalDensity
+import androidx.compose.ui.unit.Density
 import androidx.compose.ui.unit.Dp
 import androidx.compose.ui.unit.IntSize
+import androidx.compose.ui.unit.LayoutDirection
 import androidx.compose.ui.unit.dp
+import com.qmuiteam.photo.util.QMUIPhotoBitmapPool
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.roundToInt
 
 sealed class EditPaint {
     @Composable
@@ -82,7 +95,17 @@ class ColorEditPaint(val color: Color) : EditPaint() {
 
 sealed class PaintEditLayer(val path: Path) {
     abstract fun DrawScope.draw()
-    abstract fun drawToBitmap()
+
+    /**
+     * draw the layer to [bitmap], the layer is laid out in [layoutSize] and scaled to the size of bitmap.
+     */
+    fun drawToBitmap(bitmap: ImageBitmap, layoutSize: Size) {
+        CanvasDrawScope().draw(Density(1f), LayoutDirection.Ltr, Canvas(bitmap), layoutSize) {
+            scale(bitmap.width / layoutSize.width, bitmap.height / layoutSize.height, Offset.Zero) {
+                draw()
+            }
+        }
+    }
 }
 
 class GraffitiEditLayer(
@@ -102,10 +125,6 @@ class GraffitiEditLayer(
             )
         )
     }
-
-    override fun drawToBitmap() {
-
-    }
 }
 
 class MosaicEditLayer(
@@ -141,8 +160,152 @@ class MosaicEditLayer(
             }
         }
     }
+}
 
-    override fun drawToBitmap() {
+/**
+ * Rasterize the committed paint layers incrementally into a cached bitmap, so only the new layers
+ * are drawn to the bitmap and the history is drawn by one drawImage every frame.
+ * Snapshots are taken every [checkpointInterval] layers, so revoking layers only replays the
+ * layers after the nearest snapshot.
+ *
+ * @param bitmapPool the cached bitmap and snapshots are drawn from and released to the pool
+ * @param maxRasterSize the max size of the long side of the cached bitmap
+ */
+internal class PaintEditLayerCache(
+    private val bitmapPool: QMUIPhotoBitmapPool,
+    private val maxRasterSize: Int = 2048,
+    private val checkpointInterval: Int = 10,
+    private val maxCheckpointCount: Int = 2
+) {
+    private var bitmap: ImageBitmap? = null
+    private var layoutSize = Size.Zero
+    private var rasterScale = 1f
+    private val drawnLayers = arrayListOf<PaintEditLayer>()
+    private val checkpoints = arrayListOf<Checkpoint>()
 
+    /**
+     * @param rasterScale the scale from the canvas size to the cached bitmap size, usually the ratio
+     * of the photo size to the canvas size, so the layers are as sharp as the photo when zoomed in.
+     */
+    fun DrawScope.drawLayers(layers: List<PaintEditLayer>, rasterScale: Float) {
+        if (layers.isEmpty()) {
+            if (drawnLayers.isNotEmpty()) {
+                clear()
+            }
+            return
+        }
+        val bitmap = ensureBitmap(size, rasterScale)
+        syncLayers(bitmap, layers)
+        drawImage(
+            bitmap,
+            dstSize = IntSize(size.width.roundToInt(), size.height.roundToInt()),
+            filterQuality = FilterQuality.Low
+        )
     }
-}
\ No newline at end of file
+
+    private fun ensureBitmap(size: Size, rasterScale: Float): ImageBitmap {
+        val current = bitmap
+        if (current != null && layoutSize == size && this.rasterScale == rasterScale) {
+            return current
+        }
+        clear()
+        this.rasterScale = rasterScale
+        val scale = min(rasterScale, maxRasterSize / max(size.width, size.height)).coerceAtLeast(1f)
+        val created = bitmapPool.get(
+            (size.width * scale).roundToInt().coerceAtLeast(1),
+            (size.height * scale).roundToInt().coerceAtLeast(1)
+        ).asImageBitmap()
+        bitmap = created
+        layoutSize = size
+        return created
+    }
+
+    private fun syncLayers(bitmap: ImageBitmap, layers: List<PaintEditLayer>) {
+        var same = 0
+        val count = min(layers.size, drawnLayers.size)
+        while (same < count && layers[same] === drawnLayers[same]) {
+            same++
+        }
+        if (same < drawnLayers.size) {
+            restoreTo(bitmap, same)
+        }
+        for (i in drawnLayers.size until layers.size) {
+            val layer = layers[i]
+            layer.drawToBitmap(bitmap, layoutSize)
+            drawnLayers.add(layer)
+            if (drawnLayers.size % checkpointInterval == 0) {
+                addCheckpoint(bitmap)
+            }
+        }
+    }
+
+    private fun restoreTo(bitmap: ImageBitmap, layerCount: Int) {
+        while (checkpoints.isNotEmpty() && checkpoints.last().layerCount > layerCount) {
+            checkpoints.removeAt(checkpoints.size - 1)
+        }
+        val checkpoint = checkpoints.lastOrNull()
+        val androidBitmap = bitmap.asAndroidBitmap()
+        androidBitmap.eraseColor(android.graphics.Color.TRANSPARENT)
+        if (checkpoint != null) {
+            android.graphics.Canvas(androidBitmap).drawBitmap(checkpoint.bitmap, 0f, 0f, null)
+        }
+        val restoredCount = checkpoint?.layerCount ?: 0
+        // the layers after the checkpoint are replayed by syncLayers
+        while (drawnLayers.size > restoredCount) {
+            drawnLayers.removeAt(drawnLayers.size - 1)
+        }
+    }
+
+    private fun addCheckpoint(bitmap: ImageBitmap) {
+        if (checkpoints.size >= maxCheckpointCount) {
+            bitmapPool.put(checkpoints.removeAt(0).bitmap)
+        }
+        val androidBitmap = bitmap.asAndroidBitmap()
+        val snapshot = bitmapPool.get(androidBitmap.width, androidBitmap.height, androidBitmap.config)
+        android.graphics.Canvas(snapshot).drawBitmap(androidBitmap, 0f, 0f, null)
+        checkpoints.add(Checkpoint(drawnLayers.size, snapshot))
+    }
+
+    fun clear() {
+        bitmap?.asAndroidBitmap()?.let { bitmapPool.put(it) }
+        bitmap = null
+        layoutSize = Size.Zero
+        rasterScale = 1f
+        drawnLayers.clear()
+        checkpoints.forEach { bitmapPool.put(it.bitmap) }
+        checkpoints.clear()
+    }
+
+    private class Checkpoint(val layerCount: Int, val bitmap: Bitmap)
+}
+
+/**
+ * composite the paint layers to the photo with the resolution of [source] in background.
+ *
+ * @param source the original photo, it's not modified
+ * @param layoutSize the size that the layers are laid out in
+ * @param bitmapPool the result bitmap is drawn from the pool
+ */
+suspend fun compositePaintEditLayers(
+    source: Bitmap,
+    layers: List<PaintEditLayer>,
+    layoutSize: Size,
+    bitmapPool: QMUIPhotoBitmapPool = QMUIPhotoBitmapPool.shared
+): Bitmap = withContext(Dispatchers.Default) {
+    val result = bitmapPool.get(source.width, source.height)
+    // software canvas can not draw hardware bitmaps.
+    val softSource = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && source.config == Bitmap.Config.HARDWARE) {
+        source.copy(Bitmap.Config.ARGB_8888, false)
+    } else source
+    android.graphics.Canvas(result).drawBitmap(softSource, 0f, 0f, null)
+    if (softSource !== source) {
+        softSource.recycle()
+    }
+    if (layoutSize.width > 0 && layoutSize.height > 0) {
+        val image = result.asImageBitmap()
+        layers.forEach {
+            it.drawToBitmap(image, layoutSize)
+        }
+    }
+    result
+}
@@ -5,10 +5,14 @@ import android.graphics.drawable.Drawable
 import android.os.Build
 import android.util.LruCache
 import androidx.compose.ui.unit.IntSize
+import com.qmuiteam.photo.util.QMUIPhotoBitmapPool
 import kotlinx.coroutines.*
 import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.Semaphore
 import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.sync.withPermit
 import java.io.InputStream
+import java.util.concurrent.ConcurrentLinkedQueue
 import kotlin.math.max
 import kotlin.math.min
 
@@ -20,7 +24,11 @@ fun interface QMUIBitmapRegionLoader {
 class QMUIBitmapRegionProvider(
     val width: Int,
     val height: Int,
-    val loader: QMUIBitmapRegionLoader
+    val loader: QMUIBitmapRegionLoader,
+    /**
+     * the region of the origin image, used to decode the visible tiles when zoomed in
+     */
+    val srcRect: Rect? = null
 )
 
 class QMUIAlreadyBitmapRegionLoader(private val bm: Bitmap) : QMUIBitmapRegionLoader {
@@ -61,7 +69,213 @@ private class QMUICacheBitmapRegionLoader(
     }
 }
 
-class QMUIBitmapRegion(val width: Int, val height: Int, val list: List<QMUIBitmapRegionProvider>)
+class QMUIBitmapRegion(
+    val width: Int,
+    val height: Int,
+    val list: List<QMUIBitmapRegionProvider>,
+    val tileDecoder: QMUIBitmapTileDecoder? = null
+)
+
+data class QMUIBitmapTileKey(val left: Int, val top: Int, val sampleSize: Int)
+
+/**
+ * Decode the origin image in fixed size tiles, so only the visible tiles are decoded at the sample size
+ * of current zoom.
+ * The tiles are decoded by a pool of [BitmapRegionDecoder] in parallel and cached in a lru cache
+ * keyed by [QMUIBitmapTileKey], the evicted tiles are released to [bitmapPool] and reused to decode the new tiles.
+ * A tile returned by [getCachedTile] or [loadTile] is referenced until [releaseTile] is called, it's never
+ * released to [bitmapPool] while referenced even if it's evicted from the cache.
+ *
+ * @param tileSize the size of the decoded tile, a tile covers tileSize * sampleSize pixels of the origin image
+ */
+class QMUIBitmapTileDecoder internal constructor(
+    private val data: ByteArray,
+    val width: Int,
+    val height: Int,
+    val tileSize: Int,
+    decoderCount: Int,
+    maxCacheBytes: Int,
+    private val config: Bitmap.Config,
+    private val bitmapPool: QMUIPhotoBitmapPool?,
+    initDecoder: BitmapRegionDecoder? = null
+) {
+    private val decoderPermits = Semaphore(decoderCount.coerceAtLeast(1))
+    private val idleDecoders = ConcurrentLinkedQueue<BitmapRegionDecoder>()
+
+    // increased by release(), the decoders and tiles of an older generation are not reused
+    @Volatile
+    private var generation = 0
+
+    private val tileLock = Any()
+    // the reference count of the tiles in use, guarded by tileLock
+    private val tileRefs = HashMap<Bitmap, Int>()
+    // the tiles removed from the cache while referenced, guarded by tileLock
+    private val removedTiles = HashSet<Bitmap>()
+
+    private val cache = object : LruCache<QMUIBitmapTileKey, Bitmap>(maxCacheBytes) {
+        override fun sizeOf(key: QMUIBitmapTileKey, value: Bitmap): Int {
+            return value.allocationByteCount
+        }
+
+        override fun entryRemoved(evicted: Boolean, key: QMUIBitmapTileKey, oldValue: Bitmap, newValue: Bitmap?) {
+            if (oldValue === newValue) {
+                return
+            }
+            synchronized(tileLock) {
+                if (tileRefs.containsKey(oldValue)) {
+                    removedTiles.add(oldValue)
+                } else {
+                    bitmapPool?.put(oldValue)
+                }
+            }
+        }
+    }
+
+    init {
+        initDecoder?.let { idleDecoders.offer(it) }
+    }
+
+    /**
+     * @return the cached tile, it's referenced and must be released by [releaseTile] when it's no longer drawn.
+     */
+    fun getCachedTile(key: QMUIBitmapTileKey): Bitmap? {
+        synchronized(tileLock) {
+            return cache.get(key)?.also { acquireTileLocked(it) }
+        }
+    }
+
+    /**
+     * @return the cached or decoded tile, it's referenced and must be released by [releaseTile]
+     * when it's no longer drawn.
+     */
+    suspend fun loadTile(key: QMUIBitmapTileKey): Bitmap? {
+        getCachedTile(key)?.let { return it }
+        val decodeGeneration = generation
+        val bitmap = decodeRegion(tileRect(key), key.sampleSize) ?: return null
+        synchronized(tileLock) {
+            acquireTileLocked(bitmap)
+            if (decodeGeneration == generation) {
+                cache.put(key, bitmap)
+            } else {
+                removedTiles.add(bitmap)
+            }
+        }
+        return bitmap
+    }
+
+    /**
+     * release the reference of the tile returned by [getCachedTile] or [loadTile].
+     * The display list drawing the tile must have been replaced, as the tile may be reused for decoding.
+     */
+    fun releaseTile(bitmap: Bitmap) {
+        synchronized(tileLock) {
+            val count = tileRefs[bitmap] ?: return
+            if (count > 1) {
+                tileRefs[bitmap] = count - 1
+                return
+            }
+            tileRefs.remove(bitmap)
+            if (removedTiles.remove(bitmap)) {
+                bitmapPool?.put(bitmap)
+            }
+        }
+    }
+
+    private fun acquireTileLocked(bitmap: Bitmap) {
+        tileRefs[bitmap] = (tileRefs[bitmap] ?: 0) + 1
+    }
+
+    fun tileRect(key: QMUIBitmapTileKey): Rect {
+        val span = tileSize * key.sampleSize
+        return Rect(key.left, key.top, min(key.left + span, width), min(key.top + span, height))
+    }
+
+    /**
+     * @return the keys of the tiles that intersect with [srcRect]
+     */
+    fun tilesIn(srcRect: Rect, sampleSize: Int): List<QMUIBitmapTileKey> {
+        val span = tileSize * sampleSize
+        val left = srcRect.left.coerceAtLeast(0) / span * span
+        val top = srcRect.top.coerceAtLeast(0) / span * span
+        val right = srcRect.right.coerceAtMost(width)
+        val bottom = srcRect.bottom.coerceAtMost(height)
+        val ret = arrayListOf<QMUIBitmapTileKey>()
+        var y = top
+        while (y < bottom) {
+            var x = left
+            while (x < right) {
+                ret.add(QMUIBitmapTileKey(x, y, sampleSize))
+                x += span
+            }
+            y += span
+        }
+        return ret
+    }
+
+    /**
+     * @param srcPerDisplayPixel how many pixels of the origin image are displayed in one pixel of the screen
+     */
+    fun sampleSizeFor(srcPerDisplayPixel: Float): Int {
+        if (srcPerDisplayPixel < 2) {
+            return 1
+        }
+        return Integer.highestOneBit(srcPerDisplayPixel.toInt())
+    }
+
+    internal suspend fun decodeRegion(rect: Rect, sampleSize: Int): Bitmap? {
+        return decoderPermits.withPermit {
+            val decodeGeneration = generation
+            val decoder = idleDecoders.poll() ?: newRegionDecoder(data)
+            try {
+                val inBitmap = bitmapPool?.getForDecode(
+                    (rect.width() + sampleSize - 1) / sampleSize,
+                    (rect.height() + sampleSize - 1) / sampleSize,
+                    config
+                )
+                val options = BitmapFactory.Options().also {
+                    it.inSampleSize = sampleSize
+                    it.inPreferredConfig = config
+                    it.inMutable = true
+                    it.inBitmap = inBitmap
+                }
+                val bitmap = try {
+                    decoder.decodeRegion(rect, options)
+                } catch (e: IllegalArgumentException) {
+                    if (inBitmap == null) {
+                        throw e
+                    }
+                    // the reused bitmap does not match, decode without it.
+                    bitmapPool?.put(inBitmap)
+                    options.inBitmap = null
+                    decoder.decodeRegion(rect, options)
+                }
+                // the tiles and pages are counted against the budget of the pool
+                bitmap?.let { bitmapPool?.charge(it) }
+                bitmap
+            } finally {
+                if (decodeGeneration != generation) {
+                    decoder.recycle()
+                } else {
+                    idleDecoders.offer(decoder)
+                }
+            }
+        }
+    }
+
+    /**
+     * release the cached tiles and the decoders when the image is no longer displayed, the tiles in use are
+     * released to [bitmapPool] after [releaseTile]. The decoder is still usable after this, new decoders are
+     * created from the encoded data if the image is displayed again.
+     */
+    fun release() {
+        generation++
+        cache.evictAll()
+        while (true) {
+            val decoder = idleDecoders.poll() ?: break
+            decoder.recycle()
+        }
+    }
+}
 
 
 /**
@@ -75,7 +289,7 @@ fun loadLongImageThumbnail(
     options: BitmapFactory.Options,
     fit: Boolean = false,
 ): Bitmap? {
-    return loadLongImage(ins, preferredSize, options, fit) { regionDecoder ->
+    return loadLongImage(ins, preferredSize, options, fit) { regionDecoder, _ ->
         val w = regionDecoder.width
         val h = regionDecoder.height
         val pageHeight = if (preferredSize.width > 0 && preferredSize.height > 0) {
@@ -97,12 +311,16 @@ fun loadLongImage(
     preferredSize: IntSize,
     options: BitmapFactory.Options,
     fit: Boolean = false,
-    preloadCount: Int = Int.MAX_VALUE,
+    preloadCount: Int = 2,
     cacheTimeoutForLazyLoad: Long = 1000,
-    cacheCountForLazyLoad: Int = 5
+    cacheCountForLazyLoad: Int = 5,
+    tileSize: Int = 512,
+    decoderCount: Int = 2,
+    maxTileCacheBytes: Int = 32 * 1024 * 1024,
+    bitmapPool: QMUIPhotoBitmapPool? = QMUIPhotoBitmapPool.shared
 ): QMUIBitmapRegion {
     val cacheStatistic = QMUIBitmapRegionCacheStatistic(cacheTimeoutForLazyLoad, cacheCountForLazyLoad)
-    return loadLongImage(ins, preferredSize, options, fit) { regionDecoder ->
+    return loadLongImage(ins, preferredSize, options, fit) { regionDecoder, data ->
         val w = regionDecoder.width
         val h = regionDecoder.height
         val pageHeight = if (preferredSize.width > 0 && preferredSize.height > 0) {
@@ -111,34 +329,33 @@ fun loadLongImage(
             (5 * w).coerceAtMost(h)
         }
 
+        // the page loaders only run after returned, so it's safe to preload pages with regionDecoder
+        // before it is shared by the tile decoder.
+        val tileDecoder = QMUIBitmapTileDecoder(
+            data, w, h, tileSize, decoderCount, maxTileCacheBytes,
+            options.inPreferredConfig ?: Bitmap.Config.ARGB_8888, bitmapPool, regionDecoder
+        )
+        val sampleSize = options.inSampleSize
         val ret = arrayListOf<QMUIBitmapRegionProvider>()
         var top = 0
         var i = 0
         while (top < h) {
             val bottom = (top + pageHeight).coerceAtMost(h)
+            val srcRect = Rect(0, top, w, bottom)
             if (i < preloadCount) {
-                val bm = regionDecoder.decodeRegion(Rect(0, top, w, bottom), options)
-                ret.add(QMUIBitmapRegionProvider(bm.width, bm.height, QMUIAlreadyBitmapRegionLoader(bm)))
+                val bm = regionDecoder.decodeRegion(srcRect, options)
+                ret.add(QMUIBitmapRegionProvider(bm.width, bm.height, QMUIAlreadyBitmapRegionLoader(bm), srcRect))
             } else {
-                val finalTop = top
-                val loader = object : QMUIBitmapRegionLoader {
-
-                    private val mutex = Mutex()
-
-                    override suspend fun load(): Bitmap? {
-                        return mutex.withLock {
-                            regionDecoder.decodeRegion(Rect(0, finalTop, w, bottom), options)
-                        }
-                    }
-
+                val loader = QMUIBitmapRegionLoader {
+                    tileDecoder.decodeRegion(srcRect, sampleSize)
                 }
                 ret.add(
                     QMUIBitmapRegionProvider(
-                        w, bottom - finalTop, if (cacheStatistic.canCache()) {
+                        w, bottom - top, if (cacheStatistic.canCache()) {
                             QMUICacheBitmapRegionLoader(loader, cacheStatistic)
                         } else {
                             loader
-                        }
+                        }, srcRect
                     )
                 )
             }
@@ -146,7 +363,7 @@ fun loadLongImage(
             i++
         }
 
-        QMUIBitmapRegion(w, h, ret)
+        QMUIBitmapRegion(w, h, ret, tileDecoder)
     }
 }
 
@@ -156,7 +373,7 @@ private fun <T> loadLongImage(
     preferredSize: IntSize,
     options: BitmapFactory.Options,
     fit: Boolean = false,
-    handler: (BitmapRegionDecoder) -> T
+    handler: (BitmapRegionDecoder, ByteArray) -> T
 ): T {
     // Read the image's dimensions.
     options.inJustDecodeBounds = true
@@ -182,13 +399,20 @@ private fun <T> loadLongImage(
         options.inSampleSize = 1
     }
 
+    // keep the encoded data so that more decoders can be created for parallel decoding
+    val data = bufferedIns.readBytes()
+    return handler(newRegionDecoder(data), data)
+}
+
+private fun newRegionDecoder(data: ByteArray): BitmapRegionDecoder {
     val regionDecoder = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-        BitmapRegionDecoder.newInstance(bufferedIns)
+        BitmapRegionDecoder.newInstance(data, 0, data.size)
     } else {
-        BitmapRegionDecoder.newInstance(bufferedIns, false)
+        @Suppress("DEPRECATION")
+        BitmapRegionDecoder.newInstance(data, 0, data.size, false)
     }
     checkNotNull(regionDecoder) { "BitmapRegionDecoder newInstance failed." }
-    return handler(regionDecoder)
+    return regionDecoder
 }
 
 private fun calculateInSampleSize(
@@ -10,7 +10,10 @@ import androidx.core.database.getLongOrNull
 import androidx.core.database.getStringOrNull
 import com.qmuiteam.compose.core.helper.QMUILog
 import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.withContext
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.last
 import java.io.File
 
 const val QMUIMediaPhotoBucketAllId = "__all__"
@@ -62,14 +65,34 @@ interface QMUIMediaPhotoProviderFactory {
 
 interface QMUIMediaDataProvider {
     suspend fun provide(context: Context, supportedMimeTypes: Array<String>): List<QMUIMediaPhotoBucket>
+
+    /**
+     * emit the buckets incrementally, every emission is a complete snapshot of the loaded data
+     * and the last emission contains all the data.
+     */
+    fun provideFlow(context: Context, supportedMimeTypes: Array<String>): Flow<List<QMUIMediaPhotoBucket>> {
+        return flow {
+            emit(provide(context, supportedMimeTypes))
+        }
+    }
 }
 
-class QMUIMediaImagesProvider : QMUIMediaDataProvider {
+/**
+ * @param firstPageSize the count of the most recent photos that is emitted first by [provideFlow].
+ * @param pageSize the rest are loaded in background and emitted every [pageSize] photos, and once more when finished.
+ */
+class QMUIMediaImagesProvider @JvmOverloads constructor(
+    private val firstPageSize: Int = DEFAULT_FIRST_PAGE_SIZE,
+    private val pageSize: Int = DEFAULT_PAGE_SIZE
+) : QMUIMediaDataProvider {
 
     companion object {
 
         private const val TAG = "QMUIMediaDataProvider"
 
+        const val DEFAULT_FIRST_PAGE_SIZE = 120
+        const val DEFAULT_PAGE_SIZE = 1000
+
         val DEFAULT_SUPPORT_MIMETYPES = arrayOf(
             "image/jpeg",
             "image/png",
@@ -94,7 +117,11 @@ class QMUIMediaImagesProvider : QMUIMediaDataProvider {
     }
 
     override suspend fun provide(context: Context, supportedMimeTypes: Array<String>): List<QMUIMediaPhotoBucket> {
-        return withContext(Dispatchers.IO) {
+        return provideFlow(context, supportedMimeTypes).last()
+    }
+
+    override fun provideFlow(context: Context, supportedMimeTypes: Array<String>): Flow<List<QMUIMediaPhotoBucket>> {
+        return flow {
             val selection = if (supportedMimeTypes.isEmpty()) {
                 null
             } else {
@@ -113,7 +140,7 @@ class QMUIMediaImagesProvider : QMUIMediaDataProvider {
                 sb.append(")")
                 sb.toString()
             }
-            val list = mutableListOf<QMUIMediaModel>()
+            val buckets = MutableMediaPhotoBuckets()
             context.applicationContext.contentResolver.query(
                 MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
                 COLUMNS,
@@ -122,51 +149,81 @@ class QMUIMediaImagesProvider : QMUIMediaDataProvider {
                 "${MediaStore.Images.Media.DATE_MODIFIED} DESC"
             )?.use { cursor ->
                 if (cursor.moveToFirst()) {
+                    val columns = ColumnIndices(cursor)
+                    var count = 0
+                    var nextEmitCount = firstPageSize
                     do {
                         try {
-                            val path = cursor.readString(MediaStore.Images.Media.DATA)
-                            val id = cursor.readLong(MediaStore.Images.Media._ID)
-                            val w = cursor.readInt(MediaStore.Images.Media.WIDTH)
-                            val h = cursor.readInt(MediaStore.Images.Media.HEIGHT)
-                            val o = cursor.readInt(MediaStore.Images.Media.ORIENTATION)
-                            val isRotated = o == 90 || o == 270
-                            list.add(
-                                QMUIMediaModel(
-                                    id,
-                                    ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, id),
-                                    if(isRotated) h else w,
-                                    if(isRotated) w else h,
-                                    cursor.readInt(MediaStore.Images.Media.ORIENTATION),
-                                    cursor.readString(MediaStore.Images.Media.DISPLAY_NAME),
-                                    cursor.readLong(MediaStore.Images.Media.DATE_MODIFIED),
-                                    cursor.readString(MediaStore.Images.Media.BUCKET_ID),
-                                    (cursor.readString(MediaStore.Images.Media.BUCKET_DISPLAY_NAME)).let {
-                                        it.ifEmpty { File(path).parent ?: "" }
-                                    },
-                                    true
-                                )
-                            )
+                            buckets.add(columns.read(cursor))
                         } catch (e: Exception) {
                             QMUILog.e(TAG, "read image data from cursor failed.", e)
                         }
+                        count++
+                        if (count == nextEmitCount && !cursor.isLast) {
+                            // the lists are still changed later, so emit a copy.
+                            emit(buckets.toBucketList(true))
+                            nextEmitCount += pageSize.coerceAtLeast(1)
+                        }
                     } while (cursor.moveToNext())
                 }
             }
-            val buckets = mutableListOf<MutableMediaPhotoBucket>()
-            val defaultPhotoBucket = MutableMediaPhotoBucket(QMUIMediaPhotoBucketAllId, QMUIMediaPhotoBucketAllName)
-            buckets.add(defaultPhotoBucket)
-            list.forEach { model ->
-                defaultPhotoBucket.list.add(model)
-                if(model.name.isNotBlank()){
-                    val bucket = buckets.find { it.id == model.bucketId} ?:MutableMediaPhotoBucket(model.bucketId, model.bucketName).also {
-                        buckets.add(it)
-                    }
-                    bucket.list.add(model)
+            emit(buckets.toBucketList(false))
+        }.flowOn(Dispatchers.IO)
+    }
+
+    private class ColumnIndices(cursor: Cursor) {
+        private val idIndex = cursor.getColumnIndexSafely(MediaStore.Images.Media._ID)
+        private val dataIndex = cursor.getColumnIndexSafely(MediaStore.Images.Media.DATA)
+        private val widthIndex = cursor.getColumnIndexSafely(MediaStore.Images.Media.WIDTH)
+        private val heightIndex = cursor.getColumnIndexSafely(MediaStore.Images.Media.HEIGHT)
+        private val orientationIndex = cursor.getColumnIndexSafely(MediaStore.Images.Media.ORIENTATION)
+        private val displayNameIndex = cursor.getColumnIndexSafely(MediaStore.Images.Media.DISPLAY_NAME)
+        private val dateModifiedIndex = cursor.getColumnIndexSafely(MediaStore.Images.Media.DATE_MODIFIED)
+        private val bucketIdIndex = cursor.getColumnIndexSafely(MediaStore.Images.Media.BUCKET_ID)
+        private val bucketDisplayNameIndex = cursor.getColumnIndexSafely(MediaStore.Images.Media.BUCKET_DISPLAY_NAME)
+
+        fun read(cursor: Cursor): QMUIMediaModel {
+            val id = cursor.readLong(idIndex)
+            val w = cursor.readInt(widthIndex)
+            val h = cursor.readInt(heightIndex)
+            val o = cursor.readInt(orientationIndex)
+            val isRotated = o == 90 || o == 270
+            return QMUIMediaModel(
+                id,
+                ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, id),
+                if (isRotated) h else w,
+                if (isRotated) w else h,
+                o,
+                cursor.readString(displayNameIndex),
+                cursor.readLong(dateModifiedIndex),
+                cursor.readString(bucketIdIndex),
+                cursor.readString(bucketDisplayNameIndex).ifEmpty {
+                    File(cursor.readString(dataIndex)).parent ?: ""
+                },
+                true
+            )
+        }
+    }
+
+    private class MutableMediaPhotoBuckets {
+        private val defaultPhotoBucket = MutableMediaPhotoBucket(QMUIMediaPhotoBucketAllId, QMUIMediaPhotoBucketAllName)
+        private val buckets = LinkedHashMap<String, MutableMediaPhotoBucket>().apply {
+            put(defaultPhotoBucket.id, defaultPhotoBucket)
+        }
+
+        fun add(model: QMUIMediaModel) {
+            defaultPhotoBucket.list.add(model)
+            if (model.name.isNotBlank()) {
+                val bucket = buckets.getOrPut(model.bucketId) {
+                    MutableMediaPhotoBucket(model.bucketId, model.bucketName)
                 }
+                bucket.list.add(model)
             }
+        }
 
-            buckets.map {
-                QMUIMediaPhotoBucket(it.id, it.name, it.list)
+        fun toBucketList(copy: Boolean): List<QMUIMediaPhotoBucket> {
+            return buckets.values.map {
+                QMUIMediaPhotoBucket(it.id, it.name, if (copy) it.list.toList() else it.list)
             }
         }
     }
@@ -181,6 +238,19 @@ class QMUIMediaImagesProvider : QMUIMediaDataProvider {
 }
 
 
+private fun Cursor.getColumnIndexSafely(columnName: String): Int {
+    return try {
+        getColumnIndexOrThrow(columnName)
+    } catch (e: Throwable) {
+        QMUILog.e("QMUIMediaDataProvider", "getColumnIndex for $columnName failed.", e)
+        -1
+    }
+}
+
+private fun Cursor.readLong(columnIndex: Int): Long = if (columnIndex < 0) 0 else getLongOrNull(columnIndex) ?: 0
+private fun Cursor.readString(columnIndex: Int): String = if (columnIndex < 0) "" else getStringOrNull(columnIndex) ?: ""
+private fun Cursor.readInt(columnIndex: Int): Int = if (columnIndex < 0) 0 else getIntOrNull(columnIndex) ?: 0
+
 private fun <T> Cursor.getColumnIndexAndDoAction(columnName: String, block: (Int) -> T): T? {
     return try {
         getColumnIndexOrThrow(columnName).let {
@@ -2,11 +2,16 @@ package com.qmuiteam.photo.util
 
 import android.content.Context
 import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.graphics.Rect
 import android.net.Uri
+import android.os.Build
+import android.os.SystemClock
 import android.util.Log
 import androidx.core.net.toUri
 import com.qmuiteam.compose.core.helper.QMUILog
 import java.io.*
+import kotlin.math.sqrt
 
 
 val DefaultBitmapCompressMaxSizeStrategy: (Bitmap) -> Int = {
@@ -22,11 +27,17 @@ val DefaultBitmapCompressCanUseMemoryStorage: (Bitmap) -> Boolean = {
     it.width * it.height < 1080 * 1920
 }
 
+/**
+ * @property encodeCount how many times the full size bitmap is encoded
+ * @property encodeTimeMs the time spent on encoding, including the trial encodes of the downsampled bitmap
+ */
 abstract class BitmapCompressResult internal constructor(
     val compressFormat: Bitmap.CompressFormat,
     val compressQuality: Int,
     val width: Int,
     val height: Int,
+    val encodeCount: Int = 0,
+    val encodeTimeMs: Long = 0
 ) {
     abstract fun inputStream(): InputStream?
 }
@@ -36,8 +47,10 @@ internal class BitmapCompressStreamResult(
     compressQuality: Int,
     width: Int,
     height: Int,
+    encodeCount: Int,
+    encodeTimeMs: Long,
     private val stream: BitmapCompressStream
-): BitmapCompressResult(compressFormat, compressQuality, width, height){
+): BitmapCompressResult(compressFormat, compressQuality, width, height, encodeCount, encodeTimeMs){
 
     override fun inputStream(): InputStream? {
         return stream.inputStream()
@@ -70,6 +83,7 @@ fun Bitmap.compressByShortEdgeWidthAndByteSize(
     canUseMemoryStorage: (Bitmap) -> Boolean = DefaultBitmapCompressCanUseMemoryStorage,
     compressFormat: Bitmap.CompressFormat = Bitmap.CompressFormat.JPEG,
     compressQuality: Int = 80,
+    bitmapPool: QMUIPhotoBitmapPool? = QMUIPhotoBitmapPool.shared
 ): BitmapCompressResult? {
 
     var bitmap = this
@@ -77,11 +91,11 @@ fun Bitmap.compressByShortEdgeWidthAndByteSize(
         val ratio = width.toFloat() / height
         if (width <= height) {
             if (width > shortEdgeMaxWidth) {
-                bitmap = Bitmap.createScaledBitmap(this, shortEdgeMaxWidth, (shortEdgeMaxWidth / ratio).toInt(), false)
+                bitmap = scaleTo(shortEdgeMaxWidth, (shortEdgeMaxWidth / ratio).toInt(), bitmapPool)
             }
         } else {
             if (height > shortEdgeMaxWidth) {
-                bitmap = Bitmap.createScaledBitmap(this, (shortEdgeMaxWidth * ratio).toInt(), shortEdgeMaxWidth, false)
+                bitmap = scaleTo((shortEdgeMaxWidth * ratio).toInt(), shortEdgeMaxWidth, bitmapPool)
             }
         }
     } catch (ignored: OutOfMemoryError) {
@@ -94,37 +108,181 @@ fun Bitmap.compressByShortEdgeWidthAndByteSize(
     val byteMaxSize = byteMaxSizeStrategy(this)
     val useMemoryStorage = canUseMemoryStorage(this)
 
+    val startTime = SystemClock.elapsedRealtime()
     val stream: BitmapCompressStream = if (useMemoryStorage) BitmapCompressMemoryStream() else BitmapCompressFileStream(context.cacheDir)
-    var currentQuality = compressQuality
-    var nextQuality = currentQuality
+    val estimator = createQualityEstimator(bitmap, compressFormat, bitmapPool)
+    var quality = estimator?.estimate(compressQuality, byteMaxSize) ?: compressQuality
+    var encodeCount = 0
     var failCount = 0
     var succes: Boolean
-    do {
+    while (true) {
         stream.reset()
-        currentQuality = nextQuality
+        encodeCount++
         succes = try {
             stream.outputStream().use {
-                bitmap.compress(compressFormat, currentQuality, it)
+                bitmap.compress(compressFormat, quality, it)
             }
         } catch (e: Throwable) {
             QMUILog.w(
                 "compressByShortEdgeWidthAndByteSize",
-                "compress bitmap failed(compressFormat = $compressFormat; quality = $nextQuality, failCount = $failCount).", e
+                "compress bitmap failed(compressFormat = $compressFormat; quality = $quality, failCount = $failCount).", e
             )
             false
         }
-        if (succes) {
-            nextQuality -= 10
-            failCount = 0
-        } else {
-            nextQuality -= 5
+        if (encodeCount >= BITMAP_COMPRESS_MAX_ENCODE_COUNT || quality <= BITMAP_COMPRESS_MIN_QUALITY) {
+            break
+        }
+        if (!succes) {
             failCount++
+            if (failCount >= 2) {
+                break
+            }
+            quality = (quality - 5).coerceAtLeast(BITMAP_COMPRESS_MIN_QUALITY)
+            continue
         }
-    } while ((!succes && failCount < 2 && nextQuality >= 20) || (succes && nextQuality >= 20 && stream.size() > byteMaxSize))
+        failCount = 0
+        val size = stream.size()
+        if (size <= byteMaxSize || estimator == null) {
+            break
+        }
+        // correct the estimation with the real size and search again below the current quality
+        quality = estimator.reestimate(quality, size, byteMaxSize)
+    }
+    estimator?.release()
+    val encodeTimeMs = SystemClock.elapsedRealtime() - startTime
+    QMUILog.i(
+        "compressByShortEdgeWidthAndByteSize",
+        "compress finished(success = $succes, quality = $quality, size = ${stream.size()}, " +
+                "encodeCount = $encodeCount, encodeTime = ${encodeTimeMs}ms)"
+    )
+    val resultWidth = bitmap.width
+    val resultHeight = bitmap.height
+    if (bitmap !== this) {
+        // the scaled bitmap is only used for compressing
+        bitmapPool?.put(bitmap)
+    }
     if (!succes) {
         return null
     }
-    return BitmapCompressStreamResult(compressFormat, currentQuality, bitmap.width, bitmap.height, stream)
+    return BitmapCompressStreamResult(
+        compressFormat, quality, resultWidth, resultHeight, encodeCount, encodeTimeMs, stream
+    )
+}
+
+private const val BITMAP_COMPRESS_MIN_QUALITY = 20
+private const val BITMAP_COMPRESS_MAX_ENCODE_COUNT = 3
+private const val BITMAP_COMPRESS_TRIAL_PIXELS = 256 * 256
+
+private fun createQualityEstimator(
+    bitmap: Bitmap,
+    compressFormat: Bitmap.CompressFormat,
+    bitmapPool: QMUIPhotoBitmapPool?
+): BitmapCompressQualityEstimator? {
+    if (compressFormat == Bitmap.CompressFormat.PNG) {
+        return null
+    }
+    // every trial encode of a hardware bitmap reads the pixels back from the gpu, use the plain quality loop instead.
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && bitmap.config == Bitmap.Config.HARDWARE) {
+        return null
+    }
+    return try {
+        BitmapCompressQualityEstimator(bitmap, compressFormat, bitmapPool)
+    } catch (e: Throwable) {
+        QMUILog.w("compressByShortEdgeWidthAndByteSize", "create quality estimator failed, compress without estimation.", e)
+        null
+    }
+}
+
+/**
+ * Estimate the encoded size of the bitmap at a quality by encoding a downsampled copy of it,
+ * so the full size bitmap only needs to be encoded with the estimated quality.
+ */
+private class BitmapCompressQualityEstimator(
+    bitmap: Bitmap,
+    private val compressFormat: Bitmap.CompressFormat,
+    private val bitmapPool: QMUIPhotoBitmapPool?
+) {
+    private val trial: Bitmap
+    private val isTrialOwned: Boolean
+    private val pixelRatio: Float
+    private val trialSizes = IntArray(101) { -1 }
+    private val trialOutput = BitmapCompressByteArrayOutputStream(16 * 1024)
+    // the real size / the estimated size, updated after each full encode
+    private var correction = 1f
+
+    init {
+        val pixels = bitmap.width.toLong() * bitmap.height
+        if (pixels <= BITMAP_COMPRESS_TRIAL_PIXELS) {
+            trial = bitmap
+            isTrialOwned = false
+            pixelRatio = 1f
+        } else {
+            val scale = sqrt(BITMAP_COMPRESS_TRIAL_PIXELS.toDouble() / pixels)
+            trial = bitmap.scaleTo(
+                (bitmap.width * scale).toInt().coerceAtLeast(1),
+                (bitmap.height * scale).toInt().coerceAtLeast(1),
+                bitmapPool
+            )
+            isTrialOwned = true
+            pixelRatio = pixels.toFloat() / (trial.width * trial.height)
+        }
+    }
+
+    private fun estimatedSize(quality: Int): Float {
+        var size = trialSizes[quality]
+        if (size < 0) {
+            trialOutput.reset()
+            trial.compress(compressFormat, quality, trialOutput)
+            size = trialOutput.size()
+            trialSizes[quality] = size
+        }
+        return size * pixelRatio * correction
+    }
+
+    /**
+     * binary search the max quality in [BITMAP_COMPRESS_MIN_QUALITY, maxQuality] that the estimated size fits [byteMaxSize]
+     */
+    fun estimate(maxQuality: Int, byteMaxSize: Int): Int {
+        var low = BITMAP_COMPRESS_MIN_QUALITY
+        var high = maxQuality
+        if (high <= low || estimatedSize(high) <= byteMaxSize) {
+            return high
+        }
+        high--
+        while (low < high) {
+            val mid = (low + high + 1) ushr 1
+            if (estimatedSize(mid) <= byteMaxSize) {
+                low = mid
+            } else {
+                high = mid - 1
+            }
+        }
+        return low
+    }
+
+    fun reestimate(lastQuality: Int, lastSize: Int, byteMaxSize: Int): Int {
+        val estimated = estimatedSize(lastQuality)
+        if (estimated > 0) {
+            correction *= lastSize / estimated
+        }
+        return estimate(lastQuality - 1, byteMaxSize)
+    }
+
+    fun release() {
+        if (isTrialOwned) {
+            bitmapPool?.put(trial)
+        }
+    }
+}
+
+private fun Bitmap.scaleTo(dstWidth: Int, dstHeight: Int, bitmapPool: QMUIPhotoBitmapPool?): Bitmap {
+    // software canvas can not draw hardware bitmaps, let createScaledBitmap handle them.
+    if (bitmapPool == null || (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && config == Bitmap.Config.HARDWARE)) {
+        return Bitmap.createScaledBitmap(this, dstWidth, dstHeight, false)
+    }
+    val ret = bitmapPool.get(dstWidth, dstHeight, config ?: Bitmap.Config.ARGB_8888)
+    Canvas(ret).drawBitmap(this, Rect(0, 0, width, height), Rect(0, 0, dstWidth, dstHeight), null)
+    return ret
 }
 
 internal interface BitmapCompressStream {
@@ -140,7 +298,8 @@ internal interface BitmapCompressStream {
 
 internal class BitmapCompressMemoryStream : BitmapCompressStream {
 
-    private val output = ByteArrayOutputStream()
+    // reset() keeps the grown buffer, so the buffer is allocated once for all the encodes
+    private val output = BitmapCompressByteArrayOutputStream(64 * 1024)
 
     override fun reset() {
         output.reset()
@@ -155,11 +314,21 @@ internal class BitmapCompressMemoryStream : BitmapCompressStream {
     }
 
     override fun inputStream(): InputStream {
-        return ByteArrayInputStream(output.toByteArray())
+        return output.inputStream()
     }
 
 }
 
+/**
+ * [ByteArrayOutputStream] that exposes its buffer to be read without copying, and is not closed by use {}
+ */
+internal class BitmapCompressByteArrayOutputStream(size: Int) : ByteArrayOutputStream(size) {
+
+    fun inputStream(): InputStream {
+        return ByteArrayInputStream(buf, 0, count)
+    }
+}
+
 internal class BitmapCompressFileStream(val cacheDir: File) : BitmapCompressStream {
 
     private var file: File? = null
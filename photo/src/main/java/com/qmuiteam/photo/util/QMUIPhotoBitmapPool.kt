@@ -0,0 +1,265 @@
+package com.qmuiteam.photo.util
+
+import android.content.ComponentCallbacks2
+import android.content.Context
+import android.content.res.Configuration
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.graphics.Color
+import android.graphics.drawable.Drawable
+import com.qmuiteam.compose.core.helper.QMUILog
+import java.util.*
+
+/**
+ * A lru pool of mutable bitmaps shared by the photo module, bitmaps released by one path
+ * can be reused by another path through [get] or as the inBitmap of decoding through [getForDecode].
+ * [maxSize] is the budget of both the bitmaps in use and the pooled bitmaps: the bitmaps handed out by
+ * [get] and [getForDecode], or counted by [charge], are in use until they are released by [put].
+ * The least recently released bitmaps are recycled when the total size is over budget, and the pool is
+ * trimmed when the system is low on memory after [registerComponentCallbacks].
+ */
+class QMUIPhotoBitmapPool(maxSize: Long) {
+
+    companion object {
+        private const val TAG = "QMUIPhotoBitmapPool"
+
+        // a pooled bitmap larger than this times of the required size is not reused to avoid wasting memory
+        private const val MAX_OVER_SIZE_MULTIPLE = 2
+
+        /**
+         * the default pool used by the photo module, the budget of the bitmaps in use and pooled
+         * is 1/8 of the max memory of the app
+         */
+        val shared by lazy {
+            QMUIPhotoBitmapPool(Runtime.getRuntime().maxMemory() / 8)
+        }
+    }
+
+    private val pool = ArrayList<Bitmap>()
+    // the bitmaps in use, weakly referenced so that the bitmaps never released by put() are not counted forever
+    private val inUse = WeakHashMap<Bitmap, Long>()
+
+    @Volatile
+    private var componentCallbacks: ComponentCallbacks2? = null
+
+    var maxSize: Long = maxSize
+        private set
+
+    /**
+     * the byte count of the pooled bitmaps
+     */
+    var currentSize: Long = 0
+        private set
+
+    /**
+     * the byte count of the bitmaps in use
+     */
+    val inUseSize: Long
+        @Synchronized get() = inUse.values.sum()
+
+    var hitCount = 0
+        private set
+
+    var missCount = 0
+        private set
+
+    var evictionCount = 0
+        private set
+
+    var putCount = 0
+        private set
+
+    /**
+     * @return a cleared mutable bitmap, reused from the pool if possible.
+     */
+    fun get(width: Int, height: Int, config: Bitmap.Config = Bitmap.Config.ARGB_8888): Bitmap {
+        val bitmap = getOrNull(width, height, config)
+        if (bitmap != null) {
+            bitmap.eraseColor(Color.TRANSPARENT)
+            return bitmap
+        }
+        return Bitmap.createBitmap(width, height, config).also { charge(it) }
+    }
+
+    /**
+     * count a bitmap not drawn from the pool, such as a decoded bitmap, against the budget until it's
+     * released by [put]. The pooled bitmaps are recycled to make room for it if the pool is over budget.
+     */
+    @Synchronized
+    fun charge(bitmap: Bitmap) {
+        if (bitmap.isRecycled) {
+            return
+        }
+        inUse[bitmap] = bitmap.allocationByteCount.toLong()
+        trimToSize(pooledBudget())
+    }
+
+    /**
+     * @return a bitmap used as the inBitmap of decoding, it's not cleared as the content will be
+     * overwritten by the decoder. Returns null if there is no suitable bitmap.
+     */
+    fun getForDecode(width: Int, height: Int, config: Bitmap.Config = Bitmap.Config.ARGB_8888): Bitmap? {
+        return getOrNull(width, height, config)
+    }
+
+    @Synchronized
+    private fun getOrNull(width: Int, height: Int, config: Bitmap.Config): Bitmap? {
+        val required = width.toLong() * height * bytesPerPixel(config)
+        var matched = -1
+        // search from the most recently released bitmaps
+        for (i in pool.indices.reversed()) {
+            val candidate = pool[i]
+            if (candidate.width == width && candidate.height == height && candidate.config == config) {
+                matched = i
+                break
+            }
+            val allocation = candidate.allocationByteCount
+            if (matched < 0 && allocation >= required && allocation <= required * MAX_OVER_SIZE_MULTIPLE) {
+                matched = i
+            }
+        }
+        if (matched < 0) {
+            missCount++
+            // make room for the bitmap to be allocated
+            trimToSize(pooledBudget() - required)
+            return null
+        }
+        val bitmap = pool.removeAt(matched)
+        currentSize -= bitmap.allocationByteCount
+        if (bitmap.width != width || bitmap.height != height || bitmap.config != config) {
+            try {
+                bitmap.reconfigure(width, height, config)
+            } catch (e: IllegalArgumentException) {
+                QMUILog.w(TAG, "reconfigure bitmap failed", e)
+                bitmap.recycle()
+                missCount++
+                return null
+            }
+        }
+        hitCount++
+        inUse[bitmap] = bitmap.allocationByteCount.toLong()
+        return bitmap
+    }
+
+    /**
+     * release the bitmap to the pool, the caller must not use the bitmap any more.
+     */
+    @Synchronized
+    fun put(bitmap: Bitmap) {
+        inUse.remove(bitmap)
+        if (bitmap.isRecycled) {
+            return
+        }
+        val size = bitmap.allocationByteCount.toLong()
+        if (!bitmap.isMutable || size > maxSize) {
+            bitmap.recycle()
+            evictionCount++
+            return
+        }
+        if (pool.any { it === bitmap }) {
+            return
+        }
+        pool.add(bitmap)
+        currentSize += size
+        putCount++
+        trimToSize(pooledBudget())
+    }
+
+    @Synchronized
+    fun setMaxSize(maxSize: Long) {
+        this.maxSize = maxSize
+        trimToSize(pooledBudget())
+    }
+
+    @Synchronized
+    fun clear() {
+        trimToSize(0)
+    }
+
+    /**
+     * trim the pooled bitmaps according to the level of [ComponentCallbacks2.onTrimMemory]
+     */
+    @Synchronized
+    fun trimMemory(level: Int) {
+        when {
+            level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND -> trimToSize(0)
+            level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN -> trimToSize(currentSize / 2)
+            level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW -> trimToSize(0)
+            level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE -> trimToSize(currentSize / 2)
+        }
+    }
+
+    /**
+     * trim the pool by the memory callbacks of the application, calling it more than once is ignored.
+     */
+    fun registerComponentCallbacks(context: Context) {
+        if (componentCallbacks != null) {
+            return
+        }
+        synchronized(this) {
+            if (componentCallbacks != null) {
+                return
+            }
+            val callbacks = object : ComponentCallbacks2 {
+                override fun onTrimMemory(level: Int) {
+                    trimMemory(level)
+                }
+
+                override fun onConfigurationChanged(newConfig: Configuration) {
+
+                }
+
+                override fun onLowMemory() {
+                    clear()
+                }
+            }
+            componentCallbacks = callbacks
+            context.applicationContext.registerComponentCallbacks(callbacks)
+        }
+    }
+
+    private fun pooledBudget(): Long {
+        return (maxSize - inUse.values.sum()).coerceAtLeast(0)
+    }
+
+    private fun trimToSize(size: Long) {
+        while (currentSize > size && pool.isNotEmpty()) {
+            val bitmap = pool.removeAt(0)
+            currentSize -= bitmap.allocationByteCount
+            bitmap.recycle()
+            evictionCount++
+        }
+    }
+
+    private fun bytesPerPixel(config: Bitmap.Config): Int {
+        return when (config) {
+            Bitmap.Config.ALPHA_8 -> 1
+            Bitmap.Config.RGB_565, Bitmap.Config.ARGB_4444 -> 2
+            else -> if (android.os.Build.VERSION.SDK_INT >= 26 && config == Bitmap.Config.RGBA_F16) 8 else 4
+        }
+    }
+
+    @Synchronized
+    override fun toString(): String {
+        return "QMUIPhotoBitmapPool(currentSize = $currentSize, inUseSize = ${inUse.values.sum()}, maxSize = $maxSize, hit = $hitCount, " +
+                "miss = $missCount, put = $putCount, eviction = $evictionCount)"
+    }
+}
+
+/**
+ * draw the drawable to a bitmap drawn from [pool], the caller should release the bitmap to the pool
+ * when it's no longer used.
+ */
+fun Drawable.toPooledBitmap(
+    pool: QMUIPhotoBitmapPool,
+    width: Int = intrinsicWidth,
+    height: Int = intrinsicHeight,
+    config: Bitmap.Config = Bitmap.Config.ARGB_8888
+): Bitmap {
+    val bitmap = pool.get(width.coerceAtLeast(1), height.coerceAtLeast(1), config)
+    val oldBounds = copyBounds()
+    setBounds(0, 0, bitmap.width, bitmap.height)
+    draw(Canvas(bitmap))
+    bounds = oldBounds
+    return bitmap
+}
@@ -9,6 +9,12 @@ import android.os.Build
 import android.os.Environment
 import android.provider.MediaStore
 import android.util.Log
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
 import java.io.IOException
 import java.io.InputStream
 import java.io.OutputStream
@@ -95,9 +101,11 @@ object QMUIPhotoHelper {
         byteMaxSizeStrategy: (Bitmap) -> Int = DefaultBitmapCompressMaxSizeStrategy,
         canUseMemoryStorage: (Bitmap) -> Boolean = DefaultBitmapCompressCanUseMemoryStorage,
         compressFormat: Bitmap.CompressFormat = Bitmap.CompressFormat.JPEG,
-        compressQuality: Int = 80
+        compressQuality: Int = 80,
+        bitmapPool: QMUIPhotoBitmapPool? = QMUIPhotoBitmapPool.shared
     ): BitmapCompressResult? {
         val applicationContext = context.applicationContext
+        bitmapPool?.registerComponentCallbacks(applicationContext)
         val options = BitmapFactory.Options()
         options.inJustDecodeBounds = true
         var inputStream = originProvider(applicationContext) ?: return null
@@ -117,22 +125,77 @@ object QMUIPhotoHelper {
             }
         }
         options.inJustDecodeBounds = false
+        if (bitmapPool != null && imageWidth > 0 && imageHeight > 0) {
+            val sampleSize = options.inSampleSize.coerceAtLeast(1)
+            options.inMutable = true
+            options.inBitmap = bitmapPool.getForDecode(imageWidth / sampleSize, imageHeight / sampleSize)
+        }
         inputStream = originProvider(applicationContext) ?: return null
-        val bitmap = inputStream.use {
-            BitmapFactory.decodeStream(it, null, options)
+        val bitmap = try {
+            inputStream.use {
+                BitmapFactory.decodeStream(it, null, options)
+            }
+        } catch (e: IllegalArgumentException) {
+            // the reused bitmap does not match, decode without it.
+            val inBitmap = options.inBitmap ?: throw e
+            options.inBitmap = null
+            bitmapPool?.put(inBitmap)
+            inputStream = originProvider(applicationContext) ?: return null
+            inputStream.use {
+                BitmapFactory.decodeStream(it, null, options)
+            }
         } ?: return object : BitmapCompressResult(compressFormat, -1, -1, -1) {
             override fun inputStream(): InputStream? {
                 return originProvider(applicationContext)
             }
 
         }
+        bitmapPool?.charge(bitmap)
         return bitmap.compressByShortEdgeWidthAndByteSize(
             context,
             shortEdgeMaxWidth,
             byteMaxSizeStrategy,
             canUseMemoryStorage,
             compressFormat,
-            compressQuality
-        )
+            compressQuality,
+            bitmapPool
+        ).also {
+            // the decoded bitmap is only used for compressing
+            bitmapPool?.put(bitmap)
+        }
+    }
+
+    /**
+     * compress the photos in parallel, at most [parallelism] photos are decoded and encoded at the same time
+     * to bound the memory usage. The results are in the same order as [originProviders].
+     */
+    suspend fun compressBatchByShortEdgeWidthAndByteSize(
+        context: Context,
+        originProviders: List<(Context) -> InputStream?>,
+        parallelism: Int = 2,
+        shortEdgeMaxWidth: Int = 1200,
+        byteMaxSizeStrategy: (Bitmap) -> Int = DefaultBitmapCompressMaxSizeStrategy,
+        canUseMemoryStorage: (Bitmap) -> Boolean = DefaultBitmapCompressCanUseMemoryStorage,
+        compressFormat: Bitmap.CompressFormat = Bitmap.CompressFormat.JPEG,
+        compressQuality: Int = 80,
+        bitmapPool: QMUIPhotoBitmapPool? = QMUIPhotoBitmapPool.shared
+    ): List<BitmapCompressResult?> = coroutineScope {
+        val permits = Semaphore(parallelism.coerceAtLeast(1))
+        originProviders.map { originProvider ->
+            async(Dispatchers.IO) {
+                permits.withPermit {
+                    compressByShortEdgeWidthAndByteSize(
+                        context,
+                        originProvider,
+                        shortEdgeMaxWidth,
+                        byteMaxSizeStrategy,
+                        canUseMemoryStorage,
+                        compressFormat,
+                        compressQuality,
+                        bitmapPool
+                    )
+                }
+            }
+        }.awaitAll()
     }
-}
\ No newline at end of file
+}
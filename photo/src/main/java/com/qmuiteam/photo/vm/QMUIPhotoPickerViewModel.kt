@@ -1,6 +1,7 @@
 package com.qmuiteam.photo.vm
 
 import android.app.Application
+import android.graphics.Bitmap
 import android.net.Uri
 import androidx.annotation.Keep
 import androidx.compose.foundation.lazy.LazyListState
@@ -11,11 +12,13 @@ import com.qmuiteam.compose.core.helper.LogTag
 import com.qmuiteam.compose.core.helper.QMUILog
 import com.qmuiteam.photo.activity.*
 import com.qmuiteam.photo.data.*
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.withContext
 import java.util.ArrayList
 
 class QMUIPhotoPickerViewModel @Keep constructor(
@@ -52,6 +55,8 @@ class QMUIPhotoPickerViewModel @Keep constructor(
     private val _isOriginOpenFlow = MutableStateFlow(false)
     val isOriginOpenFlow = _isOriginOpenFlow.asStateFlow()
 
+    private val _editResultMap = mutableMapOf<Long, Bitmap>()
+
     init {
         val photoProviderFactoryClsName =
             state.get<String>(QMUI_PHOTO_PROVIDER_FACTORY) ?: throw RuntimeException("no QMUIMediaPhotoProviderFactory is provided.")
@@ -71,51 +76,87 @@ class QMUIPhotoPickerViewModel @Keep constructor(
         _photoPickerDataFlow.value = QMUIPhotoPickerData(QMUIPhotoPickerLoadState.dataLoading, null)
         viewModelScope.launch {
             try {
-                val data = withContext(Dispatchers.IO) {
-                    dataProvider.provide(application, supportedMimeTypes).map { bucket ->
-                        QMUIMediaPhotoBucketVO(bucket.id, bucket.name, bucket.list.map {
-                            QMUIMediaPhotoVO(it, photoProviderFactory.factory(it))
-                        })
-                    }
-                }
-                val pickedItems = state.get<ArrayList<Uri>>(QMUI_PHOTO_PICKED_ITEMS)
-                if(pickedItems != null){
+                // reuse the vo between emissions, so the photo providers are kept for the same model.
+                val voCache = hashMapOf<Long, QMUIMediaPhotoVO>()
+                var pendingPickedItems = state.get<ArrayList<Uri>>(QMUI_PHOTO_PICKED_ITEMS)
+                if (pendingPickedItems != null) {
                     state.set(QMUI_PHOTO_PICKED_ITEMS, null)
-                    val map = mutableMapOf<Uri, Long>()
                     _pickedMap.clear()
-                    data.find { it.id == QMUIMediaPhotoBucketAllId}?.list?.let {  list ->
-                        for(element in list){
-                            if(pickedItems.find { it == element.model.uri } != null) {
-                                _pickedMap[element.model.id] = element
-                                map[element.model.uri] = element.model.id
-                            }
-                            if(map.size == pickedItems.size){
-                                break
-                            }
+                    _pickedListFlow.value = emptyList()
+                    _pickedCountFlow.value = 0
+                }
+                var latest: List<QMUIMediaPhotoBucketVO>? = null
+                dataProvider.provideFlow(application, supportedMimeTypes)
+                    .map { buckets ->
+                        buckets.map { bucket ->
+                            QMUIMediaPhotoBucketVO(bucket.id, bucket.name, bucket.list.map {
+                                voCache.getOrPut(it.id) { QMUIMediaPhotoVO(it, photoProviderFactory.factory(it)) }
+                            })
                         }
-
                     }
-                    // keep the order.
-                    val list = pickedItems.mapNotNull {
-                        map[it]
+                    .flowOn(Dispatchers.IO)
+                    .collect { data ->
+                        pendingPickedItems?.let {
+                            pendingPickedItems = restorePickedItems(it, data)
+                        }
+                        latest = data
+                        // the provider may emit a partial page first, only the end of the flow means all data is loaded.
+                        _photoPickerDataFlow.value = QMUIPhotoPickerData(QMUIPhotoPickerLoadState.dataLoadingMore, data)
                     }
-                    _pickedListFlow.value = list
-                    _pickedCountFlow.value = list.size
-                }
-
-                _photoPickerDataFlow.value = QMUIPhotoPickerData(QMUIPhotoPickerLoadState.dataLoaded, data)
+                _photoPickerDataFlow.value = QMUIPhotoPickerData(QMUIPhotoPickerLoadState.dataLoaded, latest)
             } catch (e: Throwable) {
+                if (e is CancellationException) {
+                    throw e
+                }
                 _photoPickerDataFlow.value = QMUIPhotoPickerData(QMUIPhotoPickerLoadState.dataLoaded, null, e)
             }
         }
     }
 
+    /**
+     * @return the items that are not found in [data] yet.
+     */
+    private fun restorePickedItems(pickedItems: List<Uri>, data: List<QMUIMediaPhotoBucketVO>): List<Uri>? {
+        val list = data.find { it.id == QMUIMediaPhotoBucketAllId }?.list ?: return pickedItems
+        val found = mutableMapOf<Uri, QMUIMediaPhotoVO>()
+        val pickedSet = pickedItems.toHashSet()
+        for (element in list) {
+            if (pickedSet.contains(element.model.uri)) {
+                found[element.model.uri] = element
+            }
+            if (found.size == pickedItems.size) {
+                break
+            }
+        }
+        if (found.isEmpty()) {
+            return pickedItems
+        }
+        // keep the order.
+        val pickedList = arrayListOf<Long>()
+        pickedList.addAll(_pickedListFlow.value)
+        val remain = arrayListOf<Uri>()
+        for (uri in pickedItems) {
+            val vo = found[uri]
+            if (vo == null) {
+                remain.add(uri)
+            } else if (!pickedList.contains(vo.model.id)) {
+                _pickedMap[vo.model.id] = vo
+                pickedList.add(vo.model.id)
+            }
+        }
+        _pickedListFlow.value = pickedList
+        _pickedCountFlow.value = pickedList.size
+        return remain.ifEmpty { null }
+    }
+
     fun toggleOrigin(toOpen: Boolean) {
         _isOriginOpenFlow.value = toOpen
     }
 
     fun togglePick(item: QMUIMediaPhotoVO) {
-        if (_photoPickerDataFlow.value.state != QMUIPhotoPickerLoadState.dataLoaded) {
+        // the picked items are kept by id and the vo is reused between emissions, so picking is allowed while loading more.
+        val state = _photoPickerDataFlow.value.state
+        if (state != QMUIPhotoPickerLoadState.dataLoaded && state != QMUIPhotoPickerLoadState.dataLoadingMore) {
             QMUILog.w(TAG, "pick when data is not finish loaded, please check why this method called here?")
             return
         }
@@ -138,6 +179,17 @@ class QMUIPhotoPickerViewModel @Keep constructor(
         }
     }
 
+    fun putEditResult(id: Long, bitmap: Bitmap) {
+        _editResultMap[id] = bitmap
+    }
+
+    /**
+     * @return the bitmap exported by the editor for the photo with [id], or null if it is not edited.
+     */
+    fun getEditResult(id: Long): Bitmap? {
+        return _editResultMap[id]
+    }
+
     fun getPickedVOList(): List<QMUIMediaPhotoVO>{
         return _pickedListFlow.value.mapNotNull { id ->
             _pickedMap[id]
@@ -169,7 +221,12 @@ class QMUIPhotoPickerEditScene(
 
 
 enum class QMUIPhotoPickerLoadState {
-    permissionChecking, permissionDenied, dataLoading, dataLoaded
+    permissionChecking, permissionDenied, dataLoading,
+    /**
+     * part of the data is loaded and can be shown and picked, but the buckets are not complete yet.
+     */
+    dataLoadingMore,
+    dataLoaded
 }
 
 class QMUIPhotoPickerData(
@@ -113,7 +113,11 @@ class RecyclerExposureEffect(
 }
 
 
+// bumped when the exposure config of any view group changes, the cached effect lists are out of date then
+internal var exposureEffectConfigVersion = 0
+
 internal class ExposureEffectList(
     val container: ViewGroup,
-    val effectList: List<ExposureEffect>
+    val effectList: List<ExposureEffect>,
+    val configVersion: Int = exposureEffectConfigVersion
 )
\ No newline at end of file
@@ -1,14 +1,16 @@
 package com.qmuiteam.qmui.exposure
 
+import android.graphics.Rect
+import android.os.SystemClock
 import android.view.View
 import android.view.ViewGroup
 import android.view.ViewParent
-import android.view.ViewTreeObserver
 import android.widget.AbsListView
 import androidx.recyclerview.widget.RecyclerView
 import androidx.viewpager.widget.ViewPager
 import com.qmuiteam.qmui.R
 import com.qmuiteam.qmui.kotlin.debounceRun
+import com.qmuiteam.qmui.util.QMUIViewHelper
 import com.qmuiteam.qmui.widget.tab.QMUIBasicTabSegment
 
 /**
@@ -20,6 +22,7 @@ import com.qmuiteam.qmui.widget.tab.QMUIBasicTabSegment
  *        onBindViewHolder 时 bindExposure(Exposure)
  *     d. 有自定义 View 复用逻辑的容器，同 c, 但 ViewGroup 需要调用 setToRecyclerContainer()
  *     e. 如果子 View 需要在父 View 已曝光的前提下才能认为是曝光， 那么父容器需要调用 setSelfExposedWhenDescendantExposed()
+ *     f. 如果曝光后的处理比较耗时（例如上报），可以对 container 调用 setExposureSink(...)，曝光事件会批量在后台线程交付
  *
  *  2. Exposure 类
  *     曝光所用的数据类，使用者需要自定义，框架通过 same(Exposure) 判断数据是否变更而觉得是否需要重新曝光， RecyclerView 复用排重也依赖于它
@@ -68,50 +71,41 @@ fun View.registerExposure(
     if(attachListener != null){
         return
     }
-    attachListener = object : View.OnAttachStateChangeListener {
-        private val onGlobalLayoutListener = ViewTreeObserver.OnGlobalLayoutListener {
-            checkExposure(holdTime, debounceTimeout, containerProvider, exposureChecker)
-        }
-
-        private val onScrollListener = ViewTreeObserver.OnScrollChangedListener {
-            checkExposure(holdTime, debounceTimeout, containerProvider, exposureChecker)
-        }
+    attachListener = ExposureAttachListener(
+        ExposureTrackItem(this, holdTime, debounceTimeout, exposureChecker),
+        containerProvider
+    )
+    setTag(R.id.qmui_exposure_register, attachListener)
+    addOnAttachStateChangeListener(attachListener)
+    if(isAttachedToWindow){
+        attachListener.onViewAttachedToWindow(this)
+    }
+}
 
-        private val customTriggerListener = CustomExposureTriggerListener {
-            checkExposure(holdTime, debounceTimeout, containerProvider, exposureChecker)
-        }
+/**
+ * 曝光 View 不再各自向 ViewTreeObserver 注册监听，而是加入 container 对应的 [ExposureTracker] 统一检查
+ */
+internal class ExposureAttachListener(
+    val item: ExposureTrackItem,
+    private val containerProvider: ExposureContainerProvider
+) : View.OnAttachStateChangeListener {
 
-        override fun onViewAttachedToWindow(v: View?) {
-            checkExposure(holdTime, debounceTimeout, containerProvider, exposureChecker)
-            viewTreeObserver.addOnGlobalLayoutListener(onGlobalLayoutListener)
-            viewTreeObserver.addOnScrollChangedListener(onScrollListener)
-            containerProvider.provide(this@registerExposure)?.let { container ->
-                var exposureCheck = container.getTag(R.id.qmui_exposure_custom_check_trigger) as? CustomExposureTrigger
-                if(exposureCheck == null){
-                    exposureCheck = CustomExposureTrigger().also {
-                        container.setTag(R.id.qmui_exposure_custom_check_trigger, it)
-                    }
-                }
-                exposureCheck.addListener(customTriggerListener)
-            }
-        }
+    var tracker: ExposureTracker? = null
+        private set
 
-        override fun onViewDetachedFromWindow(v: View?) {
-            viewTreeObserver.removeOnGlobalLayoutListener(onGlobalLayoutListener)
-            viewTreeObserver.removeOnScrollChangedListener(onScrollListener)
-            containerProvider.provide(this@registerExposure)?.let { container ->
-                (container.getTag(R.id.qmui_exposure_custom_check_trigger) as? CustomExposureTrigger)?.removeListener(customTriggerListener)
-            }
-            clearExposureHolder()
-            clearExposureDebounce()
-            doUnExpose()
+    override fun onViewAttachedToWindow(v: View?) {
+        val container = containerProvider.provide(item.view) ?: return
+        tracker = ExposureTracker.obtain(container).also {
+            it.track(item)
         }
-
     }
-    setTag(R.id.qmui_exposure_register, attachListener)
-    addOnAttachStateChangeListener(attachListener)
-    if(isAttachedToWindow){
-        attachListener.onViewAttachedToWindow(this)
+
+    override fun onViewDetachedFromWindow(v: View?) {
+        tracker?.untrack(item)
+        tracker = null
+        item.view.clearExposureHolder()
+        item.view.clearExposureDebounce()
+        item.view.doUnExpose()
     }
 }
 
@@ -135,6 +129,7 @@ fun View.isInExposure(): Boolean {
 
 fun View.setToRecyclerContainer() {
     setTag(R.id.qmui_exposure_is_recycler_container, true)
+    exposureEffectConfigVersion++
 }
 
 fun ViewGroup.setSelfExposedWhenDescendantExposed(need: Boolean) {
@@ -143,11 +138,13 @@ fun ViewGroup.setSelfExposedWhenDescendantExposed(need: Boolean) {
     }else{
         setTag(R.id.qmui_exposure_parent_expose_request, null)
     }
+    exposureEffectConfigVersion++
 
 }
 
 fun ViewGroup.customConfigRecyclerExposureEffect(effect: RecyclerExposureEffect) {
     setTag(R.id.qmui_exposure_recycler_collection, effect)
+    exposureEffectConfigVersion++
 }
 
 fun View.triggerCustomExposureChecker(
@@ -185,6 +182,14 @@ fun View.checkExposure(
     containerProvider: ExposureContainerProvider = DefaultExposureContainerProvider,
     exposureChecker: ExposureChecker = fullExposureChecker,
 ) {
+    val attachListener = getTag(R.id.qmui_exposure_register) as? ExposureAttachListener
+    if (attachListener != null) {
+        val tracker = attachListener.tracker
+        if (tracker != null) {
+            tracker.requestCheck(attachListener.item, SystemClock.uptimeMillis())
+            return
+        }
+    }
     val holderRunnable = getTag(R.id.qmui_exposure_holder) as? Runnable
     if (holderRunnable != null) {
         return
@@ -196,19 +201,7 @@ fun View.checkExposure(
             if (!isInExposure || checkIsExposureDataChanged()) {
                 val runnable = Runnable {
                     setTag(R.id.qmui_exposure_holder, null)
-                    if (checkIsExposure(container, exposureChecker)) {
-                        val data = getTag(R.id.qmui_exposure_data) as? Exposure ?: return@Runnable
-                        val last = getTag(R.id.qmui_exposure_last_data) as? Exposure
-                        val type = when {
-                            last == null -> ExposureType.first
-                            !last.same(data) -> ExposureType.dataChange
-                            else -> ExposureType.repeat
-                        }
-                        if (doExpose(container, data, last, type)) {
-                            setTag(R.id.qmui_exposure_ing, true)
-                            setTag(R.id.qmui_exposure_last_data, data)
-                        }
-                    }
+                    exposeIfStillVisible(container, exposureChecker)
                 }.also {
                     setTag(R.id.qmui_exposure_holder, it)
                 }
@@ -221,13 +214,32 @@ fun View.checkExposure(
     }
 }
 
-private fun View.checkIsExposureDataChanged(): Boolean {
+internal fun View.exposeIfStillVisible(
+    container: ViewGroup,
+    exposureChecker: ExposureChecker
+) {
+    if (checkIsExposure(container, exposureChecker)) {
+        val data = getTag(R.id.qmui_exposure_data) as? Exposure ?: return
+        val last = getTag(R.id.qmui_exposure_last_data) as? Exposure
+        val type = when {
+            last == null -> ExposureType.first
+            !last.same(data) -> ExposureType.dataChange
+            else -> ExposureType.repeat
+        }
+        if (doExpose(container, data, last, type)) {
+            setTag(R.id.qmui_exposure_ing, true)
+            setTag(R.id.qmui_exposure_last_data, data)
+        }
+    }
+}
+
+internal fun View.checkIsExposureDataChanged(): Boolean {
     val data = getTag(R.id.qmui_exposure_data) as? Exposure ?: return false
     val last = getTag(R.id.qmui_exposure_last_data) as? Exposure
     return last == null || !last.same(data)
 }
 
-private fun View.checkIsExposure(
+internal fun View.checkIsExposure(
     container: ViewGroup,
     exposureChecker: ExposureChecker = fullExposureChecker
 ): Boolean {
@@ -258,20 +270,53 @@ internal fun View.doExpose(
     lastExposure: Exposure?,
     exposureType: ExposureType
 ): Boolean {
-    var p = parent as? ViewGroup
-    val exposureList = mutableListOf<ExposureEffect>()
+    val effectList = exposureEffectListOf(container)
+    val effects = effectList.effectList
     var effectResult = EffectResult.pass
+    var evaluatedCount = 0
+    for (i in effects.indices) {
+        evaluatedCount++
+        val ret = effects[i].doBeforeExpose(this, container, exposure, lastExposure, exposureType)
+        if (ret != EffectResult.pass) {
+            effectResult = ret
+            break
+        }
+    }
+    setTag(R.id.qmui_exposure_effect_list, effectList)
+    setTag(R.id.qmui_exposure_effect_count, evaluatedCount)
+    if (effectResult == EffectResult.pass) {
+        exposure.expose(this, exposureType)
+        container.exposureEventBatcher()?.offer(
+            ExposureEvent(
+                ExposureAction.expose, exposure, exposureType,
+                SystemClock.elapsedRealtime(), visibleRatioInContainer(container)
+            )
+        )
+        effectResult = EffectResult.handled
+    }
+    return effectResult == EffectResult.handled
+}
+
+/**
+ * the effect chain only depends on the ancestors, so it's cached by the parent in the tracker of the container
+ */
+private fun View.exposureEffectListOf(container: ViewGroup): ExposureEffectList {
+    val directParent = parent as? ViewGroup
+    val tracker = container.getTag(R.id.qmui_exposure_tracker) as? ExposureTracker
+    if (directParent != null && tracker != null) {
+        val cached = tracker.getCachedEffectList(directParent)
+        if (cached != null) {
+            return cached
+        }
+    }
+    var p = directParent
+    val exposureList = mutableListOf<ExposureEffect>()
     while (p != null && p != container) {
         val parentAlready = p.getTag(R.id.qmui_exposure_parent_expose_request) as? ParentExposedRequestExposureEffect
         if (parentAlready != null) {
             exposureList.add(parentAlready)
-            val ret = parentAlready.doBeforeExpose(this, container, exposure, lastExposure, exposureType)
-            if (ret != EffectResult.pass) {
-                effectResult = ret
-                break
-            }
         }
-        if (parent == p &&
+        if (directParent == p &&
             (p is RecyclerView ||
                     p is AbsListView ||
                     p is QMUIBasicTabSegment ||
@@ -284,42 +329,50 @@ internal fun View.doExpose(
                 p.setTag(R.id.qmui_exposure_recycler_collection, recyclerEffect)
             }
             exposureList.add(recyclerEffect)
-            val ret = recyclerEffect.doBeforeExpose(this, container, exposure, lastExposure, exposureType)
-            if (ret != EffectResult.pass) {
-                effectResult = ret
-                break
-            }
         }
 
         val customEffect = p.getTag(R.id.qmui_exposure_custom_effect) as? ExposureEffect
         if (customEffect != null) {
             exposureList.add(customEffect)
-            val ret = customEffect.doBeforeExpose(this, container, exposure, lastExposure, exposureType)
-            if (ret != EffectResult.pass) {
-                effectResult = ret
-                break
-            }
         }
 
         p = p.parent as? ViewGroup
     }
-    setTag(R.id.qmui_exposure_effect_list, ExposureEffectList(container, exposureList))
-    if (effectResult == EffectResult.pass) {
-        exposure.expose(this, exposureType)
-        effectResult = EffectResult.handled
+    val effectList = ExposureEffectList(container, exposureList)
+    if (directParent != null) {
+        tracker?.putCachedEffectList(directParent, effectList)
     }
-    return effectResult == EffectResult.handled
+    return effectList
 }
 
+private fun View.visibleRatioInContainer(container: ViewGroup): Float {
+    if (width <= 0 || height <= 0 || !defaultCanExpose()) {
+        return 0f
+    }
+    if (!QMUIViewHelper.getDescendantVisibleRect(container, this, exposureRatioRect)) {
+        return 0f
+    }
+    return (exposureRatioRect.width() * exposureRatioRect.height() * 1f) / (width * height)
+}
+
+private val exposureRatioRect = Rect()
+
 internal fun View.doUnExpose() {
     if (isInExposure()) {
         setTag(R.id.qmui_exposure_ing, false)
         val exposure = getTag(R.id.qmui_exposure_data) as? Exposure ?: return
         (getTag(R.id.qmui_exposure_effect_list) as? ExposureEffectList)?.let {
-            it.effectList.forEach { effect ->
-                effect.doAfterUnExpose(this, it.container, exposure)
+            val effects = it.effectList
+            val count = minOf(getTag(R.id.qmui_exposure_effect_count) as? Int ?: effects.size, effects.size)
+            for (i in 0 until count) {
+                effects[i].doAfterUnExpose(this, it.container, exposure)
             }
+            it.container.exposureEventBatcher()?.offer(
+                ExposureEvent(
+                    ExposureAction.unExpose, exposure, null,
+                    SystemClock.elapsedRealtime(), visibleRatioInContainer(it.container)
+                )
+            )
         }
     }
 }
-
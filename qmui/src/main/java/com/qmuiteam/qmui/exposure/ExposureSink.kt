@@ -0,0 +1,97 @@
+package com.qmuiteam.qmui.exposure
+
+import android.view.Choreographer
+import android.view.ViewGroup
+import com.qmuiteam.qmui.R
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+
+enum class ExposureAction {
+    expose, unExpose
+}
+
+/**
+ * @property type null for [ExposureAction.unExpose]
+ * @property timestamp the time of the event, in SystemClock.elapsedRealtime()
+ * @property visibleRatio the visible area ratio of the view in the container when the event happens
+ */
+class ExposureEvent(
+    val action: ExposureAction,
+    val exposure: Exposure,
+    val type: ExposureType?,
+    val timestamp: Long,
+    val visibleRatio: Float
+)
+
+fun interface ExposureSink {
+    /**
+     * called on the executor given by [setExposureSink], the events are in the order they happen.
+     */
+    fun consume(events: List<ExposureEvent>)
+}
+
+val defaultExposureSinkExecutor: Executor by lazy {
+    Executors.newSingleThreadExecutor {
+        Thread(it, "QMUIExposureSink")
+    }
+}
+
+/**
+ * 为 container 内的曝光设置 sink：曝光/取消曝光事件在主线程只做收集，每帧或攒够 maxBatchSize 个后批量交给 sink 在 executor 上处理，
+ * 使用者可以把序列化、上报等耗时操作放到 sink 里，而不是在 [Exposure.expose] 中执行
+ *
+ * @param sink null 表示移除，未交付的事件会先交付给原来的 sink
+ */
+fun ViewGroup.setExposureSink(
+    sink: ExposureSink?,
+    maxBatchSize: Int = 32,
+    executor: Executor = defaultExposureSinkExecutor
+) {
+    (getTag(R.id.qmui_exposure_sink) as? ExposureEventBatcher)?.flush()
+    setTag(R.id.qmui_exposure_sink, sink?.let { ExposureEventBatcher(it, maxBatchSize, executor) })
+}
+
+internal fun ViewGroup.exposureEventBatcher(): ExposureEventBatcher? {
+    return getTag(R.id.qmui_exposure_sink) as? ExposureEventBatcher
+}
+
+internal class ExposureEventBatcher(
+    private val sink: ExposureSink,
+    maxBatchSize: Int,
+    private val executor: Executor
+) {
+    private val maxBatchSize = maxBatchSize.coerceAtLeast(1)
+    private var buffer = ArrayList<ExposureEvent>(this.maxBatchSize)
+    private var isFrameScheduled = false
+
+    private val frameCallback = Choreographer.FrameCallback {
+        isFrameScheduled = false
+        flush()
+    }
+
+    fun offer(event: ExposureEvent) {
+        buffer.add(event)
+        if (buffer.size >= maxBatchSize) {
+            flush()
+        } else if (!isFrameScheduled) {
+            isFrameScheduled = true
+            Choreographer.getInstance().postFrameCallback(frameCallback)
+        }
+    }
+
+    fun flush() {
+        if (isFrameScheduled) {
+            isFrameScheduled = false
+            Choreographer.getInstance().removeFrameCallback(frameCallback)
+        }
+        if (buffer.isEmpty()) {
+            return
+        }
+        // the buffer is handed over to the consumer, so it's never touched by the main thread again
+        val batch = buffer
+        buffer = ArrayList(maxBatchSize)
+        executor.execute {
+            sink.consume(batch)
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.qmuiteam.qmui.exposure
+
+import android.os.SystemClock
+import android.view.View
+import android.view.ViewGroup
+import android.view.ViewTreeObserver
+import com.qmuiteam.qmui.R
+
+internal class ExposureTrackItem(
+    val view: View,
+    val holdTime: Long,
+    val debounceTimeout: Long,
+    val exposureChecker: ExposureChecker
+) {
+    // 0 means not scheduled
+    var debounceAt = 0L
+    var holdAt = 0L
+    // the tick of the timing wheel the item is put in, -1 means not in the wheel
+    var scheduledTick = -1L
+    var isTracking = false
+
+    // kept in the tag of qmui_exposure_holder while holding, so that the holding can be finished in advance
+    val holdRunner = Runnable {
+        ExposureTracker.of(view)?.finishHold(this)
+    }
+
+    fun nextDeadline(): Long {
+        return when {
+            debounceAt == 0L -> holdAt
+            holdAt == 0L -> debounceAt
+            else -> minOf(debounceAt, holdAt)
+        }
+    }
+}
+
+/**
+ * 一个 container 内所有曝光 View 共用的 tracker：
+ * 1. container 所在的 ViewTreeObserver 上只注册一份 layout/scroll 监听，同一帧内的多次触发只处理一次
+ * 2. debounce 与 hold 的计时统一由 [ExposureTimingWheel] 驱动，而不是每个 View 各自 postDelayed
+ * 3. 同一个 tick 里到期的 View 在一次遍历中完成可见性检查
+ */
+internal class ExposureTracker private constructor(val container: ViewGroup) {
+
+    companion object {
+        fun obtain(container: ViewGroup): ExposureTracker {
+            var tracker = container.getTag(R.id.qmui_exposure_tracker) as? ExposureTracker
+            if (tracker == null) {
+                tracker = ExposureTracker(container)
+                container.setTag(R.id.qmui_exposure_tracker, tracker)
+            }
+            return tracker
+        }
+
+        fun of(view: View): ExposureTracker? {
+            return (view.getTag(R.id.qmui_exposure_register) as? ExposureAttachListener)?.tracker
+        }
+    }
+
+    private val items = ArrayList<ExposureTrackItem>()
+    private val wheel = ExposureTimingWheel(container) { now, due ->
+        onDue(now, due)
+    }
+    private var observer: ViewTreeObserver? = null
+    private var isSignalScheduled = false
+    // effect chains keyed by the parent of the exposure views, cleared when the hierarchy may be changed
+    private val effectListCache = HashMap<ViewGroup, ExposureEffectList>()
+
+    private val signalRunnable = Runnable {
+        isSignalScheduled = false
+        requestCheckAll()
+    }
+
+    private val onGlobalLayoutListener = ViewTreeObserver.OnGlobalLayoutListener {
+        effectListCache.clear()
+        scheduleSignal()
+    }
+
+    private val onScrollListener = ViewTreeObserver.OnScrollChangedListener {
+        scheduleSignal()
+    }
+
+    init {
+        var trigger = container.getTag(R.id.qmui_exposure_custom_check_trigger) as? CustomExposureTrigger
+        if (trigger == null) {
+            trigger = CustomExposureTrigger().also {
+                container.setTag(R.id.qmui_exposure_custom_check_trigger, it)
+            }
+        }
+        trigger.addListener {
+            requestCheckAll()
+        }
+    }
+
+    fun track(item: ExposureTrackItem) {
+        if (!item.isTracking) {
+            item.isTracking = true
+            items.add(item)
+        }
+        attachObserver()
+        requestCheck(item, SystemClock.uptimeMillis())
+    }
+
+    fun untrack(item: ExposureTrackItem) {
+        if (!item.isTracking) {
+            return
+        }
+        item.isTracking = false
+        items.remove(item)
+        item.debounceAt = 0
+        cancelHold(item)
+        if (items.isEmpty()) {
+            detachObserver()
+            container.removeCallbacks(signalRunnable)
+            isSignalScheduled = false
+            wheel.clear()
+            effectListCache.clear()
+        }
+    }
+
+    fun getCachedEffectList(parent: ViewGroup): ExposureEffectList? {
+        val cached = effectListCache[parent] ?: return null
+        if (cached.configVersion != exposureEffectConfigVersion) {
+            effectListCache.clear()
+            return null
+        }
+        return cached
+    }
+
+    fun putCachedEffectList(parent: ViewGroup, effectList: ExposureEffectList) {
+        effectListCache[parent] = effectList
+    }
+
+    fun requestCheck(item: ExposureTrackItem, now: Long) {
+        if (item.holdAt != 0L) {
+            // same as the holder runnable is pending, the check is ignored
+            return
+        }
+        item.debounceAt = now + item.debounceTimeout
+        wheel.schedule(item)
+    }
+
+    fun requestCheckAll() {
+        val now = SystemClock.uptimeMillis()
+        for (i in items.indices) {
+            requestCheck(items[i], now)
+        }
+    }
+
+    fun finishHold(item: ExposureTrackItem) {
+        if (item.holdAt == 0L) {
+            return
+        }
+        cancelHold(item)
+        item.view.exposeIfStillVisible(container, item.exposureChecker)
+    }
+
+    private fun cancelHold(item: ExposureTrackItem) {
+        item.holdAt = 0
+        if (item.view.getTag(R.id.qmui_exposure_holder) === item.holdRunner) {
+            item.view.setTag(R.id.qmui_exposure_holder, null)
+        }
+    }
+
+    private fun scheduleSignal() {
+        if (!isSignalScheduled) {
+            isSignalScheduled = true
+            container.postOnAnimation(signalRunnable)
+        }
+    }
+
+    private fun onDue(now: Long, due: List<ExposureTrackItem>) {
+        for (i in due.indices) {
+            val item = due[i]
+            if (!item.isTracking) {
+                continue
+            }
+            if (item.holdAt != 0L && item.holdAt <= now) {
+                finishHold(item)
+            }
+            if (item.debounceAt != 0L && item.debounceAt <= now) {
+                item.debounceAt = 0
+                check(item, now)
+            }
+            if (item.nextDeadline() != 0L) {
+                wheel.schedule(item)
+            }
+        }
+    }
+
+    private fun check(item: ExposureTrackItem, now: Long) {
+        val view = item.view
+        val isInExposure = view.isInExposure()
+        if (view.checkIsExposure(container, item.exposureChecker)) {
+            if (!isInExposure || view.checkIsExposureDataChanged()) {
+                item.holdAt = now + item.holdTime
+                view.setTag(R.id.qmui_exposure_holder, item.holdRunner)
+            }
+        } else if (isInExposure) {
+            view.doUnExpose()
+        }
+    }
+
+    private fun attachObserver() {
+        val vto = container.viewTreeObserver
+        if (vto === observer && vto.isAlive) {
+            return
+        }
+        detachObserver()
+        vto.addOnGlobalLayoutListener(onGlobalLayoutListener)
+        vto.addOnScrollChangedListener(onScrollListener)
+        observer = vto
+    }
+
+    private fun detachObserver() {
+        observer?.let {
+            if (it.isAlive) {
+                it.removeOnGlobalLayoutListener(onGlobalLayoutListener)
+                it.removeOnScrollChangedListener(onScrollListener)
+            }
+        }
+        observer = null
+    }
+}
+
+/**
+ * A hashed timing wheel driven by a single runnable posted to [host].
+ * Deadlines of an item can be moved later without touching the wheel, the item is moved
+ * to the slot of its new deadline when the old slot is ticked.
+ */
+internal class ExposureTimingWheel(
+    private val host: View,
+    private val tickDuration: Long = 50,
+    slotCount: Int = 64,
+    private val onDue: (now: Long, due: List<ExposureTrackItem>) -> Unit
+) {
+    private val slots = Array(slotCount) { ArrayList<ExposureTrackItem>() }
+    private val due = ArrayList<ExposureTrackItem>()
+    private val moved = ArrayList<ExposureTrackItem>()
+    private var lastTick = SystemClock.uptimeMillis() / tickDuration
+    private var postedTick = -1L
+    private var size = 0
+
+    private val tickRunnable = Runnable {
+        postedTick = -1
+        advance(SystemClock.uptimeMillis())
+    }
+
+    fun schedule(item: ExposureTrackItem) {
+        val deadline = item.nextDeadline()
+        if (deadline == 0L) {
+            return
+        }
+        val tick = maxOf(tickOf(deadline), lastTick + 1)
+        if (item.scheduledTick != -1L && item.scheduledTick <= tick) {
+            // it will be moved to the right slot when the current one is ticked
+            return
+        }
+        if (item.scheduledTick != -1L) {
+            slots[(item.scheduledTick % slots.size).toInt()].remove(item)
+            size--
+        }
+        item.scheduledTick = tick
+        slots[(tick % slots.size).toInt()].add(item)
+        size++
+        postTick(tick)
+    }
+
+    fun clear() {
+        slots.forEach { slot ->
+            slot.forEach { it.scheduledTick = -1 }
+            slot.clear()
+        }
+        size = 0
+        host.removeCallbacks(tickRunnable)
+        postedTick = -1
+    }
+
+    private fun tickOf(time: Long): Long {
+        return (time + tickDuration - 1) / tickDuration
+    }
+
+    private fun advance(now: Long) {
+        val nowTick = now / tickDuration
+        // no need to walk the wheel more than one round
+        val from = maxOf(lastTick + 1, nowTick - slots.size + 1)
+        lastTick = nowTick
+        for (tick in from..nowTick) {
+            val slot = slots[(tick % slots.size).toInt()]
+            val iterator = slot.iterator()
+            while (iterator.hasNext()) {
+                val item = iterator.next()
+                if (item.scheduledTick > nowTick) {
+                    continue
+                }
+                iterator.remove()
+                size--
+                item.scheduledTick = -1
+                if (item.nextDeadline() in 1..now) {
+                    due.add(item)
+                } else {
+                    moved.add(item)
+                }
+            }
+        }
+        for (i in moved.indices) {
+            schedule(moved[i])
+        }
+        moved.clear()
+        if (due.isNotEmpty()) {
+            onDue(now, due)
+            due.clear()
+        }
+        if (size > 0) {
+            postTick(nextScheduledTick())
+        }
+    }
+
+    private fun nextScheduledTick(): Long {
+        for (i in 1..slots.size) {
+            val tick = lastTick + i
+            val slot = slots[(tick % slots.size).toInt()]
+            for (j in slot.indices) {
+                if (slot[j].scheduledTick == tick) {
+                    return tick
+                }
+            }
+        }
+        // all the items are more than one round later
+        return lastTick + slots.size
+    }
+
+    private fun postTick(tick: Long) {
+        if (postedTick != -1L && postedTick <= tick) {
+            return
+        }
+        host.removeCallbacks(tickRunnable)
+        postedTick = tick
+        host.postDelayed(tickRunnable, maxOf(0, tick * tickDuration - SystemClock.uptimeMillis()))
+    }
+}
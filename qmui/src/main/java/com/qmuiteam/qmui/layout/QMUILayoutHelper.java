@@ -24,8 +24,6 @@ import android.graphics.Color;
 import android.graphics.Outline;
 import android.graphics.Paint;
 import android.graphics.Path;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffXfermode;
 import android.graphics.RectF;
 import android.os.Build;
 import android.util.AttributeSet;
@@ -36,6 +34,7 @@ import com.qmuiteam.qmui.R;
 import com.qmuiteam.qmui.util.QMUIResHelper;
 
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
 
 import androidx.annotation.ColorInt;
 import androidx.core.content.ContextCompat;
@@ -84,7 +83,6 @@ public class    QMUILayoutHelper implements IQMUILayout {
 
     // round
     private Paint mClipPaint;
-    private PorterDuffXfermode mMode;
     private int mRadius;
     private @IQMUILayout.HideRadiusSide int mHideRadiusSide = HIDE_RADIUS_SIDE_NONE;
     private float[] mRadiusArray;
@@ -96,6 +94,16 @@ public class    QMUILayoutHelper implements IQMUILayout {
     private WeakReference<View> mOwner;
     private boolean mIsOutlineExcludePadding = false;
     private Path mPath = new Path();
+    // the corners outside the round rect, used to fake the round corners with mOuterNormalColor
+    private Path mOuterNormalPath = new Path();
+    // mPath, mOuterNormalPath and mRadiusArray are rebuilt only when the size or radius config changes
+    private boolean mIsPathDirty = true;
+    private boolean mIsOuterNormalPathDirty = true;
+    private RectF mPathRect = new RectF();
+    private int mPathRadius;
+    private int mPathHideRadiusSide;
+    private int mPathWidth;
+    private int mPathHeight;
 
     // shadow
     private boolean mIsShowBorderOnlyBeforeL = true;
@@ -118,7 +126,6 @@ public class    QMUILayoutHelper implements IQMUILayout {
         mOwner = new WeakReference<>(owner);
         mBottomDividerColor = mTopDividerColor =
                 ContextCompat.getColor(context, R.color.qmui_config_color_separator);
-        mMode = new PorterDuffXfermode(PorterDuff.Mode.DST_OUT);
         mClipPaint = new Paint();
         mClipPaint.setAntiAlias(true);
         mShadowAlpha = QMUIResHelper.getAttrFloatValue(context, R.attr.qmui_general_shadow_alpha);
@@ -431,6 +438,7 @@ public class    QMUILayoutHelper implements IQMUILayout {
         mHideRadiusSide = hideRadiusSide;
 
         mShouldUseRadiusArray = isRadiusWithSideHidden();
+        mIsPathDirty = true;
         mShadowElevation = shadowElevation;
         mShadowAlpha = shadowAlpha;
         mShadowColor = shadowColor;
@@ -798,9 +806,54 @@ public class    QMUILayoutHelper implements IQMUILayout {
                     width- halfBorderWith, height - halfBorderWith);
         }
 
-        if(mShouldUseRadiusArray){
-            if(mRadiusArray == null){
+        ensurePath(radius, width, height);
+
+        if (needCheckFakeOuterNormalDraw) {
+            // draw the outer corners directly instead of clearing a round rect in an offscreen layer
+            ensureOuterNormalPath(width, height);
+            mClipPaint.setColor(mOuterNormalColor);
+            mClipPaint.setStyle(Paint.Style.FILL);
+            canvas.drawPath(mOuterNormalPath, mClipPaint);
+        }
+
+        if (needDrawBorder) {
+            mClipPaint.setColor(mBorderColor);
+            mClipPaint.setStrokeWidth(mBorderWidth);
+            mClipPaint.setStyle(Paint.Style.STROKE);
+            if (mShouldUseRadiusArray) {
+                canvas.drawPath(mPath, mClipPaint);
+            } else if (radius <= 0) {
+                canvas.drawRect(mBorderRect, mClipPaint);
+            } else {
+                canvas.drawRoundRect(mBorderRect, radius, radius, mClipPaint);
+            }
+        }
+        canvas.restore();
+    }
+
+    private void ensurePath(int radius, int width, int height) {
+        if (!mIsPathDirty && mPathRadius == radius && mPathHideRadiusSide == mHideRadiusSide
+                && mPathRect.equals(mBorderRect)) {
+            if (mPathWidth != width || mPathHeight != height) {
+                mPathWidth = width;
+                mPathHeight = height;
+                mIsOuterNormalPathDirty = true;
+            }
+            return;
+        }
+        mIsPathDirty = false;
+        mIsOuterNormalPathDirty = true;
+        mPathRadius = radius;
+        mPathHideRadiusSide = mHideRadiusSide;
+        mPathRect.set(mBorderRect);
+        mPathWidth = width;
+        mPathHeight = height;
+        mPath.reset();
+        if (mShouldUseRadiusArray) {
+            if (mRadiusArray == null) {
                 mRadiusArray = new float[8];
+            } else {
+                Arrays.fill(mRadiusArray, 0);
             }
             if (mHideRadiusSide == HIDE_RADIUS_SIDE_TOP) {
                 mRadiusArray[4] = radius;
@@ -823,43 +876,23 @@ public class    QMUILayoutHelper implements IQMUILayout {
                 mRadiusArray[4] = radius;
                 mRadiusArray[5] = radius;
             }
+            mPath.addRoundRect(mBorderRect, mRadiusArray, Path.Direction.CW);
+        } else if (radius <= 0) {
+            mPath.addRect(mBorderRect, Path.Direction.CW);
+        } else {
+            mPath.addRoundRect(mBorderRect, radius, radius, Path.Direction.CW);
         }
-
-        if (needCheckFakeOuterNormalDraw) {
-            int layerId = canvas.saveLayer(0, 0, width, height, null, Canvas.ALL_SAVE_FLAG);
-            canvas.drawColor(mOuterNormalColor);
-            mClipPaint.setColor(mOuterNormalColor);
-            mClipPaint.setStyle(Paint.Style.FILL);
-            mClipPaint.setXfermode(mMode);
-            if (!mShouldUseRadiusArray) {
-                canvas.drawRoundRect(mBorderRect, radius, radius, mClipPaint);
-            } else {
-                drawRoundRect(canvas, mBorderRect, mRadiusArray, mClipPaint);
-            }
-            mClipPaint.setXfermode(null);
-            canvas.restoreToCount(layerId);
-        }
-
-        if (needDrawBorder) {
-            mClipPaint.setColor(mBorderColor);
-            mClipPaint.setStrokeWidth(mBorderWidth);
-            mClipPaint.setStyle(Paint.Style.STROKE);
-            if (mShouldUseRadiusArray) {
-                drawRoundRect(canvas, mBorderRect, mRadiusArray, mClipPaint);
-            } else if (radius <= 0) {
-                canvas.drawRect(mBorderRect, mClipPaint);
-            } else {
-                canvas.drawRoundRect(mBorderRect, radius, radius, mClipPaint);
-            }
-        }
-        canvas.restore();
     }
 
-    private void drawRoundRect(Canvas canvas, RectF rect, float[] radiusArray, Paint paint) {
-        mPath.reset();
-        mPath.addRoundRect(rect, radiusArray, Path.Direction.CW);
-        canvas.drawPath(mPath, paint);
-
+    private void ensureOuterNormalPath(int width, int height) {
+        if (!mIsOuterNormalPathDirty) {
+            return;
+        }
+        mIsOuterNormalPathDirty = false;
+        mOuterNormalPath.reset();
+        mOuterNormalPath.setFillType(Path.FillType.EVEN_ODD);
+        mOuterNormalPath.addRect(0, 0, width, height, Path.Direction.CW);
+        mOuterNormalPath.addPath(mPath);
     }
 
     public static boolean useFeature() {
@@ -0,0 +1,34 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qmuiteam.qmui.qqface;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 可以提供完整表情表的 {@link IQMUIQQFaceManager}。
+ * <p>
+ * {@link QMUIQQFaceCompiler} 会用这份表构建一个 {@link QMUIQQFaceMatcher}，一次遍历即可完成
+ * [xx] 表情、SoftBank 表情以及任意长度的 Unicode 表情序列（ZWJ、肤色、国旗等）的匹配，
+ * 不再逐个字符调用 {@link #maybeEmoji(int)}、{@link #getQQfaceResource(CharSequence)} 等方法。
+ */
+public interface IQMUIQQFaceTableManager extends IQMUIQQFaceManager {
+
+    /**
+     * 将所有表情添加到 builder 中，只会在创建 {@link QMUIQQFaceCompiler} 时调用一次
+     */
+    void collectFaceTable(@NonNull QMUIQQFaceMatcher.Builder builder);
+}
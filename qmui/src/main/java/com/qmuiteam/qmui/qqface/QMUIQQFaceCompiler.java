@@ -20,8 +20,8 @@ import android.graphics.drawable.Drawable;
 import android.text.Spannable;
 import android.util.LruCache;
 
-import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.qmuiteam.qmui.span.QMUITouchableSpan;
 import com.qmuiteam.qmui.util.QMUILangHelper;
@@ -35,6 +35,10 @@ import java.util.Map;
 
 /**
  * {@link QMUIQQFaceView} 的内容解析器，将文本内容解析成 {@link QMUIQQFaceView} 想要的数据格式。
+ * <p>
+ * compile 是线程安全的，可以在后台线程（如 RecyclerView 预取、DiffUtil 回调）中预先解析，
+ * 再通过 {@link QMUIQQFaceView#setCompiledText(ElementList)} 设置给 View，此时要求
+ * {@link IQMUIQQFaceManager} 的实现也是线程安全的。
  *
  * @author cginechen
  * @date 2016-12-21
@@ -42,6 +46,7 @@ import java.util.Map;
 
 public class QMUIQQFaceCompiler {
     private static final int SPAN_COLUMN = 2;
+    private static final int DEFAULT_CACHE_MAX_TEXT_LENGTH = 16 * 1024;
     private static final Map<IQMUIQQFaceManager, QMUIQQFaceCompiler> sInstanceMap = new HashMap<>(4);
     private static IQMUIQQFaceManager sDefaultQQFaceManager = new QMUINoQQFaceManager();
 
@@ -49,29 +54,52 @@ public class QMUIQQFaceCompiler {
         sDefaultQQFaceManager = defaultQQFaceManager;
     }
 
-    private LruCache<CharSequence, ElementList> mCache;
+    private volatile LruCache<CharSequence, ElementList> mCache;
     private IQMUIQQFaceManager mQQFaceManager;
+    @Nullable
+    private final QMUIQQFaceMatcher mMatcher;
 
 
-    @MainThread
     public static QMUIQQFaceCompiler getDefaultInstance(){
         return getInstance(sDefaultQQFaceManager);
     }
 
-    @MainThread
     public static QMUIQQFaceCompiler getInstance(IQMUIQQFaceManager manager) {
-        QMUIQQFaceCompiler instance = sInstanceMap.get(manager);
-        if (instance != null) {
+        synchronized (sInstanceMap) {
+            QMUIQQFaceCompiler instance = sInstanceMap.get(manager);
+            if (instance != null) {
+                return instance;
+            }
+            instance = new QMUIQQFaceCompiler(manager);
+            sInstanceMap.put(manager, instance);
             return instance;
         }
-        instance = new QMUIQQFaceCompiler(manager);
-        sInstanceMap.put(manager, instance);
-        return instance;
+    }
+
+    /**
+     * 创建按文本总长度（而不是条目数）限制大小的缓存
+     *
+     * @param maxTextLength 缓存中所有文本的总长度上限
+     */
+    public static LruCache<CharSequence, ElementList> createCache(int maxTextLength) {
+        return new LruCache<CharSequence, ElementList>(maxTextLength) {
+            @Override
+            protected int sizeOf(CharSequence key, ElementList value) {
+                return Math.max(1, key.length());
+            }
+        };
     }
 
     private QMUIQQFaceCompiler(IQMUIQQFaceManager manager) {
-        mCache = new LruCache<>(30);
+        mCache = createCache(DEFAULT_CACHE_MAX_TEXT_LENGTH);
         mQQFaceManager = manager;
+        if (manager instanceof IQMUIQQFaceTableManager) {
+            QMUIQQFaceMatcher.Builder builder = new QMUIQQFaceMatcher.Builder();
+            ((IQMUIQQFaceTableManager) manager).collectFaceTable(builder);
+            mMatcher = builder.build();
+        } else {
+            mMatcher = null;
+        }
     }
 
     public int getSpecialBoundsMaxHeight() {
@@ -137,18 +165,27 @@ public class QMUIQQFaceCompiler {
             }
         }
 
-        ElementList elementList = mCache.get(text);
+        LruCache<CharSequence, ElementList> cache = mCache;
+        ElementList elementList = cache.get(text);
         if (!hasClickableSpans && elementList != null && start == elementList.getStart() && end == elementList.getEnd()) {
             return elementList;
         }
-        elementList = realCompile(text, start, end, spans, spanInfo);
+        if (mMatcher != null) {
+            elementList = matcherCompile(mMatcher, text, start, end, spans, spanInfo);
+        } else {
+            elementList = realCompile(text, start, end, spans, spanInfo);
+        }
+        elementList.mText = text;
         if(!hasClickableSpans && !inSpan){
-            mCache.put(text, elementList);
+            cache.put(text, elementList);
         }
         return elementList;
     }
 
-    public void setCache(LruCache<CharSequence, ElementList> cache) {
+    /**
+     * 可以通过 {@link #createCache(int)} 创建按文本长度计算大小的缓存
+     */
+    public void setCache(@NonNull LruCache<CharSequence, ElementList> cache) {
         mCache = cache;
     }
 
@@ -254,8 +291,8 @@ public class QMUIQQFaceCompiler {
                 if (mQQFaceManager.maybeEmoji(unicode)) {
                     icon = mQQFaceManager.getEmojiResource(unicode);
                 }
-                if (icon == 0 && start + skip < end) {
-                    int nextUnicode = Character.codePointAt(text, start + skip);
+                if (icon == 0 && index + skip < end) {
+                    int nextUnicode = Character.codePointAt(text, index + skip);
                     icon = mQQFaceManager.getDoubleUnicodeEmoji(unicode, nextUnicode);
                     if (icon != 0) {
                         skip += Character.charCount(nextUnicode);
@@ -279,6 +316,78 @@ public class QMUIQQFaceCompiler {
         return elementList;
     }
 
+    /**
+     * 使用 {@link QMUIQQFaceMatcher} 一次遍历完成所有表情的匹配
+     */
+    @SuppressWarnings("ConstantConditions")
+    private ElementList matcherCompile(QMUIQQFaceMatcher matcher, CharSequence text, int start, int end,
+                                       QMUITouchableSpan[] spans, int[] spanInfo) {
+        int size = text.length();
+        int nearSpanIndex = -1;
+        int nearSpanStart = Integer.MAX_VALUE;
+        int nearSpanEnd = nearSpanStart;
+        if (spans != null && spans.length > 0) {
+            nearSpanIndex = 0;
+            nearSpanStart = spanInfo[0];
+            nearSpanEnd = spanInfo[1];
+        }
+
+        ElementList elementList = new ElementList(start, end);
+        if (start > 0) {
+            elementList.add(Element.createTextElement(text.subSequence(0, start)));
+        }
+        int index = start, last = start;
+        while (index < end) {
+            if (index == nearSpanStart) {
+                if (index - last > 0) {
+                    elementList.add(Element.createTextElement(text.subSequence(last, index)));
+                }
+                elementList.add(Element.createTouchSpanElement(
+                        text.subSequence(nearSpanStart, nearSpanEnd), spans[nearSpanIndex], this));
+                index = last = nearSpanEnd;
+                nearSpanIndex++;
+                if (nearSpanIndex >= spans.length) {
+                    nearSpanStart = nearSpanEnd = Integer.MAX_VALUE;
+                } else {
+                    nearSpanStart = spanInfo[nearSpanIndex * SPAN_COLUMN];
+                    nearSpanEnd = spanInfo[nearSpanIndex * SPAN_COLUMN + 1];
+                }
+                continue;
+            }
+
+            if (text.charAt(index) == '\n') {
+                if (index - last > 0) {
+                    elementList.add(Element.createTextElement(text.subSequence(last, index)));
+                }
+                elementList.add(Element.createNextLineElement());
+                last = ++index;
+                continue;
+            }
+
+            // 表情不能跨越 span 的起始位置
+            long match = matcher.match(text, index, Math.min(end, nearSpanStart));
+            if (match == QMUIQQFaceMatcher.NO_MATCH) {
+                index += Character.charCount(Character.codePointAt(text, index));
+                continue;
+            }
+            if (last != index) {
+                elementList.add(Element.createTextElement(text.subSequence(last, index)));
+            }
+            int node = QMUIQQFaceMatcher.getMatchNode(match);
+            Drawable specialDrawable = matcher.getSpecialBoundsDrawable(node);
+            if (specialDrawable != null) {
+                elementList.add(Element.createSpeaicalBoundsDrawableElement(specialDrawable));
+            } else {
+                elementList.add(Element.createDrawableElement(matcher.getRes(node)));
+            }
+            index = last = QMUIQQFaceMatcher.getMatchEnd(match);
+        }
+        if (last < end) {
+            elementList.add(Element.createTextElement(text.subSequence(last, size)));
+        }
+        return elementList;
+    }
+
     public enum ElementType {
         TEXT,
         DRAWABLE,
@@ -359,6 +468,7 @@ public class QMUIQQFaceCompiler {
 
 
     public static class ElementList {
+        private CharSequence mText;
         private int mStart;
         private int mEnd;
         private int mQQFaceCount = 0;
@@ -371,6 +481,14 @@ public class QMUIQQFaceCompiler {
             mElements = new ArrayList<>();
         }
 
+        /**
+         * @return 被解析的原始文本，只有由 {@link QMUIQQFaceCompiler} 解析得到的 ElementList 才有值
+         */
+        @Nullable
+        public CharSequence getText() {
+            return mText;
+        }
+
         public int getStart() {
             return mStart;
         }
@@ -0,0 +1,215 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qmuiteam.qmui.qqface;
+
+import android.graphics.drawable.Drawable;
+import android.util.SparseIntArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * 由 {@link IQMUIQQFaceTableManager} 提供的表情表构建的字典树，以码点为边，
+ * [xx] 表情、SoftBank 表情与多码点 emoji 序列都在同一棵树中匹配。
+ * <p>
+ * 构建完成后不可变，{@link #match(CharSequence, int, int)} 不分配内存，可以在多线程中使用。
+ */
+public class QMUIQQFaceMatcher {
+    public static final long NO_MATCH = -1;
+
+    // 节点 i 的子节点边位于 [mFirstEdge[i], mFirstEdge[i] + mEdgeCount[i])，按码点升序排列
+    private final int[] mFirstEdge;
+    private final int[] mEdgeCount;
+    private final int[] mEdgeKeys;
+    private final int[] mEdgeTargets;
+    private final int[] mNodeRes;
+    private final Drawable[] mNodeSpecialDrawables;
+
+    private QMUIQQFaceMatcher(int[] firstEdge, int[] edgeCount, int[] edgeKeys, int[] edgeTargets,
+                              int[] nodeRes, Drawable[] nodeSpecialDrawables) {
+        mFirstEdge = firstEdge;
+        mEdgeCount = edgeCount;
+        mEdgeKeys = edgeKeys;
+        mEdgeTargets = edgeTargets;
+        mNodeRes = nodeRes;
+        mNodeSpecialDrawables = nodeSpecialDrawables;
+    }
+
+    /**
+     * 从 start 开始匹配最长的表情
+     *
+     * @return 没有匹配返回 {@link #NO_MATCH}，否则通过 {@link #getMatchEnd(long)}、
+     * {@link #getMatchNode(long)} 获取匹配的结束位置和节点
+     */
+    public long match(@NonNull CharSequence text, int start, int end) {
+        long result = NO_MATCH;
+        int node = 0;
+        int index = start;
+        while (index < end) {
+            int codePoint = Character.codePointAt(text, index);
+            node = findChild(node, codePoint);
+            if (node < 0) {
+                break;
+            }
+            index += Character.charCount(codePoint);
+            if (mNodeRes[node] != 0 || mNodeSpecialDrawables[node] != null) {
+                result = ((long) index << 32) | node;
+            }
+        }
+        return result;
+    }
+
+    public static int getMatchEnd(long match) {
+        return (int) (match >>> 32);
+    }
+
+    public static int getMatchNode(long match) {
+        return (int) match;
+    }
+
+    public int getRes(int node) {
+        return mNodeRes[node];
+    }
+
+    @Nullable
+    public Drawable getSpecialBoundsDrawable(int node) {
+        return mNodeSpecialDrawables[node];
+    }
+
+    private int findChild(int node, int codePoint) {
+        int low = mFirstEdge[node];
+        int high = low + mEdgeCount[node] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int key = mEdgeKeys[mid];
+            if (key < codePoint) {
+                low = mid + 1;
+            } else if (key > codePoint) {
+                high = mid - 1;
+            } else {
+                return mEdgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    public static class Builder {
+        private final ArrayList<SparseIntArray> mChildren = new ArrayList<>();
+        private final ArrayList<Integer> mRes = new ArrayList<>();
+        private final ArrayList<Drawable> mSpecialDrawables = new ArrayList<>();
+        private int mEdgeSize = 0;
+
+        public Builder() {
+            newNode();
+        }
+
+        /**
+         * @param text 以[开头和以]结尾的表情文本
+         */
+        public Builder addQQFace(@NonNull CharSequence text, int res) {
+            int node = insert(text);
+            mRes.set(node, res);
+            return this;
+        }
+
+        /**
+         * @param text 以[开头和以]结尾的表情文本
+         */
+        public Builder addSpecialBoundsDrawable(@NonNull CharSequence text, @NonNull Drawable drawable) {
+            int node = insert(text);
+            mSpecialDrawables.set(node, drawable);
+            return this;
+        }
+
+        public Builder addSoftbankEmoji(char c, int res) {
+            return addEmoji(new int[]{c}, res);
+        }
+
+        public Builder addEmoji(int codePoint, int res) {
+            return addEmoji(new int[]{codePoint}, res);
+        }
+
+        /**
+         * 添加多码点的表情，如国旗、ZWJ 序列、带肤色的表情
+         */
+        public Builder addEmoji(@NonNull int[] codePoints, int res) {
+            int node = 0;
+            for (int codePoint : codePoints) {
+                node = child(node, codePoint);
+            }
+            mRes.set(node, res);
+            return this;
+        }
+
+        private int insert(CharSequence text) {
+            int node = 0;
+            int index = 0;
+            while (index < text.length()) {
+                int codePoint = Character.codePointAt(text, index);
+                node = child(node, codePoint);
+                index += Character.charCount(codePoint);
+            }
+            return node;
+        }
+
+        private int child(int node, int codePoint) {
+            SparseIntArray children = mChildren.get(node);
+            int child = children.get(codePoint, -1);
+            if (child < 0) {
+                child = newNode();
+                children.put(codePoint, child);
+                mEdgeSize++;
+            }
+            return child;
+        }
+
+        private int newNode() {
+            mChildren.add(new SparseIntArray(2));
+            mRes.add(0);
+            mSpecialDrawables.add(null);
+            return mChildren.size() - 1;
+        }
+
+        public QMUIQQFaceMatcher build() {
+            int nodeSize = mChildren.size();
+            int[] firstEdge = new int[nodeSize];
+            int[] edgeCount = new int[nodeSize];
+            int[] edgeKeys = new int[mEdgeSize];
+            int[] edgeTargets = new int[mEdgeSize];
+            int[] nodeRes = new int[nodeSize];
+            Drawable[] nodeSpecialDrawables = new Drawable[nodeSize];
+            int edge = 0;
+            for (int i = 0; i < nodeSize; i++) {
+                // SparseIntArray keeps keys in ascending order
+                SparseIntArray children = mChildren.get(i);
+                firstEdge[i] = edge;
+                edgeCount[i] = children.size();
+                for (int j = 0; j < children.size(); j++) {
+                    edgeKeys[edge] = children.keyAt(j);
+                    edgeTargets[edge] = children.valueAt(j);
+                    edge++;
+                }
+                nodeRes[i] = mRes.get(i);
+                nodeSpecialDrawables[i] = mSpecialDrawables.get(i);
+            }
+            return new QMUIQQFaceMatcher(firstEdge, edgeCount, edgeKeys, edgeTargets,
+                    nodeRes, nodeSpecialDrawables);
+        }
+    }
+}
@@ -28,6 +28,7 @@ import android.graphics.drawable.Drawable;
 import android.text.TextPaint;
 import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.view.Gravity;
 import android.view.MotionEvent;
 import android.view.View;
@@ -82,6 +83,13 @@ public class QMUIQQFaceView extends View {
     private boolean mIsSingleLine = false;
     private int mLines = 0;
     private HashMap<QMUIQQFaceCompiler.Element, SpanInfo> mSpanInfos = new HashMap<>();
+    private final HashMap<QMUIQQFaceCompiler.Element, float[]> mTextWidthsCache = new HashMap<>();
+    private float mWidthsCacheTextSize;
+    private Typeface mWidthsCacheTypeface;
+    private float mWidthsCacheTextScaleX;
+    private float mWidthsCacheLetterSpacing;
+    private boolean mWidthsCacheFakeBold;
+    private final SparseArray<Drawable> mQQFaceDrawableCache = new SparseArray<>();
     private boolean mIsTouchDownInMoreText = false;
     private Rect mMoreHitRect = new Rect();
     private static final String mEllipsizeText = "...";
@@ -300,6 +308,7 @@ public class QMUIQQFaceView extends View {
         if (mTypeface != typeface) {
             mTypeface = typeface;
             needReCalculateFontHeight = true;
+            mNeedReCalculateLines = true;
             mPaint.setTypeface(typeface);
             requestLayout();
             invalidate();
@@ -521,6 +530,30 @@ public class QMUIQQFaceView extends View {
         setText(charSequence, true);
     }
 
+    /**
+     * 设置已经由 {@link QMUIQQFaceCompiler} 解析好的内容（例如在后台线程预先解析），此时不会再做任何解析。
+     * elementList 需要由 {@link QMUIQQFaceCompiler#compile(CharSequence)} 得到，以便拿到原始文本。
+     */
+    public void setCompiledText(@Nullable QMUIQQFaceCompiler.ElementList elementList) {
+        CharSequence text = elementList == null ? null : elementList.getText();
+        if (elementList == mElementList && QMUILangHelper.objectEquals(text, mOriginText)) {
+            return;
+        }
+        mOriginText = text;
+        setContentDescription(text);
+        mSpanInfos.clear();
+        mTextWidthsCache.clear();
+        if (elementList == null || QMUILangHelper.isNullOrEmpty(text)) {
+            mElementList = null;
+            requestLayout();
+            invalidate();
+            return;
+        }
+        mElementList = elementList;
+        collectSpanInfos();
+        onElementListChanged();
+    }
+
     private void setText(CharSequence charSequence, boolean compareOldText) {
         if (compareOldText && QMUILangHelper.objectEquals(charSequence, mOriginText)) {
             return;
@@ -533,6 +566,7 @@ public class QMUIQQFaceView extends View {
         }
 
         mSpanInfos.clear();
+        mTextWidthsCache.clear();
         if (QMUILangHelper.isNullOrEmpty(mOriginText)) {
             mElementList = null;
             requestLayout();
@@ -542,15 +576,7 @@ public class QMUIQQFaceView extends View {
 
         if (mOpenQQFace && mCompiler != null) {
             mElementList = mCompiler.compile(mOriginText);
-            List<QMUIQQFaceCompiler.Element> elements = mElementList.getElements();
-            if (elements != null) {
-                for (int i = 0; i < elements.size(); i++) {
-                    QMUIQQFaceCompiler.Element element = elements.get(i);
-                    if (element.getType() == QMUIQQFaceCompiler.ElementType.SPAN) {
-                        mSpanInfos.put(element, new SpanInfo(element.getTouchableSpan()));
-                    }
-                }
-            }
+            collectSpanInfos();
         } else {
             mElementList = new QMUIQQFaceCompiler.ElementList(0, mOriginText.length());
             String[] strings = mOriginText.toString().split("\\n");
@@ -561,6 +587,22 @@ public class QMUIQQFaceView extends View {
                 }
             }
         }
+        onElementListChanged();
+    }
+
+    private void collectSpanInfos() {
+        List<QMUIQQFaceCompiler.Element> elements = mElementList.getElements();
+        if (elements != null) {
+            for (int i = 0; i < elements.size(); i++) {
+                QMUIQQFaceCompiler.Element element = elements.get(i);
+                if (element.getType() == QMUIQQFaceCompiler.ElementType.SPAN) {
+                    mSpanInfos.put(element, new SpanInfo(element.getTouchableSpan()));
+                }
+            }
+        }
+    }
+
+    private void onElementListChanged() {
         mNeedReCalculateLines = true;
         if (getLayoutParams() == null) {
             return;
@@ -715,8 +757,7 @@ public class QMUIQQFaceView extends View {
                     mJumpHandleMeasureAndDraw = true;
                 }
             } else if (element.getType() == QMUIQQFaceCompiler.ElementType.TEXT) {
-                CharSequence text = element.getText();
-                measureText(text, widthStart, widthEnd);
+                measureText(element, widthStart, widthEnd);
             } else if (element.getType() == QMUIQQFaceCompiler.ElementType.SPAN) {
                 QMUIQQFaceCompiler.ElementList spanElementList = element.getChildList();
                 ITouchableSpan span = element.getTouchableSpan();
@@ -782,10 +823,9 @@ public class QMUIQQFaceView extends View {
         }
     }
 
-    private void measureText(CharSequence text, int widthStart, int widthEnd) {
-
-        float[] widths = new float[text.length()];
-        mPaint.getTextWidths(text.toString(), widths);
+    private void measureText(QMUIQQFaceCompiler.Element element, int widthStart, int widthEnd) {
+        CharSequence text = element.getText();
+        float[] widths = getTextWidths(element);
         int contentWidth = widthEnd - widthStart;
         long loop_start = System.currentTimeMillis();
         for (int i = 0; i < widths.length; i++) {
@@ -809,6 +849,49 @@ public class QMUIQQFaceView extends View {
         }
     }
 
+    /**
+     * 文本元素的字符宽度只与 paint 有关，在 measure 时计算一次，draw 时直接复用
+     */
+    private float[] getTextWidths(QMUIQQFaceCompiler.Element element) {
+        checkTextWidthsCache();
+        float[] widths = mTextWidthsCache.get(element);
+        if (widths == null) {
+            CharSequence text = element.getText();
+            widths = new float[text.length()];
+            mPaint.getTextWidths(text, 0, text.length(), widths);
+            mTextWidthsCache.put(element, widths);
+        }
+        return widths;
+    }
+
+    private void checkTextWidthsCache() {
+        // paint 可能通过 getPaint() 被外部修改，所以比较 paint 的状态而不是依赖 setter
+        if (mWidthsCacheTextSize != mPaint.getTextSize() ||
+                mWidthsCacheTypeface != mPaint.getTypeface() ||
+                mWidthsCacheTextScaleX != mPaint.getTextScaleX() ||
+                mWidthsCacheLetterSpacing != mPaint.getLetterSpacing() ||
+                mWidthsCacheFakeBold != mPaint.isFakeBoldText()) {
+            mTextWidthsCache.clear();
+            mWidthsCacheTextSize = mPaint.getTextSize();
+            mWidthsCacheTypeface = mPaint.getTypeface();
+            mWidthsCacheTextScaleX = mPaint.getTextScaleX();
+            mWidthsCacheLetterSpacing = mPaint.getLetterSpacing();
+            mWidthsCacheFakeBold = mPaint.isFakeBoldText();
+        }
+    }
+
+    @Nullable
+    private Drawable getQQFaceDrawable(int res) {
+        Drawable drawable = mQQFaceDrawableCache.get(res);
+        if (drawable == null) {
+            drawable = ContextCompat.getDrawable(getContext(), res);
+            if (drawable != null) {
+                mQQFaceDrawableCache.put(res, drawable);
+            }
+        }
+        return drawable;
+    }
+
     public void setListener(QQFaceViewListener listener) {
         mListener = listener;
     }
@@ -936,10 +1019,7 @@ public class QMUIQQFaceView extends View {
             } else if (type == QMUIQQFaceCompiler.ElementType.SPECIAL_BOUNDS_DRAWABLE) {
                 onDrawQQFace(canvas, 0, element.getSpecialBoundsDrawable(), startLeft, endWidth, i == 0, i == elements.size() - 1);
             } else if (type == QMUIQQFaceCompiler.ElementType.TEXT) {
-                CharSequence text = element.getText();
-                float[] fontWidths = new float[text.length()];
-                mPaint.getTextWidths(text.toString(), fontWidths);
-                onDrawText(canvas, text, fontWidths, 0, startLeft, endWidth);
+                onDrawText(canvas, element.getText(), getTextWidths(element), 0, startLeft, endWidth);
             } else if (type == QMUIQQFaceCompiler.ElementType.SPAN) {
                 QMUIQQFaceCompiler.ElementList spanElementList = element.getChildList();
                 mCurrentDrawSpan = element.getTouchableSpan();
@@ -1465,7 +1545,7 @@ public class QMUIQQFaceView extends View {
     }
 
     private void drawQQFace(Canvas canvas, int res, @Nullable Drawable specialDrawable, int line, boolean isFirst, boolean isLast) {
-        Drawable drawable = res != 0 ? ContextCompat.getDrawable(getContext(), res) : specialDrawable;
+        Drawable drawable = res != 0 ? getQQFaceDrawable(res) : specialDrawable;
         int size = res != 0 || specialDrawable == null ? mQQFaceSize : specialDrawable.getIntrinsicWidth() + (isFirst || isLast ? mSpecialDrawablePadding : mSpecialDrawablePadding * 2);
         if (drawable == null) {
             return;
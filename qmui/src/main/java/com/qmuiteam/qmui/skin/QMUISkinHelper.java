@@ -47,18 +47,39 @@ public class QMUISkinHelper {
     }
 
     public static int getSkinColor(@NonNull View view, int colorAttr) {
+        QMUISkinManager skinManager = getSkinManager(view);
+        if (skinManager != null) {
+            return skinManager.getSkinColor(getSkinTheme(view), colorAttr);
+        }
         return QMUIResHelper.getAttrColor(getSkinTheme(view), colorAttr);
     }
 
     public static ColorStateList getSkinColorStateList(@NonNull View view, int colorAttr) {
+        QMUISkinManager skinManager = getSkinManager(view);
+        if (skinManager != null) {
+            return skinManager.getSkinColorStateList(view.getContext(), getSkinTheme(view), colorAttr);
+        }
         return QMUIResHelper.getAttrColorStateList(view.getContext(), getSkinTheme(view), colorAttr);
     }
 
     @Nullable
     public static Drawable getSkinDrawable(@NonNull View view, int drawableAttr) {
+        QMUISkinManager skinManager = getSkinManager(view);
+        if (skinManager != null) {
+            return skinManager.getSkinDrawable(view.getContext(), getSkinTheme(view), drawableAttr);
+        }
         return QMUIResHelper.getAttrDrawable(view.getContext(), getSkinTheme(view), drawableAttr);
     }
 
+    @Nullable
+    private static QMUISkinManager getSkinManager(@NonNull View view) {
+        QMUISkinManager.ViewSkinCurrent current = QMUISkinManager.getViewSkinCurrent(view);
+        if (current == null || current.index < 0) {
+            return null;
+        }
+        return QMUISkinManager.of(current.managerName, view.getContext());
+    }
+
 
     public static void setSkinValue(@NonNull View view, QMUISkinValueBuilder skinValueBuilder) {
         setSkinValue(view, skinValueBuilder.build());
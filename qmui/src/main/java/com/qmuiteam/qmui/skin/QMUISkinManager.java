@@ -18,13 +18,20 @@ package com.qmuiteam.qmui.skin;
 import android.app.Activity;
 import android.app.Dialog;
 import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
 import android.content.res.Resources;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
 import android.os.Trace;
 import android.text.Spanned;
 import android.util.ArrayMap;
 import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewParent;
 import android.view.Window;
 import android.widget.AdapterView;
 import android.widget.PopupWindow;
@@ -33,6 +40,7 @@ import android.widget.TextView;
 import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
 import androidx.collection.SimpleArrayMap;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.RecyclerView;
@@ -64,15 +72,22 @@ import com.qmuiteam.qmui.util.QMUILangHelper;
 import com.qmuiteam.qmui.util.QMUIResHelper;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
 
 public final class QMUISkinManager {
     private static final String TAG = "QMUISkinManager";
     public static final int DEFAULT_SKIN = -1;
-    private static final String[] EMPTY_ITEMS = new String[]{};
+    private static final int COMPILED_SKIN_VALUE_CACHE_SIZE = 256;
+    private static final long DEFAULT_ASYNC_DISPATCH_FRAME_BUDGET_MS = 8;
     private static ArrayMap<String, QMUISkinManager> sInstances = new ArrayMap<>();
     private static final String DEFAULT_NAME = "default";
     public static final DispatchListenStrategySelector DEFAULT_DISPATCH_LISTEN_STRATEGY_SELECTOR = new DispatchListenStrategySelector() {
@@ -129,7 +144,17 @@ public final class QMUISkinManager {
     private SparseArray<SkinItem> mSkins = new SparseArray<>();
     private static HashMap<String, IQMUISkinRuleHandler> sRuleHandlers = new HashMap<>();
     private static HashMap<Integer, Resources.Theme> sStyleIdThemeMap = new HashMap<>();
+    // packageName -> (attrName -> attrId), shared by all managers in process
+    private static ArrayMap<String, ArrayMap<String, Integer>> sAttrIdCache = new ArrayMap<>();
+    private final LruCache<String, CompiledSkinValue> mCompiledSkinValueCache = new LruCache<>(COMPILED_SKIN_VALUE_CACHE_SIZE);
+    // the configuration that the resolved skin values of SkinItem belong to
+    private final Configuration mValueCacheConfiguration = new Configuration();
     private boolean mIsInSkinChangeDispatch = false;
+    private boolean mUseSkinViewIndex = false;
+    private final WeakHashMap<View, Boolean> mSkinViewIndex = new WeakHashMap<>();
+    private ViewSkinCurrent mIndexedSkinCurrent;
+    // shared by the indexed views waiting for changeSkinAsync, they are not current until dispatched
+    private ViewSkinCurrent mPendingSkinCurrent;
 
     static {
         sRuleHandlers.put(QMUISkinValueBuilder.BACKGROUND, new QMUISkinRuleBackgroundHandler());
@@ -214,12 +239,38 @@ public final class QMUISkinManager {
         mName = name;
         mResources = resources;
         mPackageName = packageName;
+        mValueCacheConfiguration.setTo(resources.getConfiguration());
     }
 
     public String getName() {
         return mName;
     }
 
+    /**
+     * If true, views that actually carry skin attrs (skin value, default attr provider, handler view,
+     * apply listener, skin span or skin decoration) are recorded in a weak index when they are
+     * dispatched, and {@link #changeSkin(int)} only visits the recorded views instead of walking
+     * the whole view hierarchy of every observer.
+     * <p>
+     * Note: views that become skinned after being dispatched (such as set a skin span to a
+     * TextView) should be refreshed by {@link QMUISkinHelper#refreshViewSkin(View)} or be
+     * dispatched again to be recorded.
+     */
+    @MainThread
+    public void setUseSkinViewIndex(boolean useSkinViewIndex) {
+        if (mUseSkinViewIndex == useSkinViewIndex) {
+            return;
+        }
+        mUseSkinViewIndex = useSkinViewIndex;
+        mSkinViewIndex.clear();
+        // use a new shared tag, views tagged before will be fully dispatched next time.
+        mIndexedSkinCurrent = useSkinViewIndex ? new ViewSkinCurrent(mName, mCurrentSkin) : null;
+    }
+
+    public boolean isUseSkinViewIndex() {
+        return mUseSkinViewIndex;
+    }
+
     @Nullable
     public Resources.Theme getTheme(int skinIndex) {
         SkinItem skinItem = mSkins.get(skinIndex);
@@ -291,35 +342,63 @@ public final class QMUISkinManager {
         if (currentTheme != null && currentTheme.index == skinIndex && Objects.equals(currentTheme.managerName, mName)) {
             return;
         }
-        view.setTag(R.id.qmui_skin_current, new ViewSkinCurrent(mName, skinIndex));
+        boolean useViewIndex = mUseSkinViewIndex && skinIndex == mCurrentSkin;
+        view.setTag(R.id.qmui_skin_current, useViewIndex ? mIndexedSkinCurrent : new ViewSkinCurrent(mName, skinIndex));
+
+        if (!dispatchToView(view, skinIndex, theme, useViewIndex)) {
+            return;
+        }
+        if (view instanceof ViewGroup) {
+            runDispatchToChildren((ViewGroup) view, skinIndex, theme);
+        }
+    }
+
+    private void runDispatchToChildren(@NonNull ViewGroup viewGroup, int skinIndex, Resources.Theme theme) {
+        if (sDispatchListenStrategySelector.select(viewGroup) == DispatchListenStrategy.LISTEN_ON_HIERARCHY_CHANGE) {
+            viewGroup.setOnHierarchyChangeListener(mOnHierarchyChangeListener);
+        } else {
+            viewGroup.addOnLayoutChangeListener(mOnLayoutChangeListener);
+        }
+        for (int i = 0; i < viewGroup.getChildCount(); i++) {
+            runDispatch(viewGroup.getChildAt(i), skinIndex, theme);
+        }
+    }
 
+    /**
+     * apply skin to the view itself, without its children.
+     * In the view index, an intercepted view is kept with {@link Boolean#FALSE} as its children are not
+     * visited, others are kept with {@link Boolean#TRUE}.
+     *
+     * @return false if the dispatch is intercepted and children should not be visited.
+     */
+    private boolean dispatchToView(@NonNull View view, int skinIndex, Resources.Theme theme, boolean addToIndex) {
         if (view instanceof IQMUISkinDispatchInterceptor) {
             if (((IQMUISkinDispatchInterceptor) view).intercept(skinIndex, theme)) {
-                return;
+                if (addToIndex) {
+                    mSkinViewIndex.put(view, Boolean.FALSE);
+                }
+                return false;
+            }
+            if (addToIndex) {
+                mSkinViewIndex.put(view, Boolean.TRUE);
             }
         }
 
         Object interceptTag = view.getTag(R.id.qmui_skin_intercept_dispatch);
         if (interceptTag instanceof Boolean && ((Boolean) interceptTag)) {
-            return;
+            if (addToIndex) {
+                mSkinViewIndex.put(view, Boolean.FALSE);
+            }
+            return false;
         }
 
         Object ignoreApplyTag = view.getTag(R.id.qmui_skin_ignore_apply);
         boolean ignoreApply = ignoreApplyTag instanceof Boolean && ((Boolean) ignoreApplyTag);
-        if (!ignoreApply) {
-            applyTheme(view, skinIndex, theme);
+        if (ignoreApply) {
+            return true;
         }
-        if (view instanceof ViewGroup) {
-            ViewGroup viewGroup = (ViewGroup) view;
-            if (sDispatchListenStrategySelector.select(viewGroup) == DispatchListenStrategy.LISTEN_ON_HIERARCHY_CHANGE) {
-                viewGroup.setOnHierarchyChangeListener(mOnHierarchyChangeListener);
-            } else {
-                viewGroup.addOnLayoutChangeListener(mOnLayoutChangeListener);
-            }
-            for (int i = 0; i < viewGroup.getChildCount(); i++) {
-                runDispatch(viewGroup.getChildAt(i), skinIndex, theme);
-            }
-        } else if (!ignoreApply && ((view instanceof TextView) || (view instanceof QMUIQQFaceView))) {
+        boolean skinned = applyTheme(view, skinIndex, theme);
+        if (!(view instanceof ViewGroup) && ((view instanceof TextView) || (view instanceof QMUIQQFaceView))) {
             CharSequence text;
             if (view instanceof TextView) {
                 text = ((TextView) view).getText();
@@ -332,16 +411,26 @@ public final class QMUISkinManager {
                     for (int i = 0; i < spans.length; i++) {
                         spans[i].handle(view, this, skinIndex, theme);
                     }
+                    skinned = skinned || spans.length > 0;
                 }
                 view.invalidate();
             }
         }
+        if (skinned && addToIndex) {
+            mSkinViewIndex.put(view, Boolean.TRUE);
+        }
+        return true;
     }
 
-    private void applyTheme(@NonNull View view, int skinIndex, Resources.Theme theme) {
+    /**
+     * @return true if the view carries any skin attr, handler, apply listener or decoration.
+     */
+    private boolean applyTheme(@NonNull View view, int skinIndex, Resources.Theme theme) {
         SimpleArrayMap<String, Integer> attrs = getSkinAttrs(view);
+        boolean skinned = attrs != null;
         try {
             if (view instanceof IQMUISkinHandlerView) {
+                skinned = true;
                 ((IQMUISkinHandlerView) view).handle(this, skinIndex, theme, attrs);
             } else {
                 defaultHandleSkinAttrs(view, theme, attrs);
@@ -349,6 +438,7 @@ public final class QMUISkinManager {
 
             Object skinApplyListener = view.getTag(R.id.qmui_skin_apply_listener);
             if (skinApplyListener instanceof IQMUISkinApplyListener) {
+                skinned = true;
                 ((IQMUISkinApplyListener) skinApplyListener).onApply(view, skinIndex, theme);
             }
 
@@ -358,6 +448,7 @@ public final class QMUISkinManager {
                 for (int i = 0; i < itemDecorationCount; i++) {
                     RecyclerView.ItemDecoration itemDecoration = recyclerView.getItemDecorationAt(i);
                     if (itemDecoration instanceof IQMUISkinHandlerDecoration) {
+                        skinned = true;
                         ((IQMUISkinHandlerDecoration) itemDecoration).handle(recyclerView, this, skinIndex, theme);
                     }
                 }
@@ -367,6 +458,107 @@ public final class QMUISkinManager {
                     "catch error when apply theme: " + view.getClass().getSimpleName() +
                             "; " + skinIndex + "; attrs = " + (attrs == null ? "null" : attrs.toString()));
         }
+        return skinned;
+    }
+
+    /**
+     * @param theme null to use the theme of the context of each view, for {@link #DEFAULT_SKIN}
+     */
+    private void dispatchToViewIndex(int skinIndex, @Nullable Resources.Theme theme) {
+        if (mSkinViewIndex.isEmpty()) {
+            return;
+        }
+        // copy first, dispatch may add views to the index through hierarchy change.
+        ArrayList<View> views = getIndexedViewsByDepth();
+        for (int i = 0; i < views.size(); i++) {
+            dispatchToIndexedView(views.get(i), skinIndex, theme);
+        }
+    }
+
+    /**
+     * @return the indexed views, ancestors go before their descendants, so a view that starts intercepting
+     * removes its descendants from the index before they are dispatched.
+     */
+    private ArrayList<View> getIndexedViewsByDepth() {
+        final HashMap<View, Integer> depths = new HashMap<>(mSkinViewIndex.size());
+        ArrayList<View> views = new ArrayList<>(mSkinViewIndex.size());
+        for (View view : mSkinViewIndex.keySet()) {
+            if (view == null) {
+                continue;
+            }
+            int depth = 0;
+            ViewParent parent = view.getParent();
+            while (parent instanceof View) {
+                depth++;
+                parent = parent.getParent();
+            }
+            depths.put(view, depth);
+            views.add(view);
+        }
+        Collections.sort(views, new Comparator<View>() {
+            @Override
+            public int compare(View o1, View o2) {
+                return Integer.compare(depths.get(o1), depths.get(o2));
+            }
+        });
+        return views;
+    }
+
+    /**
+     * @param theme null to use the theme of the context of the view, for {@link #DEFAULT_SKIN}
+     */
+    private void dispatchToIndexedView(@NonNull View view, int skinIndex, @Nullable Resources.Theme theme) {
+        Boolean indexed = mSkinViewIndex.get(view);
+        if (indexed == null) {
+            // removed as a descendant of a view that starts intercepting.
+            return;
+        }
+        if (view.getTag(R.id.qmui_skin_current) != mIndexedSkinCurrent) {
+            // dispatched by other manager or skin index later.
+            mSkinViewIndex.remove(view);
+            return;
+        }
+        if (theme == null) {
+            theme = view.getContext().getTheme();
+        }
+        boolean wasIntercepted = Boolean.FALSE.equals(indexed);
+        if (!dispatchToView(view, skinIndex, theme, true)) {
+            if (!wasIntercepted && view instanceof ViewGroup) {
+                // it starts intercepting, the descendants are handled by itself from now on.
+                removeIndexedDescendants((ViewGroup) view);
+            }
+            return;
+        }
+        if (wasIntercepted) {
+            mSkinViewIndex.put(view, Boolean.TRUE);
+            if (view instanceof ViewGroup) {
+                // the children were never visited while the view intercepted the dispatch.
+                runDispatchToChildren((ViewGroup) view, skinIndex, theme);
+            }
+        }
+    }
+
+    private void removeIndexedDescendants(@NonNull ViewGroup viewGroup) {
+        Iterator<View> iterator = mSkinViewIndex.keySet().iterator();
+        while (iterator.hasNext()) {
+            View view = iterator.next();
+            if (view == null || view == viewGroup) {
+                continue;
+            }
+            ViewParent parent = view.getParent();
+            while (parent instanceof View && parent != viewGroup) {
+                parent = parent.getParent();
+            }
+            if (parent != viewGroup) {
+                continue;
+            }
+            iterator.remove();
+            Object current = view.getTag(R.id.qmui_skin_current);
+            if (current == mIndexedSkinCurrent || current == mPendingSkinCurrent) {
+                // not current any more, so it's fully dispatched if the ancestor stops intercepting.
+                view.setTag(R.id.qmui_skin_current, null);
+            }
+        }
     }
 
     void refreshRecyclerDecoration(@NonNull RecyclerView recyclerView,
@@ -381,7 +573,11 @@ public final class QMUISkinManager {
     void refreshTheme(@NonNull View view, int skinIndex) {
         SkinItem skinItem = mSkins.get(skinIndex);
         if (skinItem != null) {
-            applyTheme(view, skinIndex, skinItem.getTheme());
+            boolean skinned = applyTheme(view, skinIndex, skinItem.getTheme());
+            if (skinned && mUseSkinViewIndex && view.getTag(R.id.qmui_skin_current) == mIndexedSkinCurrent
+                    && !mSkinViewIndex.containsKey(view)) {
+                mSkinViewIndex.put(view, Boolean.TRUE);
+            }
         }
     }
 
@@ -412,13 +608,7 @@ public final class QMUISkinManager {
 
     @Nullable
     private SimpleArrayMap<String, Integer> getSkinAttrs(View view) {
-        String skinValue = (String) view.getTag(R.id.qmui_skin_value);
-        String[] items;
-        if (skinValue == null || skinValue.isEmpty()) {
-            items = EMPTY_ITEMS;
-        } else {
-            items = skinValue.split("[|]");
-        }
+        SimpleArrayMap<String, Integer> compiledAttrs = getCompiledSkinAttrs(view);
 
         SimpleArrayMap<String, Integer> attrs = null;
         if (view instanceof IQMUISkinDefaultAttrProvider) {
@@ -441,12 +631,49 @@ public final class QMUISkinManager {
         }
 
         if (attrs == null) {
-            if (items.length <= 0) {
-                return null;
+            // the compiled table is shared by views with the same skin value, do not modify it.
+            return compiledAttrs;
+        }
+        if (compiledAttrs != null) {
+            attrs.putAll(compiledAttrs);
+        }
+        return attrs;
+    }
+
+    /**
+     * the skin value is compiled to an attr table only once, and then be cached in view tag,
+     * so dispatch does not need to split the string or call {@link Resources#getIdentifier} again.
+     */
+    @Nullable
+    private SimpleArrayMap<String, Integer> getCompiledSkinAttrs(View view) {
+        Object skinValueTag = view.getTag(R.id.qmui_skin_value);
+        if (!(skinValueTag instanceof String)) {
+            return null;
+        }
+        String skinValue = (String) skinValueTag;
+        if (skinValue.isEmpty()) {
+            return null;
+        }
+        Object compiledTag = view.getTag(R.id.qmui_skin_value_compiled);
+        if (compiledTag instanceof CompiledSkinValue) {
+            CompiledSkinValue compiled = (CompiledSkinValue) compiledTag;
+            if (compiled.source == skinValue && Objects.equals(compiled.managerName, mName)) {
+                return compiled.attrs;
             }
-            attrs = new SimpleArrayMap<>(items.length);
         }
+        SimpleArrayMap<String, Integer> attrs = compileSkinValue(skinValue);
+        view.setTag(R.id.qmui_skin_value_compiled, new CompiledSkinValue(mName, skinValue, attrs));
+        return attrs;
+    }
 
+    @Nullable
+    SimpleArrayMap<String, Integer> compileSkinValue(@NonNull String skinValue) {
+        CompiledSkinValue cached = mCompiledSkinValueCache.get(skinValue);
+        if (cached != null) {
+            return cached.attrs;
+        }
+        String[] items = skinValue.split("[|]");
+        SimpleArrayMap<String, Integer> attrs = new SimpleArrayMap<>(items.length);
         for (String item : items) {
             String[] kv = item.split(":");
             if (kv.length != 2) {
@@ -463,15 +690,156 @@ public final class QMUISkinManager {
             }
             attrs.put(key, attr);
         }
+        if (attrs.isEmpty()) {
+            attrs = null;
+        }
+        mCompiledSkinValueCache.put(skinValue, new CompiledSkinValue(mName, skinValue, attrs));
         return attrs;
     }
 
     public int getAttrFromName(String attrName) {
-        return mResources.getIdentifier(attrName, "attr", mPackageName);
+        ArrayMap<String, Integer> attrIdCache = sAttrIdCache.get(mPackageName);
+        if (attrIdCache == null) {
+            attrIdCache = new ArrayMap<>();
+            sAttrIdCache.put(mPackageName, attrIdCache);
+        }
+        Integer cachedAttr = attrIdCache.get(attrName);
+        if (cachedAttr != null) {
+            return cachedAttr;
+        }
+        int attr = mResources.getIdentifier(attrName, "attr", mPackageName);
+        attrIdCache.put(attrName, attr);
+        return attr;
+    }
+
+    static class CompiledSkinValue {
+        final String managerName;
+        final String source;
+        @Nullable
+        final SimpleArrayMap<String, Integer> attrs;
+
+        CompiledSkinValue(String managerName, String source, @Nullable SimpleArrayMap<String, Integer> attrs) {
+            this.managerName = managerName;
+            this.source = source;
+            this.attrs = attrs;
+        }
+    }
+
+    /**
+     * resolve color from the skin theme, the value is cached per skin and attr.
+     */
+    public int getSkinColor(@NonNull Resources.Theme theme, int attr) {
+        checkValueCacheConfiguration();
+        SkinItem skinItem = findSkinItem(theme);
+        if (skinItem == null) {
+            return QMUIResHelper.getAttrColor(theme, attr);
+        }
+        int index = skinItem.colorCache.indexOfKey(attr);
+        if (index >= 0) {
+            return skinItem.colorCache.valueAt(index);
+        }
+        int color = QMUIResHelper.getAttrColor(theme, attr);
+        skinItem.colorCache.put(attr, color);
+        return color;
+    }
+
+    /**
+     * resolve ColorStateList from the skin theme, the value is cached per skin and attr.
+     */
+    @Nullable
+    public ColorStateList getSkinColorStateList(@NonNull Context context, @NonNull Resources.Theme theme, int attr) {
+        SkinItem skinItem = canUseValueCache(context) ? findSkinItem(theme) : null;
+        if (skinItem == null) {
+            return QMUIResHelper.getAttrColorStateList(context, theme, attr);
+        }
+        int index = skinItem.colorStateListCache.indexOfKey(attr);
+        if (index >= 0) {
+            return skinItem.colorStateListCache.valueAt(index);
+        }
+        // ColorStateList is immutable, so it can be shared by views.
+        ColorStateList colorStateList = QMUIResHelper.getAttrColorStateList(context, theme, attr);
+        skinItem.colorStateListCache.put(attr, colorStateList);
+        return colorStateList;
+    }
+
+    /**
+     * resolve Drawable from the skin theme, the constant state is cached per skin and attr,
+     * and every call returns a new drawable, just like {@link Resources#getDrawable(int, Resources.Theme)}.
+     */
+    @Nullable
+    public Drawable getSkinDrawable(@NonNull Context context, @NonNull Resources.Theme theme, int attr) {
+        SkinItem skinItem = canUseValueCache(context) ? findSkinItem(theme) : null;
+        if (skinItem == null) {
+            return QMUIResHelper.getAttrDrawable(context, theme, attr);
+        }
+        int index = skinItem.drawableCache.indexOfKey(attr);
+        if (index >= 0) {
+            Object cached = skinItem.drawableCache.valueAt(index);
+            if (cached instanceof Drawable.ConstantState) {
+                return ((Drawable.ConstantState) cached).newDrawable(context.getResources());
+            } else if (cached instanceof Integer) {
+                return new ColorDrawable((Integer) cached);
+            }
+            return null;
+        }
+        Drawable drawable = QMUIResHelper.getAttrDrawable(context, theme, attr);
+        if (drawable == null) {
+            skinItem.drawableCache.put(attr, null);
+        } else if (drawable instanceof ColorDrawable) {
+            // ColorDrawable#setColor changes the shared state, so only cache the color.
+            skinItem.drawableCache.put(attr, ((ColorDrawable) drawable).getColor());
+        } else if (drawable.getConstantState() != null) {
+            skinItem.drawableCache.put(attr, drawable.getConstantState());
+        }
+        return drawable;
+    }
+
+    /**
+     * clear the resolved skin values. The values are cleared automatically when the configuration of
+     * the resources is changed, call this if the resources are changed in other ways.
+     */
+    @MainThread
+    public void clearSkinValueCache() {
+        for (int i = 0; i < mSkins.size(); i++) {
+            mSkins.valueAt(i).clearValueCache();
+        }
+    }
+
+    private void checkValueCacheConfiguration() {
+        Configuration current = mResources.getConfiguration();
+        if (!mValueCacheConfiguration.equals(current)) {
+            // uiMode, locale, density... changed without restarting the process
+            mValueCacheConfiguration.setTo(current);
+            clearSkinValueCache();
+        }
+    }
+
+    /**
+     * the values resolved with a context of another configuration, such as a configuration context,
+     * are not shared by the cache.
+     */
+    private boolean canUseValueCache(@NonNull Context context) {
+        checkValueCacheConfiguration();
+        return mValueCacheConfiguration.equals(context.getResources().getConfiguration());
+    }
+
+    @Nullable
+    private SkinItem findSkinItem(@NonNull Resources.Theme theme) {
+        for (int i = 0; i < mSkins.size(); i++) {
+            SkinItem skinItem = mSkins.valueAt(i);
+            if (skinItem.getTheme() == theme) {
+                return skinItem;
+            }
+        }
+        return null;
     }
 
     class SkinItem {
         private int styleRes;
+        private Resources.Theme theme;
+        final SparseIntArray colorCache = new SparseIntArray();
+        final SparseArray<ColorStateList> colorStateListCache = new SparseArray<>();
+        final SparseArray<Object> drawableCache = new SparseArray<>();
 
         SkinItem(int styleRes) {
             this.styleRes = styleRes;
@@ -483,7 +851,10 @@ public final class QMUISkinManager {
 
         @NonNull
         Resources.Theme getTheme() {
-            Resources.Theme theme = sStyleIdThemeMap.get(styleRes);
+            if (theme != null) {
+                return theme;
+            }
+            theme = sStyleIdThemeMap.get(styleRes);
             if (theme == null) {
                 theme = mResources.newTheme();
                 theme.applyStyle(styleRes, true);
@@ -491,6 +862,12 @@ public final class QMUISkinManager {
             }
             return theme;
         }
+
+        void clearValueCache() {
+            colorCache.clear();
+            colorStateListCache.clear();
+            drawableCache.clear();
+        }
     }
 
     // =====================================================================================
@@ -498,6 +875,8 @@ public final class QMUISkinManager {
     private int mCurrentSkin = DEFAULT_SKIN;
     private final List<WeakReference<?>> mSkinObserverList = new ArrayList<>();
     private final List<OnSkinChangeListener> mSkinChangeListeners = new ArrayList<>();
+    private final ArrayDeque<PendingDispatch> mPendingDispatchList = new ArrayDeque<>();
+    private long mAsyncDispatchFrameBudgetNs = TimeUnit.MILLISECONDS.toNanos(DEFAULT_ASYNC_DISPATCH_FRAME_BUDGET_MS);
 
     public void register(@NonNull Activity activity) {
         if (!containSkinObserver(activity)) {
@@ -598,41 +977,291 @@ public final class QMUISkinManager {
         if (mCurrentSkin == index) {
             return;
         }
+        SkinItem skinItem = mSkins.get(index);
+        if (skinItem == null && index != DEFAULT_SKIN) {
+            throw new IllegalArgumentException("The skin " + index + " does not exist");
+        }
         int oldIndex = mCurrentSkin;
         mCurrentSkin = index;
+        // a sync change covers everything still pending from a previous async change.
+        clearPendingDispatch();
         mIsInSkinChangeDispatch = true;
+        if (mUseSkinViewIndex) {
+            // all indexed views share this tag, so they are marked as current at once.
+            mIndexedSkinCurrent.index = index;
+            dispatchToViewIndex(index, skinItem == null ? null : skinItem.getTheme());
+        }
         for (int i = mSkinObserverList.size() - 1; i >= 0; i--) {
             Object item = mSkinObserverList.get(i).get();
             if (item == null) {
                 mSkinObserverList.remove(i);
             } else {
-                if (item instanceof Activity) {
-                    Activity activity = (Activity) item;
-                    activity.getWindow().setBackgroundDrawable(QMUIResHelper.getAttrDrawable(
-                            activity, mSkins.get(index).getTheme(), R.attr.qmui_skin_support_activity_background));
-                    dispatch(activity.findViewById(Window.ID_ANDROID_CONTENT), index);
-                } else if (item instanceof Fragment) {
-                    dispatch(((Fragment) item).getView(), index);
-                } else if (item instanceof Dialog) {
-                    Window window = ((Dialog) item).getWindow();
-                    if (window != null) {
-                        dispatch(window.getDecorView(), index);
+                dispatchToObserver(item, index);
+            }
+        }
+
+        for (int i = mSkinChangeListeners.size() - 1; i >= 0; i--) {
+            OnSkinChangeListener item = mSkinChangeListeners.get(i);
+            item.onSkinChange(this, oldIndex, mCurrentSkin);
+        }
+        for (int i = mSkinChangeListeners.size() - 1; i >= 0; i--) {
+            OnSkinChangeListener item = mSkinChangeListeners.get(i);
+            item.onSkinChangeComplete(this, mCurrentSkin);
+        }
+        mIsInSkinChangeDispatch = false;
+    }
+
+    /**
+     * Change skin across multiple frames. Observers that are visible now are dispatched immediately,
+     * others (stacked fragments, hidden dialogs, detached popups...) are dispatched in the following
+     * frames, no more than {@link #setAsyncDispatchFrameBudget(long)} per frame. An observer or an indexed view
+     * that is attached to window before its turn will be dispatched at once, and a waiting indexed view
+     * reached by a dispatch before its turn is fully dispatched.
+     * {@link OnSkinChangeListener#onSkinChangeComplete(QMUISkinManager, int)} is called after
+     * all observers are dispatched.
+     */
+    @MainThread
+    public void changeSkinAsync(int index) {
+        if (mCurrentSkin == index) {
+            return;
+        }
+        SkinItem skinItem = mSkins.get(index);
+        if (skinItem == null && index != DEFAULT_SKIN) {
+            throw new IllegalArgumentException("The skin " + index + " does not exist");
+        }
+        int oldIndex = mCurrentSkin;
+        mCurrentSkin = index;
+        clearPendingDispatch();
+        mIsInSkinChangeDispatch = true;
+        if (mUseSkinViewIndex) {
+            mIndexedSkinCurrent.index = index;
+            Resources.Theme theme = skinItem == null ? null : skinItem.getTheme();
+            mPendingSkinCurrent = new ViewSkinCurrent(mName, oldIndex);
+            ArrayList<View> views = getIndexedViewsByDepth();
+            for (int i = 0; i < views.size(); i++) {
+                View view = views.get(i);
+                if (!mSkinViewIndex.containsKey(view)) {
+                    // removed as a descendant of a view that starts intercepting.
+                    continue;
+                }
+                if (view.isShown()) {
+                    dispatchToIndexedView(view, index, theme);
+                } else {
+                    if (view.getTag(R.id.qmui_skin_current) == mIndexedSkinCurrent) {
+                        // so that it's fully dispatched if it's reached by runDispatch before its turn.
+                        view.setTag(R.id.qmui_skin_current, mPendingSkinCurrent);
+                    }
+                    mPendingDispatchList.add(new PendingDispatch(view, true));
+                    if (!view.isAttachedToWindow()) {
+                        view.addOnAttachStateChangeListener(mPendingAttachListener);
                     }
-                } else if (item instanceof PopupWindow) {
-                    dispatch(((PopupWindow) item).getContentView(), index);
-                } else if (item instanceof Window) {
-                    dispatch(((Window) item).getDecorView(), index);
-                } else if (item instanceof View) {
-                    dispatch((View) item, index);
                 }
             }
         }
+        for (int i = mSkinObserverList.size() - 1; i >= 0; i--) {
+            Object item = mSkinObserverList.get(i).get();
+            if (item == null) {
+                mSkinObserverList.remove(i);
+                continue;
+            }
+            View root = getObserverRootView(item);
+            // indexed roots are already current, the dispatch is cheap.
+            if (mUseSkinViewIndex || root == null || root.isShown()) {
+                dispatchToObserver(item, index);
+            } else {
+                mPendingDispatchList.add(new PendingDispatch(item, false));
+                root.addOnAttachStateChangeListener(mPendingAttachListener);
+            }
+        }
 
         for (int i = mSkinChangeListeners.size() - 1; i >= 0; i--) {
             OnSkinChangeListener item = mSkinChangeListeners.get(i);
             item.onSkinChange(this, oldIndex, mCurrentSkin);
         }
         mIsInSkinChangeDispatch = false;
+        if (mPendingDispatchList.isEmpty()) {
+            notifySkinChangeComplete();
+        } else {
+            Choreographer.getInstance().postFrameCallback(mPendingDispatchFrameCallback);
+        }
+    }
+
+    /**
+     * set the max time used to dispatch pending observers in one frame for {@link #changeSkinAsync(int)}
+     */
+    public void setAsyncDispatchFrameBudget(long budgetMs) {
+        mAsyncDispatchFrameBudgetNs = TimeUnit.MILLISECONDS.toNanos(Math.max(1, budgetMs));
+    }
+
+    public boolean isAsyncDispatching() {
+        return !mPendingDispatchList.isEmpty();
+    }
+
+    private void dispatchToObserver(@NonNull Object item, int index) {
+        if (item instanceof Activity) {
+            Activity activity = (Activity) item;
+            activity.getWindow().setBackgroundDrawable(QMUIResHelper.getAttrDrawable(
+                    activity, mSkins.get(index).getTheme(), R.attr.qmui_skin_support_activity_background));
+            dispatch(activity.findViewById(Window.ID_ANDROID_CONTENT), index);
+        } else if (item instanceof Fragment) {
+            dispatch(((Fragment) item).getView(), index);
+        } else if (item instanceof Dialog) {
+            Window window = ((Dialog) item).getWindow();
+            if (window != null) {
+                dispatch(window.getDecorView(), index);
+            }
+        } else if (item instanceof PopupWindow) {
+            dispatch(((PopupWindow) item).getContentView(), index);
+        } else if (item instanceof Window) {
+            dispatch(((Window) item).getDecorView(), index);
+        } else if (item instanceof View) {
+            dispatch((View) item, index);
+        }
+    }
+
+    @Nullable
+    private static View getObserverRootView(@NonNull Object item) {
+        if (item instanceof Activity) {
+            return ((Activity) item).findViewById(Window.ID_ANDROID_CONTENT);
+        } else if (item instanceof Fragment) {
+            return ((Fragment) item).getView();
+        } else if (item instanceof Dialog) {
+            Window window = ((Dialog) item).getWindow();
+            return window == null ? null : window.getDecorView();
+        } else if (item instanceof PopupWindow) {
+            return ((PopupWindow) item).getContentView();
+        } else if (item instanceof Window) {
+            return ((Window) item).getDecorView();
+        } else if (item instanceof View) {
+            return (View) item;
+        }
+        return null;
+    }
+
+    private void runPendingDispatch(@NonNull PendingDispatch pending) {
+        Object item = pending.target.get();
+        if (item == null) {
+            return;
+        }
+        if (pending.isIndexedView) {
+            View view = (View) item;
+            view.removeOnAttachStateChangeListener(mPendingAttachListener);
+            if (!restorePendingIndexedView(view)) {
+                // already dispatched by runDispatch
+                return;
+            }
+            SkinItem skinItem = mSkins.get(mCurrentSkin);
+            dispatchToIndexedView(view, mCurrentSkin, skinItem == null ? null : skinItem.getTheme());
+            return;
+        }
+        View root = getObserverRootView(item);
+        if (root != null) {
+            root.removeOnAttachStateChangeListener(mPendingAttachListener);
+        }
+        dispatchToObserver(item, mCurrentSkin);
+    }
+
+    private void clearPendingDispatch() {
+        if (mPendingDispatchList.isEmpty()) {
+            return;
+        }
+        Choreographer.getInstance().removeFrameCallback(mPendingDispatchFrameCallback);
+        for (PendingDispatch pending : mPendingDispatchList) {
+            Object item = pending.target.get();
+            if (item == null) {
+                continue;
+            }
+            if (pending.isIndexedView) {
+                View view = (View) item;
+                view.removeOnAttachStateChangeListener(mPendingAttachListener);
+                // back to the index, it's dispatched with the index by the next change.
+                restorePendingIndexedView(view);
+            } else {
+                View root = getObserverRootView(item);
+                if (root != null) {
+                    root.removeOnAttachStateChangeListener(mPendingAttachListener);
+                }
+            }
+        }
+        mPendingDispatchList.clear();
+    }
+
+    /**
+     * @return false if the view is not waiting for its turn, such as dispatched by runDispatch already.
+     */
+    private boolean restorePendingIndexedView(@NonNull View view) {
+        Object current = view.getTag(R.id.qmui_skin_current);
+        if (current == mIndexedSkinCurrent) {
+            return false;
+        }
+        if (current == mPendingSkinCurrent && mIndexedSkinCurrent != null) {
+            view.setTag(R.id.qmui_skin_current, mIndexedSkinCurrent);
+        }
+        return true;
+    }
+
+    private void notifySkinChangeComplete() {
+        mIsInSkinChangeDispatch = true;
+        for (int i = mSkinChangeListeners.size() - 1; i >= 0; i--) {
+            OnSkinChangeListener item = mSkinChangeListeners.get(i);
+            item.onSkinChangeComplete(this, mCurrentSkin);
+        }
+        mIsInSkinChangeDispatch = false;
+    }
+
+    private final Choreographer.FrameCallback mPendingDispatchFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            long start = System.nanoTime();
+            PendingDispatch pending;
+            while ((pending = mPendingDispatchList.poll()) != null) {
+                runPendingDispatch(pending);
+                if (System.nanoTime() - start >= mAsyncDispatchFrameBudgetNs) {
+                    break;
+                }
+            }
+            if (mPendingDispatchList.isEmpty()) {
+                notifySkinChangeComplete();
+            } else {
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+    };
+
+    private final View.OnAttachStateChangeListener mPendingAttachListener = new View.OnAttachStateChangeListener() {
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            v.removeOnAttachStateChangeListener(this);
+            Iterator<PendingDispatch> iterator = mPendingDispatchList.iterator();
+            while (iterator.hasNext()) {
+                PendingDispatch pending = iterator.next();
+                Object item = pending.target.get();
+                if (item != null && (pending.isIndexedView ? item : getObserverRootView(item)) == v) {
+                    iterator.remove();
+                    runPendingDispatch(pending);
+                    break;
+                }
+            }
+            if (mPendingDispatchList.isEmpty()) {
+                Choreographer.getInstance().removeFrameCallback(mPendingDispatchFrameCallback);
+                notifySkinChangeComplete();
+            }
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+
+        }
+    };
+
+    static class PendingDispatch {
+        final WeakReference<Object> target;
+        final boolean isIndexedView;
+
+        PendingDispatch(Object target, boolean isIndexedView) {
+            this.target = new WeakReference<>(target);
+            this.isIndexedView = isIndexedView;
+        }
     }
 
     @MainThread
@@ -656,6 +1285,14 @@ public final class QMUISkinManager {
 
     public interface OnSkinChangeListener {
         void onSkinChange(QMUISkinManager skinManager, int oldSkin, int newSkin);
+
+        /**
+         * called after all observers are dispatched, it's later than
+         * {@link #onSkinChange(QMUISkinManager, int, int)} if {@link QMUISkinManager#changeSkinAsync(int)} is used.
+         */
+        default void onSkinChangeComplete(QMUISkinManager skinManager, int newSkin) {
+
+        }
     }
 
     class ViewSkinCurrent {
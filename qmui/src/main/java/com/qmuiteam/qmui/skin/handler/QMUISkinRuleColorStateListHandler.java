@@ -22,7 +22,6 @@ import android.view.View;
 import androidx.annotation.NonNull;
 
 import com.qmuiteam.qmui.skin.QMUISkinManager;
-import com.qmuiteam.qmui.util.QMUIResHelper;
 
 import org.jetbrains.annotations.NotNull;
 
@@ -30,7 +29,7 @@ public abstract class QMUISkinRuleColorStateListHandler implements IQMUISkinRule
     @Override
     public final void handle(@NotNull QMUISkinManager skinManager, @NotNull View view, @NotNull Resources.Theme theme,
                              @NotNull String name, int attr) {
-        handle(view, name, QMUIResHelper.getAttrColorStateList(view.getContext(), theme, attr));
+        handle(view, name, skinManager.getSkinColorStateList(view.getContext(), theme, attr));
     }
 
     protected abstract void handle(@NonNull View view,
@@ -19,6 +19,7 @@ package com.qmuiteam.qmui.widget;
 import android.view.View;
 import android.view.ViewGroup;
 
+import androidx.annotation.Nullable;
 import androidx.core.util.Pools;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -43,6 +44,9 @@ public abstract class QMUIItemViewsAdapter<T, V extends View> {
     // 不能简单的用mParentView的子views，因为可能mParentView有一些装饰子view,不应该归adapter管理
     private List<V> mViews = new ArrayList<>();
     private ViewGroup mParentView;
+    // mViews 对应的第一个数据的位置，只有 setupRange 时才可能不为 0
+    private int mFirstViewPosition = 0;
+    private boolean mIsRangeMode = false;
 
     public QMUIItemViewsAdapter(ViewGroup parentView) {
         mParentView = parentView;
@@ -51,30 +55,42 @@ public abstract class QMUIItemViewsAdapter<T, V extends View> {
     public void detach(int count) {
         int childCount = mViews.size();
         while (childCount > 0 && count > 0) {
-            V view = mViews.remove(childCount - 1);
-            if (mCachePool == null) {
-                mCachePool = new Pools.SimplePool<>(12);
-            }
-
-            // 做简单cache，如果V需要动态添加子view，则业务保证不做cache
-            Object notCacheTag = view.getTag(R.id.qmui_view_can_not_cache_tag);
-            if (notCacheTag == null || !(boolean) notCacheTag) {
-                try {
-                    onViewRecycled(view);
-                    mCachePool.release(view);
-                } catch (Exception ignored) {
-                }
-            }
-
-            mParentView.removeView(view);
+            recycleView(mViews.remove(childCount - 1));
             childCount--;
             count--;
         }
     }
 
+    private void detachFromHead(int count) {
+        while (!mViews.isEmpty() && count > 0) {
+            recycleView(mViews.remove(0));
+            mFirstViewPosition++;
+            count--;
+        }
+    }
+
+    private void recycleView(V view) {
+        if (mCachePool == null) {
+            mCachePool = new Pools.SimplePool<>(12);
+        }
+
+        // 做简单cache，如果V需要动态添加子view，则业务保证不做cache
+        Object notCacheTag = view.getTag(R.id.qmui_view_can_not_cache_tag);
+        if (notCacheTag == null || !(boolean) notCacheTag) {
+            try {
+                onViewRecycled(view);
+                mCachePool.release(view);
+            } catch (Exception ignored) {
+            }
+        }
+
+        mParentView.removeView(view);
+    }
+
     public void clear() {
         mItemData.clear();
         detach(mViews.size());
+        mFirstViewPosition = 0;
     }
 
     private V getView() {
@@ -97,6 +113,11 @@ public abstract class QMUIItemViewsAdapter<T, V extends View> {
     }
 
     public void setup() {
+        if (mIsRangeMode) {
+            detach(mViews.size());
+            mIsRangeMode = false;
+        }
+        mFirstViewPosition = 0;
         int itemCount = mItemData.size();
         int childCount = mViews.size();
         int i;
@@ -121,6 +142,124 @@ public abstract class QMUIItemViewsAdapter<T, V extends View> {
 
     }
 
+    /**
+     * 只重新 bind 指定位置的 View，其它 View 保持不变
+     *
+     * @return false 表示 View 与数据还没有一一对应（需要先调用 {@link #setup()}），此时不做任何处理
+     */
+    public boolean notifyItemChanged(int position) {
+        if (position < 0 || position >= mItemData.size()) {
+            return false;
+        }
+        if (mIsRangeMode) {
+            if (mFirstViewPosition + mViews.size() > mItemData.size()) {
+                return false;
+            }
+        } else if (mViews.size() != mItemData.size()) {
+            return false;
+        }
+        V view = getViewAt(position);
+        if (view != null) {
+            rebind(mItemData.get(position), view, position);
+        }
+        return true;
+    }
+
+    /**
+     * 只为 [start, end) 范围内的数据创建并绑定 View，范围外的 View 会被回收复用，适用于数据量很大、
+     * 只有一部分 View 可见的场景。已经在范围内的 View 只有在 rebind 为 true 时才会重新 bind。
+     * 调用 {@link #setup()} 后回到为全部数据创建 View 的模式。
+     */
+    public void setupRange(int start, int end, boolean rebind) {
+        int itemCount = mItemData.size();
+        end = Math.max(0, Math.min(end, itemCount));
+        start = Math.max(0, Math.min(start, end));
+        if (!mIsRangeMode) {
+            mIsRangeMode = true;
+            if (mViews.size() > itemCount) {
+                detach(mViews.size() - itemCount);
+            }
+        }
+        int oldStart = mFirstViewPosition;
+        int oldEnd = oldStart + mViews.size();
+        if (start >= oldEnd || end <= oldStart) {
+            detach(mViews.size());
+            oldStart = oldEnd = start;
+        } else {
+            if (oldEnd > end) {
+                detach(oldEnd - end);
+                oldEnd = end;
+            }
+            if (oldStart < start) {
+                detachFromHead(start - oldStart);
+                oldStart = start;
+            }
+        }
+        mFirstViewPosition = start;
+        int i;
+        if (rebind) {
+            for (i = oldStart; i < oldEnd; i++) {
+                bind(mItemData.get(i), mViews.get(i - oldStart), i);
+            }
+        }
+        for (i = oldStart - 1; i >= start; i--) {
+            V view = getView();
+            mParentView.addView(view);
+            mViews.add(0, view);
+        }
+        for (i = start; i < oldStart; i++) {
+            bind(mItemData.get(i), mViews.get(i - start), i);
+        }
+        for (i = oldEnd; i < end; i++) {
+            V view = getView();
+            mParentView.addView(view);
+            mViews.add(view);
+            bind(mItemData.get(i), view, i);
+        }
+    }
+
+    /**
+     * @return position 对应的 View，没有为其创建 View 时返回 null
+     */
+    @Nullable
+    public V getViewAt(int position) {
+        int index = position - mFirstViewPosition;
+        if (index < 0 || index >= mViews.size()) {
+            return null;
+        }
+        return mViews.get(index);
+    }
+
+    /**
+     * @return view 对应的数据位置，不是由 adapter 管理的 View 返回 -1
+     */
+    public int getPositionOfView(V view) {
+        int index = mViews.indexOf(view);
+        return index < 0 ? -1 : index + mFirstViewPosition;
+    }
+
+    /**
+     * @return 是否处于 {@link #setupRange(int, int, boolean)} 的模式
+     */
+    public boolean isRangeMode() {
+        return mIsRangeMode;
+    }
+
+    /**
+     * @return {@link #getViews()} 中第一个 View 对应的数据位置
+     */
+    public int getFirstViewPosition() {
+        return mFirstViewPosition;
+    }
+
+    /**
+     * {@link #notifyItemChanged(int)} 时调用，默认与 {@link #bind(Object, View, int)} 相同，
+     * 子类可以覆盖以保留 View 的状态
+     */
+    protected void rebind(T item, V view, int position) {
+        bind(item, view, position);
+    }
+
     public T getItem(int position) {
         if (mItemData == null) {
             return null;
@@ -24,18 +24,19 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorFilter;
 import android.graphics.Matrix;
+import android.graphics.Outline;
 import android.graphics.Paint;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffColorFilter;
 import android.graphics.RectF;
 import android.graphics.Shader;
 import android.graphics.drawable.BitmapDrawable;
-import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
-import android.os.Build;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewOutlineProvider;
 
 import com.qmuiteam.qmui.R;
 
@@ -43,6 +44,8 @@ import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
 import androidx.appcompat.widget.AppCompatImageView;
 
+import java.util.ArrayList;
+
 /**
  * 提供为图片添加圆角、边框、剪裁到圆形或其他形状等功能。
  * shown radius image in view, is different to {@link QMUIRadiusImageView2}
@@ -54,7 +57,9 @@ public class QMUIRadiusImageView extends AppCompatImageView {
     private static final int DEFAULT_BORDER_COLOR = Color.GRAY;
 
     private static final Bitmap.Config BITMAP_CONFIG = Bitmap.Config.ARGB_8888;
-    private static final int COLOR_DRAWABLE_DIMEN = 2;
+    private static final int RASTERIZE_POOL_SIZE = 8;
+    // bitmaps for rasterizing the drawables that can not be clipped by outline, only accessed in main thread
+    private static final ArrayList<Bitmap> sRasterizePool = new ArrayList<>();
 
     private boolean mIsSelected = false;
     private boolean mIsOval = false;
@@ -81,6 +86,12 @@ public class QMUIRadiusImageView extends AppCompatImageView {
     private RectF mDrawRectF = new RectF();
 
     private Bitmap mBitmap;
+    // the bitmap is scaled up by mBitmapScale to ensure minWidth and minHeight
+    private float mBitmapScale = 1f;
+    private boolean mIsBitmapRasterized;
+    // draw the drawable directly and clip it by outline, no bitmap is needed
+    private boolean mIsDrawableMode;
+    private ViewOutlineProvider mDrawableModeOutlineProvider;
 
     private Matrix mMatrix;
     private int mWidth;
@@ -131,6 +142,8 @@ public class QMUIRadiusImageView extends AppCompatImageView {
                     R.styleable.QMUIRadiusImageView_qmui_corner_radius, 0);
         }
         array.recycle();
+        // the drawable may be set by the super constructor before the attributes are read
+        setupBitmap();
     }
 
     @Override
@@ -158,6 +171,9 @@ public class QMUIRadiusImageView extends AppCompatImageView {
         if (mCornerRadius != cornerRadius) {
             mCornerRadius = cornerRadius;
             if (!mIsCircle && !mIsOval) {
+                if (mIsDrawableMode) {
+                    invalidateOutline();
+                }
                 invalidate();
             }
         }
@@ -191,6 +207,7 @@ public class QMUIRadiusImageView extends AppCompatImageView {
                 mSelectedColorFilter = null;
             }
             if (mIsSelected) {
+                applyDrawableModeColorFilter();
                 invalidate();
             }
         }
@@ -201,6 +218,10 @@ public class QMUIRadiusImageView extends AppCompatImageView {
     public void setCircle(boolean isCircle) {
         if (mIsCircle != isCircle) {
             mIsCircle = isCircle;
+            setupBitmap();
+            if (mIsDrawableMode) {
+                invalidateOutline();
+            }
             requestLayout();
             invalidate();
         }
@@ -218,6 +239,10 @@ public class QMUIRadiusImageView extends AppCompatImageView {
         }
         if (mIsOval != isOval || forceUpdate) {
             mIsOval = isOval;
+            setupBitmap();
+            if (mIsDrawableMode) {
+                invalidateOutline();
+            }
             requestLayout();
             invalidate();
         }
@@ -263,6 +288,7 @@ public class QMUIRadiusImageView extends AppCompatImageView {
     public void setSelected(boolean isSelected) {
         if (mIsSelected != isSelected) {
             mIsSelected = isSelected;
+            applyDrawableModeColorFilter();
             invalidate();
         }
     }
@@ -281,6 +307,7 @@ public class QMUIRadiusImageView extends AppCompatImageView {
         }
         mSelectedColorFilter = cf;
         if (mIsSelected) {
+            applyDrawableModeColorFilter();
             invalidate();
         }
     }
@@ -292,6 +319,7 @@ public class QMUIRadiusImageView extends AppCompatImageView {
         }
         mColorFilter = cf;
         if (!mIsSelected) {
+            applyDrawableModeColorFilter();
             invalidate();
         }
     }
@@ -312,11 +340,21 @@ public class QMUIRadiusImageView extends AppCompatImageView {
             } else if (heightMode == MeasureSpec.EXACTLY) {
                 setMeasuredDimension(heightSize, heightSize);
             } else {
-                if (mBitmap == null) {
+                int contentWidth, contentHeight;
+                if (mBitmap != null) {
+                    contentWidth = (int) (mBitmap.getWidth() * mBitmapScale);
+                    contentHeight = (int) (mBitmap.getHeight() * mBitmapScale);
+                } else if (mIsDrawableMode) {
+                    contentWidth = Math.max(getDrawable().getIntrinsicWidth(), getMinimumWidth());
+                    contentHeight = Math.max(getDrawable().getIntrinsicHeight(), getMinimumHeight());
+                } else {
+                    contentWidth = contentHeight = 0;
+                }
+                if (contentWidth <= 0 || contentHeight <= 0) {
                     setMeasuredDimension(0, 0);
                 } else {
-                    int w = Math.min(mBitmap.getWidth(), widthSize);
-                    int h = Math.min(mBitmap.getHeight(), heightSize);
+                    int w = Math.min(contentWidth, widthSize);
+                    int h = Math.min(contentHeight, heightSize);
                     int size = Math.min(w, h);
                     setMeasuredDimension(size, size);
                 }
@@ -340,6 +378,14 @@ public class QMUIRadiusImageView extends AppCompatImageView {
         setupBitmap();
     }
 
+    /**
+     * the drawable can be drawn directly and clipped by outline if it's not a bitmap,
+     * outline can not clip a non-circle oval, so the drawable needs to be rasterized in that case.
+     */
+    private boolean canUseDrawableMode(Drawable drawable) {
+        return drawable != null && !(drawable instanceof BitmapDrawable) && (mIsCircle || !mIsOval);
+    }
+
     private Bitmap getBitmap() {
         Drawable drawable = getDrawable();
         if (drawable == null) {
@@ -348,39 +394,20 @@ public class QMUIRadiusImageView extends AppCompatImageView {
 
         if (drawable instanceof BitmapDrawable) {
             Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
-            if (bitmap == null) {
-                return null;
-            }
-            float bmWidth = bitmap.getWidth(), bmHeight = bitmap.getHeight();
-            if (bmWidth == 0 || bmHeight == 0) {
+            if (bitmap == null || bitmap.getWidth() == 0 || bitmap.getHeight() == 0) {
                 return null;
             }
-
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
-                // ensure minWidth and minHeight
-                float minScaleX = getMinimumWidth() / bmWidth, minScaleY = getMinimumHeight() / bmHeight;
-                if (minScaleX > 1 || minScaleY > 1) {
-                    float scale = Math.max(minScaleX, minScaleY);
-                    Matrix matrix = new Matrix();
-                    matrix.postScale(scale, scale);
-
-                    return Bitmap.createBitmap(
-                            bitmap, 0, 0, (int) bmWidth, (int) bmHeight, matrix, false);
-                }
-            }
             return bitmap;
         }
 
         try {
-            Bitmap bitmap;
-
-            if (drawable instanceof ColorDrawable) {
-                bitmap = Bitmap.createBitmap(COLOR_DRAWABLE_DIMEN, COLOR_DRAWABLE_DIMEN, BITMAP_CONFIG);
-            } else {
-                bitmap = Bitmap.createBitmap(
-                        drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight(), BITMAP_CONFIG);
+            int width = drawable.getIntrinsicWidth(), height = drawable.getIntrinsicHeight();
+            if (width <= 0 || height <= 0) {
+                // such as ColorDrawable
+                width = Math.max(getWidth(), 1);
+                height = Math.max(getHeight(), 1);
             }
-
+            Bitmap bitmap = obtainRasterizeBitmap(width, height);
             Canvas canvas = new Canvas(bitmap);
             drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
             drawable.draw(canvas);
@@ -391,10 +418,35 @@ public class QMUIRadiusImageView extends AppCompatImageView {
         }
     }
 
+    private float getMinimumBitmapScale(Bitmap bitmap) {
+        // ensure minWidth and minHeight
+        float bmWidth = bitmap.getWidth(), bmHeight = bitmap.getHeight();
+        float minScaleX = getMinimumWidth() / bmWidth, minScaleY = getMinimumHeight() / bmHeight;
+        if (minScaleX > 1 || minScaleY > 1) {
+            return Math.max(minScaleX, minScaleY);
+        }
+        return 1f;
+    }
+
 
     public void setupBitmap() {
-        Bitmap bm = getBitmap();
-        if (bm == mBitmap) {
+        Drawable drawable = getDrawable();
+        setDrawableMode(canUseDrawableMode(drawable));
+        Bitmap bm = mIsDrawableMode ? null : getBitmap();
+        float bitmapScale = bm == null ? 1f : getMinimumBitmapScale(bm);
+        if (bm == mBitmap && bitmapScale == mBitmapScale) {
+            return;
+        }
+        if (mIsBitmapRasterized && mBitmap != null && mBitmap != bm) {
+            releaseRasterizeBitmap(mBitmap);
+        }
+        mIsBitmapRasterized = bm != null && !(drawable instanceof BitmapDrawable);
+        mBitmapScale = bitmapScale;
+        if (bm == mBitmap && mBitmapShader != null) {
+            // only the scale is changed, the shader can be reused
+            mNeedResetShader = true;
+            requestLayout();
+            invalidate();
             return;
         }
         mBitmap = bm;
@@ -414,6 +466,47 @@ public class QMUIRadiusImageView extends AppCompatImageView {
         invalidate();
     }
 
+    private void setDrawableMode(boolean drawableMode) {
+        if (mIsDrawableMode == drawableMode) {
+            return;
+        }
+        mIsDrawableMode = drawableMode;
+        if (drawableMode) {
+            if (mDrawableModeOutlineProvider == null) {
+                mDrawableModeOutlineProvider = new ViewOutlineProvider() {
+                    @Override
+                    public void getOutline(View view, Outline outline) {
+                        int w = view.getWidth(), h = view.getHeight();
+                        if (w <= 0 || h <= 0) {
+                            return;
+                        }
+                        if (mIsCircle) {
+                            int size = Math.min(w, h);
+                            int left = (w - size) / 2, top = (h - size) / 2;
+                            outline.setOval(left, top, left + size, top + size);
+                        } else {
+                            outline.setRoundRect(0, 0, w, h, mCornerRadius);
+                        }
+                    }
+                };
+            }
+            setOutlineProvider(mDrawableModeOutlineProvider);
+            setClipToOutline(true);
+        } else {
+            setOutlineProvider(ViewOutlineProvider.BACKGROUND);
+            setClipToOutline(false);
+        }
+        applyDrawableModeColorFilter();
+        invalidate();
+    }
+
+    private void applyDrawableModeColorFilter() {
+        if (mIsDrawableMode) {
+            // the drawable is drawn by ImageView in drawable mode
+            super.setColorFilter(mIsSelected ? mSelectedColorFilter : mColorFilter);
+        }
+    }
+
     private void updateBitmapShader() {
         mMatrix.reset();
         mNeedResetShader = false;
@@ -425,12 +518,35 @@ public class QMUIRadiusImageView extends AppCompatImageView {
         mBitmapPaint.setShader(mBitmapShader);
     }
 
+    private static Bitmap obtainRasterizeBitmap(int width, int height) {
+        for (int i = sRasterizePool.size() - 1; i >= 0; i--) {
+            Bitmap bitmap = sRasterizePool.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                sRasterizePool.remove(i);
+                bitmap.eraseColor(Color.TRANSPARENT);
+                return bitmap;
+            }
+        }
+        return Bitmap.createBitmap(width, height, BITMAP_CONFIG);
+    }
+
+    private static void releaseRasterizeBitmap(Bitmap bitmap) {
+        if (bitmap.isRecycled()) {
+            return;
+        }
+        if (sRasterizePool.size() >= RASTERIZE_POOL_SIZE) {
+            sRasterizePool.remove(0);
+        }
+        sRasterizePool.add(bitmap);
+    }
+
     private void updateMatrix(@NonNull Matrix matrix, @NonNull Bitmap bitmap, RectF drawRect) {
-        final float bmWidth = bitmap.getWidth();
-        final float bmHeight = bitmap.getHeight();
+        final float bmWidth = bitmap.getWidth() * mBitmapScale;
+        final float bmHeight = bitmap.getHeight() * mBitmapScale;
         final ScaleType scaleType = getScaleType();
         if (scaleType == ScaleType.MATRIX) {
             updateScaleTypeMatrix(matrix, bitmap, drawRect);
+            return;
         } else if (scaleType == ScaleType.CENTER) {
             float left = (mWidth - bmWidth) / 2;
             float top = (mHeight - bmHeight) / 2;
@@ -483,7 +599,8 @@ public class QMUIRadiusImageView extends AppCompatImageView {
                 drawRect.set(mWidth - bw, mHeight - bh, mWidth, mHeight);
             }
         }
-
+        // the bitmap is scaled to bmWidth * bmHeight by the shader instead of creating a scaled copy
+        matrix.preScale(mBitmapScale, mBitmapScale);
     }
 
     protected void updateScaleTypeMatrix(@NonNull Matrix matrix, @NonNull Bitmap bitmap, RectF drawRect) {
@@ -544,6 +661,13 @@ public class QMUIRadiusImageView extends AppCompatImageView {
 
         int borderWidth = mIsSelected ? mSelectedBorderWidth : mBorderWidth;
 
+        if (mIsDrawableMode) {
+            super.onDraw(canvas);
+            mRectF.set(0, 0, width, height);
+            drawBorder(canvas, borderWidth);
+            return;
+        }
+
         if (mBitmap == null || mBitmapShader == null) {
             drawBorder(canvas, borderWidth);
             return;
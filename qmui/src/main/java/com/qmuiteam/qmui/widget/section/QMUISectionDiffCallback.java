@@ -35,11 +35,8 @@ public class QMUISectionDiffCallback<H extends QMUISection.Model<H>, T extends Q
     private ArrayList<QMUISection<H, T>> mOldList = new ArrayList<>();
     private ArrayList<QMUISection<H, T>> mNewList = new ArrayList<>();
 
-    private ArrayList<Integer> mOldSectionIndex = new ArrayList<>();
-    private ArrayList<Integer> mOldItemIndex = new ArrayList<>();
-
-    private ArrayList<Integer> mNewSectionIndex = new ArrayList<>();
-    private ArrayList<Integer> mNewItemIndex = new ArrayList<>();
+    private QMUISectionIndex mOldIndex = new QMUISectionIndex();
+    private QMUISectionIndex mNewIndex = new QMUISectionIndex();
     private boolean mRemoveSectionTitleIfOnlyOnceSection;
 
     public QMUISectionDiffCallback(
@@ -56,66 +53,104 @@ public class QMUISectionDiffCallback<H extends QMUISection.Model<H>, T extends Q
 
     void generateIndex(boolean removeSectionTitleIfOnlyOnceSection){
         mRemoveSectionTitleIfOnlyOnceSection = removeSectionTitleIfOnlyOnceSection;
-        generateIndex(mOldList, mOldSectionIndex, mOldItemIndex, removeSectionTitleIfOnlyOnceSection);
-        generateIndex(mNewList, mNewSectionIndex, mNewItemIndex, removeSectionTitleIfOnlyOnceSection);
+        generateIndex(mOldList, mOldIndex, removeSectionTitleIfOnlyOnceSection);
+        generateIndex(mNewList, mNewIndex, removeSectionTitleIfOnlyOnceSection);
+    }
+
+    /**
+     * only generate the index of new list, used when diff is not needed.
+     */
+    void generateNewIndex(boolean removeSectionTitleIfOnlyOnceSection) {
+        mRemoveSectionTitleIfOnlyOnceSection = removeSectionTitleIfOnlyOnceSection;
+        generateIndex(mNewList, mNewIndex, removeSectionTitleIfOnlyOnceSection);
     }
 
     public void cloneNewIndexTo(@NonNull ArrayList<Integer> sectionIndex, @NonNull ArrayList<Integer> itemIndex) {
         sectionIndex.clear();
         itemIndex.clear();
-        sectionIndex.ensureCapacity(mNewSectionIndex.size());
-        itemIndex.ensureCapacity(mNewItemIndex.size());
-        for (int i = 0; i < mNewSectionIndex.size(); i++) {
-            sectionIndex.add(i, mNewSectionIndex.get(i));
-        }
-        for (int i = 0; i < mNewItemIndex.size(); i++) {
-            itemIndex.add(i, mNewItemIndex.get(i));
+        sectionIndex.ensureCapacity(mNewIndex.size());
+        itemIndex.ensureCapacity(mNewIndex.size());
+        for (int i = 0; i < mNewIndex.size(); i++) {
+            sectionIndex.add(mNewIndex.getSectionIndex(i));
+            itemIndex.add(mNewIndex.getItemIndex(i));
         }
     }
 
+    /**
+     * the generated index of new list, the callback should not be used to generate index again after calling this.
+     */
+    QMUISectionIndex getNewIndex() {
+        return mNewIndex;
+    }
+
     private void generateIndex(List<QMUISection<H, T>> list,
-                               ArrayList<Integer> sectionIndex, ArrayList<Integer> itemIndex,
+                               QMUISectionIndex index,
                                boolean removeSectionTitleIfOnlyOnceSection) {
-        sectionIndex.clear();
-        itemIndex.clear();
-        IndexGenerationInfo generationInfo = new IndexGenerationInfo(sectionIndex, itemIndex);
-        if (list.isEmpty() || !list.get(0).isLocked()) {
+        index.clear();
+        IndexGenerationInfo generationInfo = new IndexGenerationInfo(index);
+        if (isBeforeSectionListIndexNeeded(list)) {
             onGenerateCustomIndexBeforeSectionList(generationInfo, list);
         }
 
         for (int i = 0; i < list.size(); i++) {
-            QMUISection<H, T> section = list.get(i);
-            if (section.isLocked()) {
-                continue;
-            }
-            if(!removeSectionTitleIfOnlyOnceSection || list.size() > 1){
-                generationInfo.appendIndex(i, ITEM_INDEX_SECTION_HEADER);
-            }
-            if (section.isFold()) {
-                continue;
-            }
-            onGenerateCustomIndexBeforeItemList(generationInfo, section, i);
-            if (section.isExistBeforeDataToLoad()) {
-                generationInfo.appendIndex(i, ITEM_INDEX_LOAD_BEFORE);
-            }
+            index.startSection(i);
+            generateSectionIndex(generationInfo, list, i, removeSectionTitleIfOnlyOnceSection);
+        }
+        index.finishSections(list.size());
+        if (isAfterSectionListIndexNeeded(list)) {
+            onGenerateCustomIndexAfterSectionList(generationInfo, list);
+        }
+    }
 
-            for (int j = 0; j < section.getItemCount(); j++) {
-                generationInfo.appendIndex(i, j);
-            }
+    /**
+     * regenerate the index of one section in new list
+     *
+     * @param sectionIndex the index of section in new list
+     * @param out          the index of the section is output to it
+     */
+    void generateNewSectionIndex(int sectionIndex, QMUISectionIndex out, boolean removeSectionTitleIfOnlyOnceSection) {
+        mRemoveSectionTitleIfOnlyOnceSection = removeSectionTitleIfOnlyOnceSection;
+        out.clear();
+        generateSectionIndex(new IndexGenerationInfo(out), mNewList, sectionIndex, removeSectionTitleIfOnlyOnceSection);
+    }
 
-            if (section.isExistAfterDataToLoad()) {
-                generationInfo.appendIndex(i, ITEM_INDEX_LOAD_AFTER);
-            }
-            onGenerateCustomIndexAfterItemList(generationInfo, section, i);
+    private void generateSectionIndex(IndexGenerationInfo generationInfo, List<QMUISection<H, T>> list, int i,
+                                      boolean removeSectionTitleIfOnlyOnceSection) {
+        QMUISection<H, T> section = list.get(i);
+        if (section.isLocked()) {
+            return;
+        }
+        if(!removeSectionTitleIfOnlyOnceSection || list.size() > 1){
+            generationInfo.appendIndex(i, ITEM_INDEX_SECTION_HEADER);
+        }
+        if (section.isFold()) {
+            return;
         }
+        onGenerateCustomIndexBeforeItemList(generationInfo, section, i);
+        if (section.isExistBeforeDataToLoad()) {
+            generationInfo.appendIndex(i, ITEM_INDEX_LOAD_BEFORE);
+        }
+
+        for (int j = 0; j < section.getItemCount(); j++) {
+            generationInfo.appendIndex(i, j);
+        }
+
+        if (section.isExistAfterDataToLoad()) {
+            generationInfo.appendIndex(i, ITEM_INDEX_LOAD_AFTER);
+        }
+        onGenerateCustomIndexAfterItemList(generationInfo, section, i);
+    }
+
+    static boolean isBeforeSectionListIndexNeeded(List<? extends QMUISection<?, ?>> list) {
+        return list.isEmpty() || !list.get(0).isLocked();
+    }
+
+    static boolean isAfterSectionListIndexNeeded(List<? extends QMUISection<?, ?>> list) {
         if (list.isEmpty()) {
-            onGenerateCustomIndexAfterSectionList(generationInfo, list);
-        } else {
-            QMUISection lastSection = list.get(list.size() - 1);
-            if (!lastSection.isLocked() && (lastSection.isFold() || !lastSection.isExistAfterDataToLoad())) {
-                onGenerateCustomIndexAfterSectionList(generationInfo, list);
-            }
+            return true;
         }
+        QMUISection<?, ?> lastSection = list.get(list.size() - 1);
+        return !lastSection.isLocked() && (lastSection.isFold() || !lastSection.isExistAfterDataToLoad());
     }
 
     /**
@@ -179,21 +214,21 @@ public class QMUISectionDiffCallback<H extends QMUISection.Model<H>, T extends Q
 
     @Override
     public int getOldListSize() {
-        return mOldSectionIndex.size();
+        return mOldIndex.size();
     }
 
     @Override
     public int getNewListSize() {
-        return mNewSectionIndex.size();
+        return mNewIndex.size();
     }
 
     @Override
     public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-        int oldSectionIndex = mOldSectionIndex.get(oldItemPosition);
-        int oldItemIndex = mOldItemIndex.get(oldItemPosition);
+        int oldSectionIndex = mOldIndex.getSectionIndex(oldItemPosition);
+        int oldItemIndex = mOldIndex.getItemIndex(oldItemPosition);
 
-        int newSectionIndex = mNewSectionIndex.get(newItemPosition);
-        int newItemIndex = mNewItemIndex.get(newItemPosition);
+        int newSectionIndex = mNewIndex.getSectionIndex(newItemPosition);
+        int newItemIndex = mNewIndex.getItemIndex(newItemPosition);
 
         if (oldSectionIndex < 0 || newSectionIndex < 0) {
             return oldSectionIndex == newSectionIndex && oldItemIndex == newItemIndex;
@@ -225,11 +260,11 @@ public class QMUISectionDiffCallback<H extends QMUISection.Model<H>, T extends Q
 
     @Override
     public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-        int oldSectionIndex = mOldSectionIndex.get(oldItemPosition);
-        int oldItemIndex = mOldItemIndex.get(oldItemPosition);
+        int oldSectionIndex = mOldIndex.getSectionIndex(oldItemPosition);
+        int oldItemIndex = mOldIndex.getItemIndex(oldItemPosition);
 
-        int newSectionIndex = mNewSectionIndex.get(newItemPosition);
-        int newItemIndex = mNewItemIndex.get(newItemPosition);
+        int newSectionIndex = mNewIndex.getSectionIndex(newItemPosition);
+        int newItemIndex = mNewIndex.getItemIndex(newItemPosition);
 
         if (newSectionIndex < 0) {
             return areCustomContentsTheSame(null, oldItemIndex, null, newItemIndex);
@@ -271,12 +306,10 @@ public class QMUISectionDiffCallback<H extends QMUISection.Model<H>, T extends Q
     }
 
     public static class IndexGenerationInfo {
-        private ArrayList<Integer> sectionIndexArray;
-        private ArrayList<Integer> itemIndexArray;
+        private QMUISectionIndex index;
 
-        private IndexGenerationInfo(ArrayList<Integer> sectionIndex, ArrayList<Integer> itemIndex) {
-            sectionIndexArray = sectionIndex;
-            itemIndexArray = itemIndex;
+        private IndexGenerationInfo(QMUISectionIndex index) {
+            this.index = index;
         }
 
         public final void appendCustomIndex(int sectionIndex, int itemIndex) {
@@ -293,8 +326,7 @@ public class QMUISectionDiffCallback<H extends QMUISection.Model<H>, T extends Q
             if (sectionIndex < 0) {
                 throw new IllegalArgumentException("use appendWholeListCustomIndex for whole list");
             }
-            sectionIndexArray.add(sectionIndex);
-            itemIndexArray.add(itemIndex);
+            index.append(sectionIndex, itemIndex);
         }
 
         public final void appendWholeListCustomIndex(int itemIndex) {
@@ -307,8 +339,7 @@ public class QMUISectionDiffCallback<H extends QMUISection.Model<H>, T extends Q
         }
 
         private void appendWholeListIndex(int itemIndex) {
-            sectionIndexArray.add(QMUISection.SECTION_INDEX_UNKNOWN);
-            itemIndexArray.add(itemIndex);
+            index.append(QMUISection.SECTION_INDEX_UNKNOWN, itemIndex);
         }
     }
 }
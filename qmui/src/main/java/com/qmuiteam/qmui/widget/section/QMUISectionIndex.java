@@ -0,0 +1,141 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qmuiteam.qmui.widget.section;
+
+import java.util.Arrays;
+
+/**
+ * the flattened adapter position -> (section index, item index) map, backed by int arrays
+ * to avoid boxing on large lists.
+ * <p>
+ * The positions of a section are continuous, and the start position of every section is
+ * recorded as prefix sums, so the positions of one section can be replaced without
+ * regenerating the whole index.
+ */
+final class QMUISectionIndex {
+    private int[] mSectionIndex;
+    private int[] mItemIndex;
+    private int mSize = 0;
+    // mSectionStart[i] is the start position of section i, mSectionStart[mSectionCount] is the end of the last section
+    private int[] mSectionStart = new int[1];
+    private int mSectionCount = -1;
+
+    QMUISectionIndex() {
+        this(16);
+    }
+
+    QMUISectionIndex(int initCapacity) {
+        mSectionIndex = new int[Math.max(initCapacity, 1)];
+        mItemIndex = new int[mSectionIndex.length];
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    void clear() {
+        mSize = 0;
+        mSectionCount = -1;
+    }
+
+    /**
+     * called before appending the positions of section
+     */
+    void startSection(int sectionIndex) {
+        ensureSectionCapacity(sectionIndex + 2);
+        mSectionStart[sectionIndex] = mSize;
+    }
+
+    /**
+     * called after all the sections are appended
+     */
+    void finishSections(int sectionCount) {
+        ensureSectionCapacity(sectionCount + 1);
+        mSectionStart[sectionCount] = mSize;
+        mSectionCount = sectionCount;
+    }
+
+    /**
+     * @return the section count if the section ranges are recorded, otherwise -1
+     */
+    int getSectionCount() {
+        return mSectionCount;
+    }
+
+    int getSectionStart(int sectionIndex) {
+        return mSectionStart[sectionIndex];
+    }
+
+    int getSectionLength(int sectionIndex) {
+        return mSectionStart[sectionIndex + 1] - mSectionStart[sectionIndex];
+    }
+
+    /**
+     * replace the positions of the section with the positions in segment
+     */
+    void replaceSection(int sectionIndex, QMUISectionIndex segment) {
+        int start = mSectionStart[sectionIndex];
+        int oldEnd = mSectionStart[sectionIndex + 1];
+        int delta = segment.mSize - (oldEnd - start);
+        if (delta != 0) {
+            ensureCapacity(mSize + delta);
+            System.arraycopy(mSectionIndex, oldEnd, mSectionIndex, oldEnd + delta, mSize - oldEnd);
+            System.arraycopy(mItemIndex, oldEnd, mItemIndex, oldEnd + delta, mSize - oldEnd);
+            mSize += delta;
+            for (int i = sectionIndex + 1; i <= mSectionCount; i++) {
+                mSectionStart[i] += delta;
+            }
+        }
+        System.arraycopy(segment.mSectionIndex, 0, mSectionIndex, start, segment.mSize);
+        System.arraycopy(segment.mItemIndex, 0, mItemIndex, start, segment.mSize);
+    }
+
+    void append(int sectionIndex, int itemIndex) {
+        ensureCapacity(mSize + 1);
+        mSectionIndex[mSize] = sectionIndex;
+        mItemIndex[mSize] = itemIndex;
+        mSize++;
+    }
+
+    int getSectionIndex(int position) {
+        if (position < 0 || position >= mSize) {
+            return QMUISection.SECTION_INDEX_UNKNOWN;
+        }
+        return mSectionIndex[position];
+    }
+
+    int getItemIndex(int position) {
+        if (position < 0 || position >= mSize) {
+            return QMUISection.ITEM_INDEX_UNKNOWN;
+        }
+        return mItemIndex[position];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > mSectionIndex.length) {
+            int newCapacity = Math.max(capacity, mSectionIndex.length * 2);
+            mSectionIndex = Arrays.copyOf(mSectionIndex, newCapacity);
+            mItemIndex = Arrays.copyOf(mItemIndex, newCapacity);
+        }
+    }
+
+    private void ensureSectionCapacity(int capacity) {
+        if (capacity > mSectionStart.length) {
+            mSectionStart = Arrays.copyOf(mSectionStart, Math.max(capacity, mSectionStart.length * 2));
+        }
+    }
+}
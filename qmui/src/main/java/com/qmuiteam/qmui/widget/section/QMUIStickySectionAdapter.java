@@ -20,6 +20,8 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.util.SparseIntArray;
 import android.view.View;
@@ -27,6 +29,7 @@ import android.view.ViewGroup;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import static com.qmuiteam.qmui.widget.section.QMUISection.ITEM_INDEX_CUSTOM_OFFSET;
 import static com.qmuiteam.qmui.widget.section.QMUISection.ITEM_INDEX_LOAD_AFTER;
@@ -36,6 +39,7 @@ import static com.qmuiteam.qmui.widget.section.QMUISection.ITEM_INDEX_SECTION_HE
 public abstract class QMUIStickySectionAdapter<
         H extends QMUISection.Model<H>, T extends QMUISection.Model<T>, VH extends QMUIStickySectionAdapter.ViewHolder> extends RecyclerView.Adapter<VH> {
     private static final String TAG = "StickySectionAdapter";
+    private static final Object HEADER_KEY = new Object();
     public static final int ITEM_TYPE_UNKNOWN = -1;
     public static final int ITEM_TYPE_SECTION_HEADER = 0;
     public static final int ITEM_TYPE_SECTION_ITEM = 1;
@@ -45,8 +49,7 @@ public abstract class QMUIStickySectionAdapter<
     private List<QMUISection<H, T>> mBackupData = new ArrayList<>();
     private List<QMUISection<H, T>> mCurrentData = new ArrayList<>();
 
-    private ArrayList<Integer> mSectionIndex = new ArrayList<>();
-    private ArrayList<Integer> mItemIndex = new ArrayList<>();
+    private QMUISectionIndex mIndex = new QMUISectionIndex();
     private ArrayList<QMUISection<H, T>> mLoadingBeforeSections = new ArrayList<>(2);
     private ArrayList<QMUISection<H, T>> mLoadingAfterSections = new ArrayList<>(2);
 
@@ -54,6 +57,14 @@ public abstract class QMUIStickySectionAdapter<
     private ViewCallback mViewCallback;
     private final boolean mRemoveSectionTitleIfOnlyOneSection;
 
+    @Nullable
+    private Executor mDiffExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    // increased every time the index is changed, used to drop the stale result of background diff
+    private int mDiffGeneration = 0;
+    @Nullable
+    private PendingData<H, T> mPendingData;
+
 
     public QMUIStickySectionAdapter() {
         this(false);
@@ -91,12 +102,28 @@ public abstract class QMUIStickySectionAdapter<
      * different between old data and new data
      * if onlyMutateState == false, deep copy is used to backup for next diff. It's safe, but it will consume
      * unnecessary performance if your new data is different in memory.
+     * if a diff executor is set by {@link #setDiffExecutor(Executor)}, the diff is calculated in background
+     * and the new data is applied later.
      *
      * @param data            section list
      * @param onlyMutateState This is used to backup for next diff. True to use shallow copy, false tp use deep copy.
      * @param checkLock       check section lock
      */
     public final void setData(@Nullable List<QMUISection<H, T>> data, boolean onlyMutateState, boolean checkLock) {
+        if (mDiffExecutor != null) {
+            List<QMUISection<H, T>> newData = new ArrayList<>();
+            if (data != null) {
+                newData.addAll(data);
+            }
+            beforeDiffInSet(mBackupData, newData);
+            if (!newData.isEmpty() && checkLock) {
+                lock(newData, newData.get(0));
+            }
+            mPendingData = new PendingData<>(newData, onlyMutateState);
+            scheduleBackgroundDiff();
+            return;
+        }
+        cancelPendingData();
         mLoadingBeforeSections.clear();
         mLoadingAfterSections.clear();
         mCurrentData.clear();
@@ -123,6 +150,96 @@ public abstract class QMUIStickySectionAdapter<
 
     }
 
+    /**
+     * set the executor used to calculate the index and diff in {@link #setData(List, boolean, boolean)},
+     * the result is dispatched to the adapter in main thread, and only the result of the latest
+     * setData is used. Null to calculate in main thread.
+     * <p>
+     * If it's set, {@link #createDiffCallback(List, List)} and the index generation of
+     * {@link QMUISectionDiffCallback} will be called in background thread with copies of the sections
+     * taken in main thread, and the data passed to setData should not be modified before it's applied,
+     * see {@link #isDiffPending()}.
+     *
+     * @param executor the executor to calculate diff
+     */
+    public void setDiffExecutor(@Nullable Executor executor) {
+        mDiffExecutor = executor;
+        if (executor == null && mPendingData != null) {
+            PendingData<H, T> pendingData = mPendingData;
+            mPendingData = null;
+            mDiffGeneration++;
+            applyDataInMainThread(pendingData.data, pendingData.onlyMutateState);
+        }
+    }
+
+    /**
+     * @return true if the data passed to setData is still diffing in background
+     */
+    public boolean isDiffPending() {
+        return mPendingData != null;
+    }
+
+    private void scheduleBackgroundDiff() {
+        final PendingData<H, T> pendingData = mPendingData;
+        if (pendingData == null || mDiffExecutor == null) {
+            return;
+        }
+        final int generation = ++mDiffGeneration;
+        // the sections in mBackupData and pendingData may be changed in main thread later(load more, fold, lock,
+        // status sync), so copy them here and only the copies are read in background.
+        final List<QMUISection<H, T>> oldData = new ArrayList<>(mBackupData.size());
+        for (QMUISection<H, T> section : mBackupData) {
+            oldData.add(section.mutate());
+        }
+        final List<QMUISection<H, T>> backupData = new ArrayList<>(pendingData.data.size());
+        for (QMUISection<H, T> section : pendingData.data) {
+            backupData.add(pendingData.onlyMutateState ? section.mutate() : section.cloneForDiff());
+        }
+        final boolean removeSectionTitleIfOnlyOneSection = mRemoveSectionTitleIfOnlyOneSection;
+        mDiffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // backupData is not touched in main thread until the result is applied, so it's safe to diff with it.
+                final QMUISectionDiffCallback<H, T> callback = createDiffCallback(oldData, backupData);
+                callback.generateIndex(removeSectionTitleIfOnlyOneSection);
+                final DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(callback, false);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mDiffGeneration || mPendingData != pendingData) {
+                            // the index is changed after scheduled, the result is stale
+                            return;
+                        }
+                        mPendingData = null;
+                        mLoadingBeforeSections.clear();
+                        mLoadingAfterSections.clear();
+                        mCurrentData.clear();
+                        mCurrentData.addAll(pendingData.data);
+                        mIndex = callback.getNewIndex();
+                        diffResult.dispatchUpdatesTo(QMUIStickySectionAdapter.this);
+                        mBackupData.clear();
+                        mBackupData.addAll(backupData);
+                    }
+                });
+            }
+        });
+    }
+
+    private void applyDataInMainThread(List<QMUISection<H, T>> data, boolean onlyMutateState) {
+        mLoadingBeforeSections.clear();
+        mLoadingAfterSections.clear();
+        mCurrentData.clear();
+        mCurrentData.addAll(data);
+        diff(true, onlyMutateState);
+    }
+
+    private void cancelPendingData() {
+        if (mPendingData != null) {
+            mPendingData = null;
+            mDiffGeneration++;
+        }
+    }
+
     /**
      *
      * @param data              section list
@@ -141,6 +258,7 @@ public abstract class QMUIStickySectionAdapter<
      * @param checkLock       check section lock
      */
     public final void setDataWithoutDiff(@Nullable List<QMUISection<H, T>> data, boolean onlyMutateState, boolean checkLock) {
+        cancelPendingData();
         mLoadingBeforeSections.clear();
         mLoadingAfterSections.clear();
         mCurrentData.clear();
@@ -151,9 +269,10 @@ public abstract class QMUIStickySectionAdapter<
             lock(mCurrentData.get(0));
         }
         // only used to generate index info
-        QMUISectionDiffCallback callback = createDiffCallback(mBackupData, mCurrentData);
-        callback.generateIndex(mRemoveSectionTitleIfOnlyOneSection);
-        callback.cloneNewIndexTo(mSectionIndex, mItemIndex);
+        QMUISectionDiffCallback<H, T> callback = createDiffCallback(mBackupData, mCurrentData);
+        callback.generateNewIndex(mRemoveSectionTitleIfOnlyOneSection);
+        mIndex = callback.getNewIndex();
+        mDiffGeneration++;
         notifyDataSetChanged();
         mBackupData.clear();
         for (QMUISection<H, T> section : mCurrentData) {
@@ -162,12 +281,16 @@ public abstract class QMUIStickySectionAdapter<
     }
 
     private void diff(boolean newDataSet, boolean onlyMutateState) {
-        QMUISectionDiffCallback callback = createDiffCallback(mBackupData, mCurrentData);
+        QMUISectionDiffCallback<H, T> callback = createDiffCallback(mBackupData, mCurrentData);
         callback.generateIndex(mRemoveSectionTitleIfOnlyOneSection);
         DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(callback, false);
-        callback.cloneNewIndexTo(mSectionIndex, mItemIndex);
+        mIndex = callback.getNewIndex();
         diffResult.dispatchUpdatesTo(this);
+        syncBackupData(newDataSet, onlyMutateState);
+        onIndexChangedInMainThread();
+    }
 
+    private void syncBackupData(boolean newDataSet, boolean onlyMutateState) {
         if (newDataSet || mBackupData.size() != mCurrentData.size()) {
             mBackupData.clear();
             for (QMUISection<H, T> section : mCurrentData) {
@@ -181,16 +304,151 @@ public abstract class QMUIStickySectionAdapter<
         }
     }
 
+    /**
+     * record the state of sections before the fold or lock state of sections in current data is changed,
+     * then use {@link #notifySectionsChanged(SectionsSnapshot, boolean)} to update the index of the changed
+     * sections and notify the adapter without diff.
+     *
+     * @param target the section whose fold state or items may be changed
+     */
+    private SectionsSnapshot snapshotSections(@Nullable QMUISection<H, T> target) {
+        boolean[] locked = new boolean[mCurrentData.size()];
+        for (int i = 0; i < locked.length; i++) {
+            locked[i] = mCurrentData.get(i).isLocked();
+        }
+        int targetIndex = target == null ? -1 : mCurrentData.indexOf(target);
+        Object[] targetKeys = null;
+        boolean targetFold = false;
+        if (targetIndex >= 0) {
+            targetKeys = getSectionPositionKeys(targetIndex);
+            targetFold = target.isFold();
+        }
+        return new SectionsSnapshot(locked, targetIndex, targetKeys, targetFold,
+                QMUISectionDiffCallback.isBeforeSectionListIndexNeeded(mCurrentData),
+                QMUISectionDiffCallback.isAfterSectionListIndexNeeded(mCurrentData));
+    }
+
+    /**
+     * regenerate the index of sections changed after {@link #snapshotSections(QMUISection)} and dispatch
+     * positional updates directly. Fall back to diff if the whole list index may be changed.
+     */
+    private void notifySectionsChanged(SectionsSnapshot snapshot, boolean newDataSet) {
+        int sectionCount = mCurrentData.size();
+        if (mIndex.getSectionCount() != sectionCount || snapshot.locked.length != sectionCount ||
+                (snapshot.targetIndex >= 0 && snapshot.targetKeys == null) ||
+                snapshot.beforeSectionListIndexNeeded != QMUISectionDiffCallback.isBeforeSectionListIndexNeeded(mCurrentData) ||
+                snapshot.afterSectionListIndexNeeded != QMUISectionDiffCallback.isAfterSectionListIndexNeeded(mCurrentData)) {
+            diff(newDataSet, true);
+            return;
+        }
+        QMUISectionDiffCallback<H, T> callback = createDiffCallback(mBackupData, mCurrentData);
+        QMUISectionIndex segment = new QMUISectionIndex();
+        // from the end, so the positions before the changed section are not affected by previous updates
+        for (int i = sectionCount - 1; i >= 0; i--) {
+            QMUISection<H, T> section = mCurrentData.get(i);
+            boolean isTarget = i == snapshot.targetIndex;
+            if (!isTarget && section.isLocked() == snapshot.locked[i]) {
+                continue;
+            }
+            Object[] oldKeys = isTarget ? snapshot.targetKeys : getSectionPositionKeys(i);
+            int start = mIndex.getSectionStart(i);
+            callback.generateNewSectionIndex(i, segment, mRemoveSectionTitleIfOnlyOneSection);
+            mIndex.replaceSection(i, segment);
+            Object[] newKeys = getSectionPositionKeys(i);
+            dispatchSectionUpdates(start, oldKeys, newKeys, isTarget && section.isFold() != snapshot.targetFold);
+        }
+        syncBackupData(newDataSet, true);
+        onIndexChangedInMainThread();
+    }
+
+    /**
+     * the keys used to match the positions of a section before and after change: header and items are
+     * matched by identity, loading and custom items are never matched so that they are always rebound.
+     */
+    @Nullable
+    private Object[] getSectionPositionKeys(int sectionIndex) {
+        if (mIndex.getSectionCount() != mCurrentData.size()) {
+            return null;
+        }
+        QMUISection<H, T> section = mCurrentData.get(sectionIndex);
+        int start = mIndex.getSectionStart(sectionIndex);
+        Object[] keys = new Object[mIndex.getSectionLength(sectionIndex)];
+        for (int i = 0; i < keys.length; i++) {
+            int itemIndex = mIndex.getItemIndex(start + i);
+            Object key = null;
+            if (itemIndex == ITEM_INDEX_SECTION_HEADER) {
+                key = HEADER_KEY;
+            } else if (itemIndex >= 0) {
+                key = section.getItemAt(itemIndex);
+            }
+            keys[i] = key != null ? key : new Object();
+        }
+        return keys;
+    }
+
+    private void dispatchSectionUpdates(int start, Object[] oldKeys, Object[] newKeys, boolean headerChanged) {
+        int prefix = 0;
+        while (prefix < oldKeys.length && prefix < newKeys.length && oldKeys[prefix] == newKeys[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldKeys.length - prefix && suffix < newKeys.length - prefix &&
+                oldKeys[oldKeys.length - 1 - suffix] == newKeys[newKeys.length - 1 - suffix]) {
+            suffix++;
+        }
+        if (headerChanged && prefix > 0 && newKeys[0] == HEADER_KEY) {
+            notifyItemChanged(start);
+        }
+        int removed = oldKeys.length - prefix - suffix;
+        int inserted = newKeys.length - prefix - suffix;
+        if (removed > 0) {
+            notifyItemRangeRemoved(start + prefix, removed);
+        }
+        if (inserted > 0) {
+            notifyItemRangeInserted(start + prefix, inserted);
+        }
+    }
+
+    private int findSectionHeaderPosition(QMUISection<H, T> section) {
+        int sectionIndex = mCurrentData.indexOf(section);
+        if (sectionIndex >= 0 && mIndex.getSectionCount() == mCurrentData.size()) {
+            int start = mIndex.getSectionStart(sectionIndex);
+            if (mIndex.getSectionLength(sectionIndex) > 0 && mIndex.getItemIndex(start) == ITEM_INDEX_SECTION_HEADER) {
+                return start;
+            }
+            return RecyclerView.NO_POSITION;
+        }
+        for (int i = 0; i < mIndex.size(); i++) {
+            int itemIndex = getItemIndex(i);
+            if (itemIndex == ITEM_INDEX_SECTION_HEADER && getSection(i) == section) {
+                return i;
+            }
+        }
+        return RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * the background diff is based on the old backup data, so it should be scheduled again
+     * if the index is changed before it is applied.
+     */
+    private void onIndexChangedInMainThread() {
+        mDiffGeneration++;
+        if (mPendingData != null) {
+            scheduleBackgroundDiff();
+        }
+    }
+
 
     /**
      * section data is not changed, only custom item index may changed, so we also need to regenerate index
      */
     public void refreshCustomData() {
-        QMUISectionDiffCallback callback = createDiffCallback(mBackupData, mCurrentData);
+        QMUISectionDiffCallback<H, T> callback = createDiffCallback(mBackupData, mCurrentData);
         callback.generateIndex(mRemoveSectionTitleIfOnlyOneSection);
         DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(callback, false);
-        callback.cloneNewIndexTo(mSectionIndex, mItemIndex);
+        mIndex = callback.getNewIndex();
         diffResult.dispatchUpdatesTo(this);
+        onIndexChangedInMainThread();
     }
 
     protected QMUISectionDiffCallback<H, T> createDiffCallback(
@@ -213,25 +471,16 @@ public abstract class QMUIStickySectionAdapter<
     }
 
     public int getItemIndex(int position) {
-        if (position < 0 || position >= mItemIndex.size()) {
-            return QMUISection.ITEM_INDEX_UNKNOWN;
-        }
-        return mItemIndex.get(position);
+        return mIndex.getItemIndex(position);
     }
 
     public int getSectionIndex(int position) {
-        if (position < 0 || position >= mSectionIndex.size()) {
-            return QMUISection.SECTION_INDEX_UNKNOWN;
-        }
-        return mSectionIndex.get(position);
+        return mIndex.getSectionIndex(position);
     }
 
     @Nullable
     public QMUISection<H, T> getSection(int position) {
-        if (position < 0 || position >= mSectionIndex.size()) {
-            return null;
-        }
-        int sectionIndex = mSectionIndex.get(position);
+        int sectionIndex = mIndex.getSectionIndex(position);
         if (sectionIndex < 0 || sectionIndex >= mCurrentData.size()) {
             return null;
         }
@@ -284,8 +533,12 @@ public abstract class QMUIStickySectionAdapter<
         // if load before, we should focus first item in section. otherwise the new data will
         // wash current items down
         if (isLoadBefore && !section.isFold()) {
-            for (int i = 0; i < mItemIndex.size(); i++) {
-                int itemIndex = mItemIndex.get(i);
+            int sectionIndex = mCurrentData.indexOf(section);
+            boolean hasRange = mIndex.getSectionCount() == mCurrentData.size();
+            int start = hasRange ? mIndex.getSectionStart(sectionIndex) : 0;
+            int end = hasRange ? start + mIndex.getSectionLength(sectionIndex) : mIndex.size();
+            for (int i = start; i < end; i++) {
+                int itemIndex = mIndex.getItemIndex(i);
                 if (itemIndex == 0 && section == getSection(i)) {
                     RecyclerView.ViewHolder focusViewHolder = mViewCallback == null ? null :
                             mViewCallback.findViewHolderForAdapterPosition(i);
@@ -298,10 +551,11 @@ public abstract class QMUIStickySectionAdapter<
             }
         }
 
+        SectionsSnapshot snapshot = snapshotSections(section);
         section.finishLoadMore(itemList, isLoadBefore, existMoreData);
         lock(section);
 
-        diff(true, true);
+        notifySectionsChanged(snapshot, true);
     }
 
     /**
@@ -310,23 +564,27 @@ public abstract class QMUIStickySectionAdapter<
      * @param section
      */
     private void lock(QMUISection<H, T> section) {
+        lock(mCurrentData, section);
+    }
+
+    private void lock(List<QMUISection<H, T>> data, QMUISection<H, T> section) {
         boolean lockPrevious = !section.isFold() && section.isExistBeforeDataToLoad()
                 && !section.isErrorToLoadBefore();
         boolean lockAfter = !section.isFold() && section.isExistAfterDataToLoad()
                 && !section.isErrorToLoadAfter();
 
-        int index = mCurrentData.indexOf(section);
-        if (index < 0 || index >= mCurrentData.size()) {
+        int index = data.indexOf(section);
+        if (index < 0 || index >= data.size()) {
             return;
         }
         section.setLocked(false);
-        lockBefore(index - 1, lockPrevious);
-        lockAfter(index + 1, lockAfter);
+        lockBefore(data, index - 1, lockPrevious);
+        lockAfter(data, index + 1, lockAfter);
     }
 
-    private void lockBefore(int current, boolean needLock) {
+    private void lockBefore(List<QMUISection<H, T>> data, int current, boolean needLock) {
         while (current >= 0) {
-            QMUISection<H, T> section = mCurrentData.get(current);
+            QMUISection<H, T> section = data.get(current);
             if (needLock) {
                 section.setLocked(true);
             } else {
@@ -338,9 +596,9 @@ public abstract class QMUIStickySectionAdapter<
         }
     }
 
-    private void lockAfter(int current, boolean needLock) {
-        while (current < mCurrentData.size()) {
-            QMUISection<H, T> section = mCurrentData.get(current);
+    private void lockAfter(List<QMUISection<H, T>> data, int current, boolean needLock) {
+        while (current < data.size()) {
+            QMUISection<H, T> section = data.get(current);
             if (needLock) {
                 section.setLocked(true);
             } else {
@@ -367,8 +625,9 @@ public abstract class QMUIStickySectionAdapter<
             QMUISection<H, T> section = mCurrentData.get(i);
             if (targetSection.getHeader().isSameItem(section.getHeader())) {
                 if (section.isLocked()) {
+                    SectionsSnapshot snapshot = snapshotSections(null);
                     lock(section);
-                    diff(false, true);
+                    notifySectionsChanged(snapshot, false);
                     safeScrollToSection(section, scrollToTop);
                 } else {
                     safeScrollToSection(section, scrollToTop);
@@ -381,12 +640,12 @@ public abstract class QMUIStickySectionAdapter<
 
 
     private void safeScrollToSection(@NonNull QMUISection<H, T> targetSection, boolean scrollToTop) {
-        for (int i = 0; i < mSectionIndex.size(); i++) {
-            int sectionIndex = mSectionIndex.get(i);
+        for (int i = 0; i < mIndex.size(); i++) {
+            int sectionIndex = mIndex.getSectionIndex(i);
             if (sectionIndex < 0 || sectionIndex >= mCurrentData.size()) {
                 continue;
             }
-            int itemIndex = mItemIndex.get(i);
+            int itemIndex = mIndex.getItemIndex(i);
             if (itemIndex == ITEM_INDEX_SECTION_HEADER) {
                 QMUISection<H, T> temp = mCurrentData.get(sectionIndex);
                 if (temp.getHeader().isSameItem(targetSection.getHeader())) {
@@ -410,16 +669,17 @@ public abstract class QMUIStickySectionAdapter<
         if (mViewCallback == null) {
             return;
         }
-        // can not trust mItemIndex, maybe the section owned this item is folded
+        // can not trust mIndex, maybe the section owned this item is folded
         // if this happened, we should unfold the section
         for (int i = 0; i < mCurrentData.size(); i++) {
             QMUISection<H, T> section = mCurrentData.get(i);
             if ((targetSection == null && section.existItem(targetItem)) || targetSection == section) {
                 if (section.isFold() || section.isLocked()) {
                     // unlock this section
+                    SectionsSnapshot snapshot = snapshotSections(section);
                     section.setFold(false);
                     lock(section);
-                    diff(false, true);
+                    notifySectionsChanged(snapshot, false);
                     safeScrollToSectionItem(section, targetItem, scrollToTop);
                 } else {
                     safeScrollToSectionItem(section, targetItem, scrollToTop);
@@ -430,8 +690,8 @@ public abstract class QMUIStickySectionAdapter<
     }
 
     private void safeScrollToSectionItem(@NonNull QMUISection<H, T> targetSection, @NonNull T item, boolean scrollToTop) {
-        for (int i = 0; i < mItemIndex.size(); i++) {
-            int itemIndex = mItemIndex.get(i);
+        for (int i = 0; i < mIndex.size(); i++) {
+            int itemIndex = mIndex.getItemIndex(i);
             if (itemIndex < 0) {
                 continue;
             }
@@ -471,16 +731,17 @@ public abstract class QMUIStickySectionAdapter<
         if (unFoldTargetSection && sectionIndex >= 0) {
             QMUISection<H, T> section = mCurrentData.get(sectionIndex);
             if (section != null && section.isFold()) {
+                SectionsSnapshot snapshot = snapshotSections(section);
                 section.setFold(false);
                 lock(section);
-                diff(false, true);
+                notifySectionsChanged(snapshot, false);
             }
         }
         for (int i = 0; i < getItemCount(); i++) {
-            if (mSectionIndex.get(i) != sectionIndex) {
+            if (mIndex.getSectionIndex(i) != sectionIndex) {
                 continue;
             }
-            if (mItemIndex.get(i) == itemIndex) {
+            if (mIndex.getItemIndex(i) == itemIndex) {
                 return i;
             }
         }
@@ -529,9 +790,10 @@ public abstract class QMUIStickySectionAdapter<
                     targetItem = section.getItemAt(j);
                     boolean isFold = section.isFold();
                     if (isFold) {
+                        SectionsSnapshot snapshot = snapshotSections(section);
                         section.setFold(false);
                         lock(section);
-                        diff(false, true);
+                        notifySectionsChanged(snapshot, false);
                     }
                     break loop;
                 }
@@ -559,16 +821,14 @@ public abstract class QMUIStickySectionAdapter<
         if (section == null) {
             return;
         }
+        SectionsSnapshot snapshot = snapshotSections(section);
         section.setFold(!section.isFold());
         lock(section);
-        diff(false, true);
+        notifySectionsChanged(snapshot, false);
         if (scrollToTop && !section.isFold() && mViewCallback != null) {
-            for (int i = 0; i < mSectionIndex.size(); i++) {
-                int itemIndex = getItemIndex(i);
-                if (itemIndex == ITEM_INDEX_SECTION_HEADER && getSection(i) == section) {
-                    mViewCallback.scrollToPosition(i, true, true);
-                    return;
-                }
+            int headerPosition = findSectionHeaderPosition(section);
+            if (headerPosition != RecyclerView.NO_POSITION) {
+                mViewCallback.scrollToPosition(headerPosition, true, true);
             }
         }
     }
@@ -590,7 +850,7 @@ public abstract class QMUIStickySectionAdapter<
 
     @Override
     public final int getItemCount() {
-        return mItemIndex.size();
+        return mIndex.size();
     }
 
     @NonNull
@@ -726,6 +986,36 @@ public abstract class QMUIStickySectionAdapter<
         return ITEM_TYPE_UNKNOWN;
     }
 
+    private static class SectionsSnapshot {
+        final boolean[] locked;
+        final int targetIndex;
+        @Nullable
+        final Object[] targetKeys;
+        final boolean targetFold;
+        final boolean beforeSectionListIndexNeeded;
+        final boolean afterSectionListIndexNeeded;
+
+        SectionsSnapshot(boolean[] locked, int targetIndex, @Nullable Object[] targetKeys, boolean targetFold,
+                         boolean beforeSectionListIndexNeeded, boolean afterSectionListIndexNeeded) {
+            this.locked = locked;
+            this.targetIndex = targetIndex;
+            this.targetKeys = targetKeys;
+            this.targetFold = targetFold;
+            this.beforeSectionListIndexNeeded = beforeSectionListIndexNeeded;
+            this.afterSectionListIndexNeeded = afterSectionListIndexNeeded;
+        }
+    }
+
+    private static class PendingData<H extends QMUISection.Model<H>, T extends QMUISection.Model<T>> {
+        final List<QMUISection<H, T>> data;
+        final boolean onlyMutateState;
+
+        PendingData(List<QMUISection<H, T>> data, boolean onlyMutateState) {
+            this.data = data;
+            this.onlyMutateState = onlyMutateState;
+        }
+    }
+
     public interface Callback<H extends QMUISection.Model<H>, T extends QMUISection.Model<T>> {
         void loadMore(QMUISection<H, T> section, boolean loadMoreBefore);
 
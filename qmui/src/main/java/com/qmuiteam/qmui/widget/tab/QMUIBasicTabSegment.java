@@ -34,6 +34,7 @@ import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.collection.SimpleArrayMap;
+import androidx.core.view.ViewCompat;
 
 import com.qmuiteam.qmui.QMUIInterpolatorStaticHolder;
 import com.qmuiteam.qmui.R;
@@ -52,6 +53,7 @@ import org.jetbrains.annotations.NotNull;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 
@@ -93,6 +95,10 @@ import java.util.List;
  * mTabSegment.notifyDataChanged();
  * </code>
  * </li>
+ * <li>
+ * 如果 Tab 数量很多（例如上百个），可以在 {@link #MODE_SCROLLABLE} 下调用 {@link #setVirtualized(boolean)} 开启虚拟化，
+ * 只为可见范围内的 Tab 创建 {@link QMUITabView}，滚动时回收复用
+ * </li>
  * </ul>
  *
  * @author cginechen
@@ -137,6 +143,19 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
     private OnTabClickListener mOnTabClickListener;
 
     private boolean mIsInSelectTab = false;
+
+    /**
+     * virtualized mode, only works in MODE_SCROLLABLE
+     */
+    private boolean mVirtualized = false;
+    private int mVirtualBufferCount = 2;
+    // the width and left of every tab in virtualized mode, -1 means the width needs to be measured
+    private int[] mVirtualTabWidths = new int[0];
+    private int[] mVirtualTabLefts = new int[0];
+    private int mVirtualMeasureWidth = -1;
+    private int mVirtualMeasureHeight = -1;
+    // used to measure the tabs that have no view
+    private QMUITabView mVirtualMeasureTabView;
     private QMUILayoutHelper mLayoutHelper;
     private static SimpleArrayMap<String, Integer> sDefaultSkinAttrs;
 
@@ -256,6 +275,36 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
         mItemSpaceInScrollMode = itemSpaceInScrollMode;
     }
 
+    /**
+     * 开启后，只为可见范围及前后 bufferCount 个 Tab 创建 {@link QMUITabView}，滚动时回收复用，
+     * 适用于 Tab 数量很多的场景。只在 {@link #MODE_SCROLLABLE} 下生效
+     */
+    public void setVirtualized(boolean virtualized) {
+        setVirtualized(virtualized, mVirtualBufferCount);
+    }
+
+    public void setVirtualized(boolean virtualized, int bufferCount) {
+        mVirtualBufferCount = Math.max(0, bufferCount);
+        if (mVirtualized != virtualized) {
+            boolean wasVirtualMode = isVirtualMode();
+            mVirtualized = virtualized;
+            if (wasVirtualMode != isVirtualMode()) {
+                setupTabViews();
+                restoreTabSelectState();
+            }
+        } else if (isVirtualMode()) {
+            mContentLayout.requestLayout();
+        }
+    }
+
+    public boolean isVirtualized() {
+        return mVirtualized;
+    }
+
+    private boolean isVirtualMode() {
+        return mVirtualized && mMode == MODE_SCROLLABLE;
+    }
+
     /**
      * clear all tabs
      */
@@ -302,10 +351,53 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
             current = mPendingSelectedIndex;
         }
         resetSelect();
-        mTabAdapter.setup();
+        setupTabViews();
         selectTab(current);
     }
 
+    private void setupTabViews() {
+        if (!isVirtualMode()) {
+            mTabAdapter.setup();
+            return;
+        }
+        Arrays.fill(mVirtualTabWidths, -1);
+        if (mTabAdapter.isRangeMode()) {
+            int start = mTabAdapter.getFirstViewPosition();
+            mTabAdapter.setupRange(start, start + mTabAdapter.getViews().size(), true);
+        } else {
+            // the visible range is decided in measure
+            mTabAdapter.setupRange(0, 0, false);
+        }
+        mContentLayout.invalidate();
+        mContentLayout.requestLayout();
+    }
+
+    /**
+     * 只刷新 index 对应的 Tab，选中状态与 indicator 保持不变，只有 Tab 的尺寸变化时才会重新布局。
+     * 如果 Tab 的数量发生了变化，则退化为 {@link #notifyDataChanged()}
+     *
+     * @param index Tab 的 index
+     */
+    public void notifyTabChanged(int index) {
+        if (!mTabAdapter.notifyItemChanged(index)) {
+            notifyDataChanged();
+            return;
+        }
+        if (isVirtualMode() && mTabAdapter.getViewAt(index) == null && index < mVirtualTabWidths.length
+                && mVirtualTabWidths[index] >= 0) {
+            // the tab view is bound in measure, so only the tab that has no view needs to be measured here
+            int width = measureVirtualTab(index);
+            if (width != mVirtualTabWidths[index]) {
+                mVirtualTabWidths[index] = width;
+                mContentLayout.requestLayout();
+            }
+        }
+        if (index == mCurrentSelectedIndex && mSelectAnimator == null && !needPreventEvent()) {
+            // the indicator color may be changed
+            layoutIndicator(mTabAdapter.getItem(index), true);
+        }
+    }
+
 
     public void addOnTabSelectedListener(@NonNull OnTabSelectedListener listener) {
         if (!mSelectedListeners.contains(listener)) {
@@ -327,10 +419,15 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
 
     public void setMode(@Mode int mode) {
         if (mMode != mode) {
+            boolean wasVirtualMode = isVirtualMode();
             mMode = mode;
             if (mode == MODE_SCROLLABLE) {
                 mTabBuilder.setGravity(Gravity.LEFT);
             }
+            if (wasVirtualMode != isVirtualMode()) {
+                setupTabViews();
+                restoreTabSelectState();
+            }
             mContentLayout.invalidate();
         }
     }
@@ -407,14 +504,12 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
         }
         mIsInSelectTab = true;
 
-        List<QMUITabView> listViews = mTabAdapter.getViews();
-
-        if (listViews.size() != mTabAdapter.getSize()) {
+        if (!isVirtualMode() && mTabAdapter.getViews().size() != mTabAdapter.getSize()) {
             mTabAdapter.setup();
-            listViews = mTabAdapter.getViews();
         }
 
-        if (listViews.size() == 0 || listViews.size() <= index) {
+        final int size = mTabAdapter.getSize();
+        if (size == 0 || size <= index) {
             mIsInSelectTab = false;
             return;
         }
@@ -437,7 +532,7 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
         }
 
 
-        if (mCurrentSelectedIndex > listViews.size()) {
+        if (mCurrentSelectedIndex > size) {
             Log.i(TAG, "selectTab: current selected index is bigger than views size.");
             mCurrentSelectedIndex = NO_POSITION;
         }
@@ -447,9 +542,8 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
             QMUITab model = mTabAdapter.getItem(index);
             layoutIndicator(model, true);
             
-            QMUITabView tabView = listViews.get(index);
-            tabView.setSelected(true); // 标记选中，使得TalkBack等屏幕阅读器可向用户报告tab状态
-            tabView.setSelectFraction(1f);
+            // in virtualized mode, the tab view may be not created, and the state is restored when it's bound
+            setTabSelectState(index, true, 1f); // 标记选中，使得TalkBack等屏幕阅读器可向用户报告tab状态
             
             dispatchTabSelected(index);
             mCurrentSelectedIndex = index;
@@ -459,31 +553,26 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
 
         final int prev = mCurrentSelectedIndex;
         final QMUITab prevModel = mTabAdapter.getItem(prev);
-        final QMUITabView prevView = listViews.get(prev);
         final QMUITab nowModel = mTabAdapter.getItem(index);
-        final QMUITabView nowView = listViews.get(index);
 
         if (noAnimation) {
             dispatchTabUnselected(prev);
             dispatchTabSelected(index);
-            prevView.setSelectFraction(0f);
-            prevView.setSelected(false); // 标记未选中，使得TalkBack等屏幕阅读器可向用户报告tab状态
-            nowView.setSelectFraction(1f);
-            nowView.setSelected(true); // 标记选中，使得TalkBack等屏幕阅读器可向用户报告tab状态
+            setTabSelectState(prev, false, 0f); // 标记未选中，使得TalkBack等屏幕阅读器可向用户报告tab状态
+            setTabSelectState(index, true, 1f); // 标记选中，使得TalkBack等屏幕阅读器可向用户报告tab状态
             if (mMode == MODE_SCROLLABLE) {
                 int scrollX = getScrollX(),
                         w = getWidth(),
                         cw = mContentLayout.getWidth(),
-                        nl = nowView.getLeft(),
-                        nw = nowView.getWidth();
+                        nl = getTabLeft(index),
+                        nw = getTabWidth(index);
                 int paddingHor = getPaddingLeft() + getPaddingRight();
-                int size = mTabAdapter.getSize();
                 int maxScrollX = cw - w + paddingHor;
                 if (index > prev) {
                     if (index >= size - 2) {
                         smoothScrollBy(maxScrollX - scrollX, 0);
                     } else {
-                        int nextWidth = listViews.get(index + 1).getWidth();
+                        int nextWidth = getTabWidth(index + 1);
                         int targetScrollX = Math.min(maxScrollX, nl - (w - getPaddingRight() * 2 - nextWidth - nw - mItemSpaceInScrollMode));
                         targetScrollX -= nextWidth - nw;
                         if (scrollX < targetScrollX) {
@@ -494,7 +583,7 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
                     if (index <= 1) {
                         smoothScrollBy(-scrollX, 0);
                     } else {
-                        int prevWidth = listViews.get(index - 1).getWidth();
+                        int prevWidth = getTabWidth(index - 1);
                         int targetScrollX = Math.max(0, nl - prevWidth - mItemSpaceInScrollMode);
                         if (targetScrollX < scrollX) {
                             smoothScrollBy(targetScrollX - scrollX, 0);
@@ -515,8 +604,9 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
             @Override
             public void onAnimationUpdate(ValueAnimator animation) {
                 float animValue = (float) animation.getAnimatedValue();
-                prevView.setSelectFraction(1 - animValue);
-                nowView.setSelectFraction(animValue);
+                // look up the views every frame, as they may be recycled in virtualized mode
+                setTabSelectFraction(prev, 1 - animValue);
+                setTabSelectFraction(index, animValue);
                 layoutIndicatorInTransition(prevModel, nowModel, animValue);
             }
         });
@@ -528,10 +618,8 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
 
             @Override
             public void onAnimationEnd(Animator animation) {
-                prevView.setSelectFraction(0f);
-                prevView.setSelected(false); // 标记未选中，使得TalkBack等屏幕阅读器可向用户报告tab状态
-                nowView.setSelectFraction(1f);
-                nowView.setSelected(true); // 标记选中，使得TalkBack等屏幕阅读器可向用户报告tab状态
+                setTabSelectState(prev, false, 0f); // 标记未选中，使得TalkBack等屏幕阅读器可向用户报告tab状态
+                setTabSelectState(index, true, 1f); // 标记选中，使得TalkBack等屏幕阅读器可向用户报告tab状态
                 mSelectAnimator = null;
                 // set current selected index first, dispatchTabSelected may call selectTab again.
                 mCurrentSelectedIndex = index;
@@ -546,10 +634,8 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
             @Override
             public void onAnimationCancel(Animator animation) {
                 mSelectAnimator = null;
-                prevView.setSelectFraction(1f);
-                prevView.setSelected(true); // 标记选中，使得TalkBack等屏幕阅读器可向用户报告tab状态
-                nowView.setSelectFraction(0f);
-                nowView.setSelected(false); // 标记未选中，使得TalkBack等屏幕阅读器可向用户报告tab状态
+                setTabSelectState(prev, true, 1f); // 标记选中，使得TalkBack等屏幕阅读器可向用户报告tab状态
+                setTabSelectState(index, false, 0f); // 标记未选中，使得TalkBack等屏幕阅读器可向用户报告tab状态
                 layoutIndicator(prevModel, true);
 
             }
@@ -564,6 +650,53 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
         mIsInSelectTab = false;
     }
 
+    private void setTabSelectFraction(int index, float fraction) {
+        QMUITabView view = mTabAdapter.getViewAt(index);
+        if (view != null) {
+            view.setSelectFraction(fraction);
+        }
+    }
+
+    private void setTabSelectState(int index, boolean selected, float fraction) {
+        QMUITabView view = mTabAdapter.getViewAt(index);
+        if (view != null) {
+            view.setSelectFraction(fraction);
+            view.setSelected(selected);
+        }
+    }
+
+    /**
+     * the tab views that are newly bound are unselected, mark the current selected one
+     */
+    private void restoreTabSelectState() {
+        List<QMUITabView> views = mTabAdapter.getViews();
+        int first = mTabAdapter.getFirstViewPosition();
+        for (int i = 0; i < views.size(); i++) {
+            QMUITabView view = views.get(i);
+            boolean selected = first + i == mCurrentSelectedIndex;
+            if (view.isSelected() != selected) {
+                view.setSelectFraction(selected ? 1f : 0f);
+                view.setSelected(selected);
+            }
+        }
+    }
+
+    private int getTabLeft(int index) {
+        if (isVirtualMode()) {
+            return index >= 0 && index < mVirtualTabLefts.length ? mVirtualTabLefts[index] : 0;
+        }
+        QMUITabView view = mTabAdapter.getViewAt(index);
+        return view == null ? 0 : view.getLeft();
+    }
+
+    private int getTabWidth(int index) {
+        if (isVirtualMode()) {
+            return index >= 0 && index < mVirtualTabWidths.length ? Math.max(0, mVirtualTabWidths[index]) : 0;
+        }
+        QMUITabView view = mTabAdapter.getViewAt(index);
+        return view == null ? 0 : view.getWidth();
+    }
+
     private void layoutIndicator(QMUITab model, boolean invalidate) {
         if (model == null || mIndicator == null) {
             return;
@@ -603,16 +736,13 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
             targetIndex = index + 1;
         }
 
-        final List<QMUITabView> listViews = mTabAdapter.getViews();
-        if (listViews.size() <= index || listViews.size() <= targetIndex) {
-            return;
-        }
         QMUITab preModel = mTabAdapter.getItem(index);
         QMUITab targetModel = mTabAdapter.getItem(targetIndex);
-        QMUITabView preView = listViews.get(index);
-        QMUITabView targetView = listViews.get(targetIndex);
-        preView.setSelectFraction(1 - offsetPercent);
-        targetView.setSelectFraction(offsetPercent);
+        if (preModel == null || targetModel == null) {
+            return;
+        }
+        setTabSelectFraction(index, 1 - offsetPercent);
+        setTabSelectFraction(targetIndex, offsetPercent);
         layoutIndicatorInTransition(preModel, targetModel, offsetPercent);
     }
 
@@ -628,7 +758,7 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
             return;
         }
         model.setText(text);
-        notifyDataChanged();
+        notifyTabChanged(index);
     }
 
     /**
@@ -638,16 +768,21 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
      * @param model 新的 Tab
      */
     public void replaceTab(int index, QMUITab model) {
+        QMUITab old = mTabAdapter.getItem(index);
         try {
-            if (mCurrentSelectedIndex == index) {
-                // re select
-                mCurrentSelectedIndex = NO_POSITION;
-            }
             mTabAdapter.replaceItem(index, model);
-            notifyDataChanged();
         } catch (IllegalAccessException e) {
             e.printStackTrace();
+            return;
         }
+        if (old != null && old != model) {
+            // take over the layout info, it's updated when the tab is laid out again
+            model.contentLeft = old.contentLeft;
+            model.contentWidth = old.contentWidth;
+            model.leftAddonMargin = old.leftAddonMargin;
+            model.rightAddonMargin = old.rightAddonMargin;
+        }
+        notifyTabChanged(index);
     }
 
     public void setOnTabClickListener(OnTabClickListener onTabClickListener) {
@@ -701,7 +836,7 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
     public void showSignCountView(Context context, int index, int count) {
         QMUITab tab = mTabAdapter.getItem(index);
         tab.setSignCount(count);
-        notifyDataChanged();
+        notifyTabChanged(index);
     }
 
     /**
@@ -712,7 +847,7 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
     public void clearSignCountView(int index) {
         QMUITab tab = mTabAdapter.getItem(index);
         tab.clearSignCountOrRedPoint();
-        notifyDataChanged();
+        notifyTabChanged(index);
     }
 
     /**
@@ -787,33 +922,83 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
         super.onLayout(changed, l, t, r, b);
-        if (mCurrentSelectedIndex != NO_POSITION && mMode == MODE_SCROLLABLE) {
-            final QMUITabView view = mTabAdapter.getViews().get(mCurrentSelectedIndex);
-            if (getScrollX() > view.getLeft()) {
-                scrollTo(view.getLeft(), 0);
+        if (mCurrentSelectedIndex != NO_POSITION && mMode == MODE_SCROLLABLE
+                && mCurrentSelectedIndex < mTabAdapter.getSize()) {
+            final int left = getTabLeft(mCurrentSelectedIndex);
+            final int right = left + getTabWidth(mCurrentSelectedIndex);
+            if (getScrollX() > left) {
+                scrollTo(left, 0);
             } else {
                 int realWidth = getWidth() - getPaddingRight() - getPaddingLeft();
-                if (getScrollX() + realWidth < view.getRight()) {
-                    scrollBy(view.getRight() - realWidth - getScrollX(), 0);
+                if (getScrollX() + realWidth < right) {
+                    scrollBy(right - realWidth - getScrollX(), 0);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        if (isVirtualMode() && mVirtualMeasureWidth >= 0 && mVirtualTabLefts.length == mTabAdapter.getSize()
+                && !mContentLayout.isLayoutRequested()) {
+            // bind the tabs scrolled into the visible range without a layout pass of the whole segment
+            if (mContentLayout.updateVirtualTabRange(getWidth())) {
+                List<QMUITabView> views = mTabAdapter.getViews();
+                int first = mTabAdapter.getFirstViewPosition();
+                for (int i = 0; i < views.size(); i++) {
+                    QMUITabView view = views.get(i);
+                    if (view.isLayoutRequested() || !ViewCompat.isLaidOut(view)) {
+                        mContentLayout.measureVirtualTabView(view);
+                        mContentLayout.layoutVirtualTabView(first + i, view);
+                    }
                 }
+                mContentLayout.invalidate();
             }
         }
     }
 
+    private int measureVirtualTab(int index) {
+        QMUITabView view = mTabAdapter.getViewAt(index);
+        if (view == null) {
+            if (mVirtualMeasureTabView == null) {
+                mVirtualMeasureTabView = mTabAdapter.createView(mContentLayout);
+            }
+            view = mVirtualMeasureTabView;
+            mTabAdapter.onBindTab(mTabAdapter.getItem(index), view, index);
+        }
+        mContentLayout.measureVirtualTabView(view);
+        return view.getMeasuredWidth();
+    }
+
 
     private final class Container extends ViewGroup {
 
+        // adding or removing tab views in virtualized mode should not trigger a layout pass
+        private boolean mInterceptRequestLayout;
+
         public Container(Context context) {
             super(context);
             setClipChildren(false);
             setWillNotDraw(false);
         }
 
+        @Override
+        public void requestLayout() {
+            if (!mInterceptRequestLayout) {
+                super.requestLayout();
+            }
+        }
+
         @Override
         protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
 
             int widthSpecSize = MeasureSpec.getSize(widthMeasureSpec);
             int heightSpecSize = MeasureSpec.getSize(heightMeasureSpec);
+            if (isVirtualMode()) {
+                onMeasureVirtual(widthSpecSize, heightSpecSize);
+                return;
+            }
             List<QMUITabView> childViews = mTabAdapter.getViews();
             int size = childViews.size();
             int i;
@@ -889,8 +1074,145 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
             setMeasuredDimension(resultWidthSize, heightSpecSize);
         }
 
+        private void onMeasureVirtual(int widthSpecSize, int heightSpecSize) {
+            int size = mTabAdapter.getSize();
+            int childHeight = heightSpecSize - getPaddingTop() - getPaddingBottom();
+            if (mVirtualMeasureWidth != widthSpecSize || mVirtualMeasureHeight != childHeight) {
+                mVirtualMeasureWidth = widthSpecSize;
+                mVirtualMeasureHeight = childHeight;
+                Arrays.fill(mVirtualTabWidths, -1);
+            }
+            if (mVirtualTabWidths.length != size) {
+                mVirtualTabWidths = new int[size];
+                mVirtualTabLefts = new int[size];
+                Arrays.fill(mVirtualTabWidths, -1);
+            }
+            if (size == 0) {
+                mTabAdapter.setupRange(0, 0, false);
+                setMeasuredDimension(widthSpecSize, heightSpecSize);
+                return;
+            }
+
+            // the bound tab views may be changed, so measure them again
+            List<QMUITabView> childViews = mTabAdapter.getViews();
+            int first = mTabAdapter.getFirstViewPosition();
+            int i;
+            for (i = 0; i < childViews.size(); i++) {
+                QMUITabView child = childViews.get(i);
+                measureVirtualTabView(child);
+                mVirtualTabWidths[first + i] = child.getMeasuredWidth();
+            }
+
+            int resultWidthSize = 0;
+            float totalWeight = 0;
+            for (i = 0; i < size; i++) {
+                if (mVirtualTabWidths[i] < 0) {
+                    mVirtualTabWidths[i] = measureVirtualTab(i);
+                }
+                resultWidthSize += mVirtualTabWidths[i] + mItemSpaceInScrollMode;
+                QMUITab tab = mTabAdapter.getItem(i);
+                totalWeight += tab.leftSpaceWeight + tab.rightSpaceWeight;
+                tab.leftAddonMargin = 0;
+                tab.rightAddonMargin = 0;
+            }
+            resultWidthSize -= mItemSpaceInScrollMode;
+
+            if (totalWeight > 0 && resultWidthSize < widthSpecSize) {
+                int remain = widthSpecSize - resultWidthSize;
+                resultWidthSize = widthSpecSize;
+                for (i = 0; i < size; i++) {
+                    QMUITab tab = mTabAdapter.getItem(i);
+                    tab.leftAddonMargin = (int) (remain * tab.leftSpaceWeight / totalWeight);
+                    tab.rightAddonMargin = (int) (remain * tab.rightSpaceWeight / totalWeight);
+                }
+            }
+
+            int usedLeft = getPaddingLeft();
+            for (i = 0; i < size; i++) {
+                QMUITab tab = mTabAdapter.getItem(i);
+                usedLeft += tab.leftAddonMargin;
+                mVirtualTabLefts[i] = usedLeft;
+                usedLeft += mVirtualTabWidths[i] + tab.rightAddonMargin + mItemSpaceInScrollMode;
+            }
+
+            updateVirtualTabRange(widthSpecSize + QMUIBasicTabSegment.this.getPaddingLeft()
+                    + QMUIBasicTabSegment.this.getPaddingRight());
+            childViews = mTabAdapter.getViews();
+            for (i = 0; i < childViews.size(); i++) {
+                QMUITabView child = childViews.get(i);
+                if (child.isLayoutRequested()) {
+                    measureVirtualTabView(child);
+                }
+            }
+            setMeasuredDimension(resultWidthSize, heightSpecSize);
+        }
+
+        void measureVirtualTabView(QMUITabView view) {
+            view.measure(MeasureSpec.makeMeasureSpec(mVirtualMeasureWidth, MeasureSpec.AT_MOST),
+                    MeasureSpec.makeMeasureSpec(mVirtualMeasureHeight, MeasureSpec.EXACTLY));
+        }
+
+        void layoutVirtualTabView(int index, QMUITabView view) {
+            int left = mVirtualTabLefts[index];
+            view.layout(left, getPaddingTop(), left + view.getMeasuredWidth(),
+                    getPaddingTop() + view.getMeasuredHeight());
+        }
+
+        /**
+         * bind the tabs in the visible range and the buffer, recycle the others
+         *
+         * @return true if the range is changed
+         */
+        boolean updateVirtualTabRange(int visibleWidth) {
+            int size = mVirtualTabLefts.length;
+            if (size == 0) {
+                return false;
+            }
+            int visibleLeft = QMUIBasicTabSegment.this.getScrollX() - QMUIBasicTabSegment.this.getPaddingLeft();
+            int visibleRight = visibleLeft + visibleWidth;
+            // the first tab whose right is after visibleLeft
+            int low = 0, high = size - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (mVirtualTabLefts[mid] + mVirtualTabWidths[mid] > visibleLeft) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            int start = low;
+            // the last tab whose left is before visibleRight
+            high = size - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (mVirtualTabLefts[mid] < visibleRight) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            int end = low + 1;
+            start = Math.max(0, start - mVirtualBufferCount);
+            end = Math.min(size, end + mVirtualBufferCount);
+
+            int oldStart = mTabAdapter.getFirstViewPosition();
+            if (mTabAdapter.isRangeMode() && oldStart == start
+                    && oldStart + mTabAdapter.getViews().size() == end) {
+                return false;
+            }
+            mInterceptRequestLayout = true;
+            mTabAdapter.setupRange(start, end, false);
+            restoreTabSelectState();
+            mInterceptRequestLayout = false;
+            return true;
+        }
+
         @Override
         protected void onLayout(boolean changed, int l, int t, int r, int b) {
+            if (isVirtualMode()) {
+                onLayoutVirtual();
+                return;
+            }
             List<QMUITabView> childViews = mTabAdapter.getViews();
             int size = childViews.size();
             int i;
@@ -943,6 +1265,27 @@ public class QMUIBasicTabSegment extends HorizontalScrollView implements IQMUILa
             }
         }
 
+        private void onLayoutVirtual() {
+            int size = Math.min(mTabAdapter.getSize(), mVirtualTabLefts.length);
+            for (int i = 0; i < size; i++) {
+                // the indicator is laid out by the models, so it can move to the tabs that have no view
+                QMUITab model = mTabAdapter.getItem(i);
+                model.contentLeft = mVirtualTabLefts[i];
+                model.contentWidth = mVirtualTabWidths[i];
+            }
+            List<QMUITabView> childViews = mTabAdapter.getViews();
+            int first = mTabAdapter.getFirstViewPosition();
+            for (int i = 0; i < childViews.size(); i++) {
+                if (first + i < size) {
+                    layoutVirtualTabView(first + i, childViews.get(i));
+                }
+            }
+            if (mCurrentSelectedIndex != NO_POSITION && mSelectAnimator == null
+                    && !needPreventEvent()) {
+                layoutIndicator(mTabAdapter.getItem(mCurrentSelectedIndex), false);
+            }
+        }
+
         @Override
         protected void onDraw(Canvas canvas) {
             super.onDraw(canvas);
@@ -44,6 +44,17 @@ public class QMUITabAdapter extends QMUIItemViewsAdapter<QMUITab, QMUITabView> i
         }
     }
 
+    @Override
+    protected void rebind(QMUITab item, QMUITabView view, int position) {
+        // keep the select state so that the selection and indicator are not affected
+        float selectFraction = view.getSelectFraction();
+        boolean selected = view.isSelected();
+        onBindTab(item, view, position);
+        view.setCallback(this);
+        view.setSelected(selected);
+        view.setSelectFraction(selectFraction);
+    }
+
     @Override
     protected void onViewRecycled(QMUITabView qmuiTabView) {
         qmuiTabView.setSelected(false);
@@ -57,13 +68,13 @@ public class QMUITabAdapter extends QMUIItemViewsAdapter<QMUITab, QMUITabView> i
 
     @Override
     public void onClick(QMUITabView view) {
-        int index = getViews().indexOf(view);
+        int index = getPositionOfView(view);
         mTabSegment.onClickTab(view, index);
     }
 
     @Override
     public void onDoubleClick(QMUITabView view) {
-        int index = getViews().indexOf(view);
+        int index = getPositionOfView(view);
         mTabSegment.onDoubleClick(index);
     }
 
@@ -22,6 +22,7 @@ import android.content.res.Resources;
 import android.graphics.Canvas;
 import android.graphics.Point;
 import android.graphics.drawable.Drawable;
+import android.text.TextUtils;
 import android.view.GestureDetector;
 import android.view.Gravity;
 import android.view.MotionEvent;
@@ -80,6 +81,12 @@ public class QMUITabView extends FrameLayout implements IQMUISkinHandlerView {
 
     private QMUIRoundButton mSignCountView;
 
+    private static final int NO_MEASURE_SPEC = -1;
+    private int mLastWidthMeasureSpec = NO_MEASURE_SPEC;
+    private int mLastHeightMeasureSpec = NO_MEASURE_SPEC;
+    // layout requests while binding are handled by requestLayoutIfSizeChanged instead of going up to the segment
+    private boolean mIsBinding = false;
+
     public QMUITabView(@NonNull Context context) {
         super(context);
         
@@ -139,6 +146,18 @@ public class QMUITabView extends FrameLayout implements IQMUISkinHandlerView {
     }
 
     public void bind(QMUITab tab) {
+        boolean layoutRequested = isLayoutRequested();
+        mIsBinding = true;
+        try {
+            bindInternal(tab);
+        } finally {
+            mIsBinding = false;
+        }
+        requestLayoutIfSizeChanged(layoutRequested);
+        setContentDescription(tab.getDescription());
+    }
+
+    private void bindInternal(QMUITab tab) {
         mCollapsingTextHelper.setTextSize(tab.normalTextSize, tab.selectedTextSize, false);
         mCollapsingTextHelper.setTypeface(tab.normalTypeface, tab.selectedTypeface, false);
         mCollapsingTextHelper.setTypefaceUpdateAreaPercent(tab.typefaceUpdateAreaPercent);
@@ -154,23 +173,34 @@ public class QMUITabView extends FrameLayout implements IQMUISkinHandlerView {
         if (hasRedPoint || hasSignCount) {
             ensureSignCountView(getContext());
 
+            // only touch the changed properties, every setter of sign count view requests layout
             FrameLayout.LayoutParams signCountLp = (FrameLayout.LayoutParams) mSignCountView.getLayoutParams();
+            CharSequence signText;
+            int signWidth, signHeight;
             if (hasSignCount) {
-                mSignCountView.setText(
-                        QMUILangHelper.formatNumberToLimitedDigits(mTab.signCount, mTab.signCountDigits));
-                mSignCountView.setMinWidth(QMUIResHelper.getAttrDimen(getContext(),
-                        R.attr.qmui_tab_sign_count_view_min_size_with_text));
-                signCountLp.width = ViewGroup.LayoutParams.WRAP_CONTENT;
-                signCountLp.height = QMUIResHelper.getAttrDimen(getContext(),
+                signText = QMUILangHelper.formatNumberToLimitedDigits(mTab.signCount, mTab.signCountDigits);
+                int minSize = QMUIResHelper.getAttrDimen(getContext(),
                         R.attr.qmui_tab_sign_count_view_min_size_with_text);
+                if (mSignCountView.getMinWidth() != minSize) {
+                    mSignCountView.setMinWidth(minSize);
+                }
+                signWidth = ViewGroup.LayoutParams.WRAP_CONTENT;
+                signHeight = minSize;
             } else {
-                mSignCountView.setText(null);
+                signText = null;
                 int redPointSize = QMUIResHelper.getAttrDimen(getContext(),
                         R.attr.qmui_tab_sign_count_view_min_size);
-                signCountLp.width = redPointSize;
-                signCountLp.height = redPointSize;
+                signWidth = redPointSize;
+                signHeight = redPointSize;
+            }
+            if (!TextUtils.equals(mSignCountView.getText(), signText)) {
+                mSignCountView.setText(signText);
+            }
+            if (signCountLp.width != signWidth || signCountLp.height != signHeight) {
+                signCountLp.width = signWidth;
+                signCountLp.height = signHeight;
+                mSignCountView.setLayoutParams(signCountLp);
             }
-            mSignCountView.setLayoutParams(signCountLp);
             mSignCountView.setVisibility(View.VISIBLE);
         } else {
             if (mSignCountView != null) {
@@ -178,8 +208,47 @@ public class QMUITabView extends FrameLayout implements IQMUISkinHandlerView {
             }
         }
         updateSkinInfo(tab);
-        requestLayout();
-        setContentDescription(tab.getDescription());
+    }
+
+    @Override
+    public void requestLayout() {
+        if (mIsBinding) {
+            // the setters of sign count view request layout, it will be measured and laid out in place
+            // by requestLayoutIfSizeChanged if the size of tab is not changed
+            return;
+        }
+        super.requestLayout();
+    }
+
+    /**
+     * 重新 bind 后，如果 tab 的尺寸与内容位置都没有变化，则只在原位置重新布局自身，
+     * 避免触发整个 TabSegment 的 measure/layout
+     *
+     * @param layoutRequested whether layout is already requested before bind
+     */
+    private void requestLayoutIfSizeChanged(boolean layoutRequested) {
+        if (layoutRequested || !ViewCompat.isLaidOut(this)
+                || mLastWidthMeasureSpec == NO_MEASURE_SPEC || mLastHeightMeasureSpec == NO_MEASURE_SPEC) {
+            requestLayout();
+            return;
+        }
+        int oldWidth = getMeasuredWidth();
+        int oldHeight = getMeasuredHeight();
+        int oldContentLeft = getContentViewLeft();
+        int oldContentWidth = getContentViewWidth();
+        forceLayout();
+        measure(mLastWidthMeasureSpec, mLastHeightMeasureSpec);
+        if (getMeasuredWidth() != oldWidth || getMeasuredHeight() != oldHeight) {
+            requestLayout();
+            return;
+        }
+        layout(getLeft(), getTop(), getRight(), getBottom());
+        if (getContentViewLeft() != oldContentLeft || getContentViewWidth() != oldContentWidth) {
+            // the indicator may follow the content
+            requestLayout();
+            return;
+        }
+        invalidate();
     }
 
 
@@ -303,6 +372,8 @@ public class QMUITabView extends FrameLayout implements IQMUISkinHandlerView {
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        mLastWidthMeasureSpec = widthMeasureSpec;
+        mLastHeightMeasureSpec = heightMeasureSpec;
         if (mTab == null) {
             super.onMeasure(widthMeasureSpec, heightMeasureSpec);
             return;
@@ -17,13 +17,15 @@
 package com.qmuiteam.qmuidemo;
 
 import android.graphics.drawable.Drawable;
+import androidx.annotation.NonNull;
 import androidx.collection.ArrayMap;
 import androidx.core.content.ContextCompat;
 
 import android.util.Log;
 import android.util.SparseIntArray;
 
-import com.qmuiteam.qmui.qqface.IQMUIQQFaceManager;
+import com.qmuiteam.qmui.qqface.IQMUIQQFaceTableManager;
+import com.qmuiteam.qmui.qqface.QMUIQQFaceMatcher;
 import com.qmuiteam.qmui.qqface.QQFace;
 import com.qmuiteam.qmui.type.parser.EmojiResourceProvider;
 
@@ -36,7 +38,7 @@ import java.util.List;
  * @date 2016-12-21
  */
 
-public class QDQQFaceManager implements IQMUIQQFaceManager, EmojiResourceProvider {
+public class QDQQFaceManager implements IQMUIQQFaceTableManager, EmojiResourceProvider {
     private static final HashMap<String, Integer> sQQFaceMap = new HashMap<>();
     private static final List<QQFace> mQQFaceList = new ArrayList<>();
     private static final SparseIntArray sEmojisMap = new SparseIntArray(846);
@@ -1679,6 +1681,34 @@ public class QDQQFaceManager implements IQMUIQQFaceManager, EmojiResourceProvide
         return icon;
     }
 
+    private static final int[] KEYCAP_CODE_POINTS = new int[]{
+            0x0030, 0x0031, 0x0032, 0x0033, 0x0034, 0x0035, 0x0036, 0x0037, 0x0038, 0x0039, 0x0023
+    };
+
+    private static final int[][] FLAG_CODE_POINTS = new int[][]{
+            {0x1f1ef, 0x1f1f5}, {0x1f1fa, 0x1f1f8}, {0x1f1eb, 0x1f1f7}, {0x1f1e9, 0x1f1ea}, {0x1f1ee, 0x1f1f9},
+            {0x1f1ec, 0x1f1e7}, {0x1f1ea, 0x1f1f8}, {0x1f1f7, 0x1f1fa}, {0x1f1e8, 0x1f1f3}, {0x1f1f0, 0x1f1f7}
+    };
+
+    @Override
+    public void collectFaceTable(@NonNull QMUIQQFaceMatcher.Builder builder) {
+        for (QQFace face : mQQFaceList) {
+            builder.addQQFace(face.getName(), face.getRes());
+        }
+        for (int i = 0; i < sSoftbanksMap.size(); i++) {
+            builder.addSoftbankEmoji((char) sSoftbanksMap.keyAt(i), sSoftbanksMap.valueAt(i));
+        }
+        for (int i = 0; i < sEmojisMap.size(); i++) {
+            builder.addEmoji(sEmojisMap.keyAt(i), sEmojisMap.valueAt(i));
+        }
+        for (int codePoint : KEYCAP_CODE_POINTS) {
+            builder.addEmoji(new int[]{codePoint, 0x20e3}, getDoubleUnicodeEmoji(codePoint, 0x20e3));
+        }
+        for (int[] codePoints : FLAG_CODE_POINTS) {
+            builder.addEmoji(codePoints, getDoubleUnicodeEmoji(codePoints[0], codePoints[1]));
+        }
+    }
+
     @Override
     public int getQQfaceResource(CharSequence text) {
         Integer integer = sQQFaceMap.get(text.toString());
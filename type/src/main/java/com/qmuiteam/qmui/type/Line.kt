@@ -25,7 +25,8 @@ import java.util.*
 
 class Line private constructor() {
     companion object {
-        private val sLinePool: Pools.Pool<Line> = Pools.SimplePool(16)
+        // lines may be acquired and released in background thread by [PrecomputedType]
+        private val sLinePool: Pools.Pool<Line> = Pools.SynchronizedPool(16)
 
         fun acquire(): Line {
             var line = sLinePool.acquire()
@@ -85,68 +86,105 @@ class Line private constructor() {
         }
     }
 
-    fun handleWordBreak(environment: TypeEnvironment, shouldHandleWordBreak: Boolean): List<Element>? {
+    /**
+     * move the end of the line to the next line if the line can not end there, the word parts and line break types
+     * are checked by clusters, and [typeModel] is used to split the run that the line ends inside.
+     *
+     * @return the elements moved to the next line.
+     */
+    @JvmOverloads
+    fun handleWordBreak(environment: TypeEnvironment, shouldHandleWordBreak: Boolean, typeModel: TypeModel? = null): List<Element>? {
         if (mElements.size == 0 || !shouldHandleWordBreak) {
             return null
         }
-        var lastIndex = mElements.size - 1
-        val last = mElements[lastIndex]
+        val last = mElements[mElements.size - 1]
+        val lastCluster = last.clusterCount - 1
+        val lastWordPart = last.getClusterWordPart(lastCluster)
         val next = last.next
-        val back: MutableList<Element> = LinkedList()
-        if (last.wordPart == Element.WORD_PART_WHOLE) {
-            if (last.lineBreakType == Element.LINE_BREAK_TYPE_NOT_END ||
-                next != null && next.lineBreakType == Element.LINE_BREAK_TYPE_NOT_START
+        var backCount = 0
+        var breakWordElement: BreakWordLineElement? = null
+        if (lastWordPart == Element.WORD_PART_WHOLE) {
+            if (last.getClusterLineBreakType(lastCluster) == Element.LINE_BREAK_TYPE_NOT_END ||
+                next != null && next.getClusterLineBreakType(0) == Element.LINE_BREAK_TYPE_NOT_START
             ) {
-                mElements.removeAt(lastIndex)
-                back.add(last)
+                backCount = 1
             }
-        } else if (last.wordPart == Element.WORD_PART_END && next != null && next.lineBreakType != Element.LINE_BREAK_TYPE_NOT_START) {
+        } else if (lastWordPart == Element.WORD_PART_END && next != null &&
+            next.getClusterLineBreakType(0) != Element.LINE_BREAK_TYPE_NOT_START) {
             // do nothing
-        } else if (last.wordPart == Element.WORD_PART_START) {
-            mElements.removeAt(lastIndex)
-            back.add(last)
+        } else if (lastWordPart == Element.WORD_PART_START) {
+            backCount = 1
         } else {
-            back.add(last)
-            mElements.removeAt(lastIndex)
-            lastIndex--
-            val min = 0.coerceAtLeast(lastIndex - environment.workBreakMaxTryLength)
+            backCount = 1
+            var backWidth = last.getClusterWidth(lastCluster)
+            var lineClusterCount = 0
+            for (el in mElements) {
+                lineClusterCount += el.clusterCount
+            }
+            var tryCount = (lineClusterCount - 2).coerceAtMost(environment.workBreakMaxTryLength)
+            var elementIndex = mElements.size - 1
+            var cluster = lastCluster
             var find = false
-            while (lastIndex > min) {
-                val el = mElements[lastIndex]
-                if (el.wordPart == Element.WORD_PART_WHOLE || el.wordPart == Element.WORD_PART_END) {
+            while (tryCount > 0) {
+                if (cluster > 0) {
+                    cluster--
+                } else {
+                    elementIndex--
+                    cluster = mElements[elementIndex].clusterCount - 1
+                }
+                val el = mElements[elementIndex]
+                val wordPart = el.getClusterWordPart(cluster)
+                if (wordPart == Element.WORD_PART_WHOLE || wordPart == Element.WORD_PART_END) {
                     find = true
                     break
-                } else if (el.lineBreakType == Element.LINE_BREAK_WORD_BREAK_ALLOWED) {
+                } else if (el.getClusterLineBreakType(cluster) == Element.LINE_BREAK_WORD_BREAK_ALLOWED) {
                     // TODO what if environment had changed after break? the measure may be wrong
                     val b = BreakWordLineElement()
                     b.measure(environment)
-                    val backWidth = back.sumOf { it.measureWidth }
                     if (backWidth >= b.measureWidth) {
                         find = true
-                        add(b)
+                        breakWordElement = b
                         break
-                    } else {
-                        back.add(0, el)
-                        mElements.removeAt(lastIndex)
-                        lastIndex--
                     }
-                } else {
-                    back.add(0, el)
-                    mElements.removeAt(lastIndex)
-                    lastIndex--
                 }
+                backCount++
+                backWidth += el.getClusterWidth(cluster)
+                tryCount--
             }
             if (!find) {
                 // give up
-                mElements.addAll(back)
                 return null
             }
         }
-        if (back.isEmpty()) {
+        if (backCount == 0) {
             return null
         }
-        for (el in back) {
+        val back = takeBack(backCount, typeModel) ?: return null
+        if (breakWordElement != null) {
+            add(breakWordElement)
+        }
+        return back
+    }
+
+    private fun takeBack(clusterCount: Int, typeModel: TypeModel?): List<Element>? {
+        var remain = clusterCount
+        var index = mElements.size
+        while (remain > 0 && index > 0) {
+            index--
+            remain -= mElements[index].clusterCount
+        }
+        val back: MutableList<Element> = LinkedList()
+        if (remain < 0) {
+            // the line ends inside the element, keep its first clusters in this line.
+            val tail = typeModel?.splitElement(mElements[index], -remain) ?: return null
+            contentWidth -= tail.measureWidth
+            back.add(tail)
+            index++
+        }
+        while (mElements.size > index) {
+            val el = mElements.removeAt(index)
             contentWidth -= el.measureWidth
+            back.add(el)
         }
         return back
     }
@@ -175,14 +213,17 @@ class Line private constructor() {
 
     private fun calculateGapCount(): Int {
         var ret = 0
-        for (i in 1 until mElements.size) {
+        for (i in mElements.indices) {
             val el = mElements[i]
-            if (el.visible != Element.GONE &&
-                (el.wordPart == Element.WORD_PART_WHOLE ||
+            if (el.visible == Element.GONE) {
+                continue
+            }
+            if (i > 0 && (el.wordPart == Element.WORD_PART_WHOLE ||
                         el.wordPart == Element.WORD_PART_START)
             ) {
                 ret++
             }
+            ret += el.innerGapCount
         }
         return ret
     }
@@ -223,7 +264,8 @@ class Line private constructor() {
                 mElements[i - 1].nextGapWidth = addSpace
             }
             el.x = x
-            x += el.measureWidth
+            el.innerGapWidth = addSpace
+            x += el.layoutWidth
             el.y = y + (contentHeight - el.measureHeight) / 2
         }
     }
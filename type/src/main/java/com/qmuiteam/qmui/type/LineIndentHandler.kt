@@ -26,7 +26,7 @@ class SerialLineIndentHandler(
 
     override fun processIndent(typeModel: TypeModel, firstElement: Element, newParagraph: Boolean): Int {
         if(newParagraph){
-            val pair = sorted.find { it.first == firstElement.index }
+            val pair = sorted.find { it.first == firstElement.start }
             if(pair != null){
                 currentIntend = 0
             }else if(!followIndentForNewParagraphIfNeeded){
@@ -51,6 +51,13 @@ class SerialLineIndentHandler(
         var indent = 0
         var el = typeModel.getByPos(pair.first)
         while (el != null && el.start <= pair.second){
+            if (el.start + el.length > pair.second + 1) {
+                // the run continues after the serial, only count the clusters of the serial.
+                for (i in 0..el.getClusterIndex(pair.second)) {
+                    indent += el.getClusterWidth(i)
+                }
+                break
+            }
             indent += el.measureWidth
             el = el.next
         }
@@ -24,20 +24,86 @@ import java.util.*
 
 class LineLayout {
     var maxLines = Int.MAX_VALUE
+        set(value) {
+            if (field != value) {
+                field = value
+                invalidateLayout()
+            }
+        }
     var ellipsize: TruncateAt? = null
+        set(value) {
+            if (field != value) {
+                field = value
+                invalidateLayout()
+            }
+        }
     var calculateWholeLines = false
+        set(value) {
+            if (field != value) {
+                field = value
+                invalidateLayout()
+            }
+        }
     var dropLastIfSpace = true
+        set(value) {
+            if (field != value) {
+                field = value
+                invalidateLayout()
+            }
+        }
     var moreText: String? = null
+        set(value) {
+            if (field != value) {
+                field = value
+                invalidateLayout()
+            }
+        }
     var moreTextColor = 0
     var moreTextTypeface: Typeface? = null
+        set(value) {
+            if (field != value) {
+                field = value
+                invalidateLayout()
+            }
+        }
     var moreUnderlineColor = Color.TRANSPARENT
     var moreBgColor = 0
     var moreUnderlineHeight = 0
     var moreTextFixAtEnd: Boolean = true
+        set(value) {
+            if (field != value) {
+                field = value
+                invalidateLayout()
+            }
+        }
     var typeModel: TypeModel? = null
+        set(value) {
+            if (field !== value) {
+                field = value
+                invalidateLayout()
+            }
+        }
     var shouldHandleWordBreak: Boolean = true
+        set(value) {
+            if (field != value) {
+                field = value
+                invalidateLayout()
+            }
+        }
 
     var lineIndentHandler:LineIndentHandler? = null
+        set(value) {
+            if (field !== value) {
+                field = value
+                invalidateLayout()
+            }
+        }
+
+    // the state of last layout, used to skip the layout if nothing is changed.
+    private var isLayoutDirty = true
+    private var layoutEnv: TypeEnvironment? = null
+    private var layoutExactlyHeight = false
+    private var layoutEffectVersion = -1
 
     private var exactlyHeightMaxLine = Int.MAX_VALUE
 
@@ -55,14 +121,44 @@ class LineLayout {
         return mLines.getOrNull(i)
     }
 
+    /**
+     * force next [measureAndLayout] to do the layout, should be called if something affects
+     * the layout but can not be detected, such as the state of [lineIndentHandler] is changed.
+     */
+    fun invalidateLayout() {
+        isLayoutDirty = true
+    }
+
+    /**
+     * whether the result of last layout can be used for the [env] and [exactlyHeight] without layout again.
+     */
+    fun isLayoutReusable(env: TypeEnvironment, exactlyHeight: Boolean): Boolean {
+        val lastEnv = layoutEnv ?: return false
+        return !isLayoutDirty &&
+                layoutExactlyHeight == exactlyHeight &&
+                layoutEffectVersion == (typeModel?.effectVersion ?: -1) &&
+                (!exactlyHeight || env.heightLimit == lastEnv.heightLimit) &&
+                env.isSameLayoutAs(lastEnv)
+    }
+
     fun measureAndLayout(env: TypeEnvironment, exactlyHeight: Boolean) {
-        exactlyHeightMaxLine = Int.MAX_VALUE
         env.clear()
+        val envSnapshot = env.snapshot()
+        doMeasureAndLayout(env, exactlyHeight)
+        isLayoutDirty = false
+        layoutEnv = envSnapshot
+        layoutExactlyHeight = exactlyHeight
+        layoutEffectVersion = typeModel?.effectVersion ?: -1
+    }
+
+    private fun doMeasureAndLayout(env: TypeEnvironment, exactlyHeight: Boolean) {
+        exactlyHeightMaxLine = Int.MAX_VALUE
         release()
         lineIndentHandler?.reset()
         if (typeModel == null) {
             return
         }
+        typeModel!!.mergeSplitRuns()
         var element: Element? = typeModel!!.firstElement()
         var line = Line.acquire()
         var y = 0
@@ -88,8 +184,12 @@ class LineLayout {
             }
         }
 
+        // the element split from a measured run, which is measured together with the run.
+        var measuredElement: Element? = null
         while (element != null) {
-            element.measure(env)
+            if (element !== measuredElement) {
+                element.measure(env)
+            }
             if (element is NextParagraphElement) {
                 line.add(element)
                 line.layout(env, dropLastIfSpace, false)
@@ -101,13 +201,22 @@ class LineLayout {
                 }
                 line = createNewLine(env, element.next, y, true)
             } else if (line.contentWidth + element.measureWidth > line.widthLimit) {
+                val fitCount = element.getFitClusterCount(line.widthLimit - line.contentWidth)
+                if (fitCount > 0) {
+                    // the line ends inside the run, keep the clusters fit the line and lay out others as next element.
+                    val tail = typeModel!!.splitElement(element, fitCount)
+                    line.add(element)
+                    element = tail
+                    measuredElement = tail
+                    continue
+                }
                 if (mLines.size == 0 && line.size == 0) {
                     // the width is too small.
                     line.release()
                     totalLineCount = mLines.size
                     return
                 }
-                val back = line.handleWordBreak(env, shouldHandleWordBreak)
+                val back = line.handleWordBreak(env, shouldHandleWordBreak, typeModel)
                 line.layout(env, dropLastIfSpace, false)
                 addLineAndHandleMaxLineAndNextY(line, false)
 
@@ -123,7 +232,15 @@ class LineLayout {
                         line.add(el)
                     }
                 }
+                // like a single char, at least the first cluster of the run is added to the new line.
+                val newLineFitCount = element.getFitClusterCount(line.widthLimit - line.contentWidth).coerceAtLeast(1)
+                val tail = typeModel!!.splitElement(element, newLineFitCount)
                 line.add(element)
+                if (tail != null) {
+                    element = tail
+                    measuredElement = tail
+                    continue
+                }
             } else {
                 line.add(element)
             }
@@ -225,6 +342,10 @@ class LineLayout {
                     lastLine.add(el)
                     limitWidth -= el.measureWidth
                 } else {
+                    // keep the clusters of the run fit the width.
+                    if (typeModel!!.splitElement(el, el.getFitClusterCount(limitWidth)) != null) {
+                        lastLine.add(el)
+                    }
                     break
                 }
             }
@@ -264,7 +385,7 @@ class LineLayout {
             }
         })
         ellipseElement.measure(env)
-        val elements: Queue<Element> = LinkedList()
+        val elements = LinkedList<Element>()
         elements.add(ellipseElement)
         for (i in mLines.indices) {
             val line = mLines[i]
@@ -288,13 +409,20 @@ class LineLayout {
                         line.add(el)
                         el.move(env)
                     } else {
+                        val tail = typeModel!!.splitElement(el, el.getFitClusterCount(limitWidth - line.contentWidth))
+                        if (tail != null) {
+                            elements.poll()
+                            line.add(el)
+                            el.move(env)
+                            elements.addFirst(tail)
+                        }
                         break
                     }
                 } else {
                     elements.poll()
                 }
             }
-            line.handleWordBreak(env, shouldHandleWordBreak)
+            line.handleWordBreak(env, shouldHandleWordBreak, typeModel)
             line.layout(env, dropLastIfSpace, false)
             if (elements.isEmpty()) {
                 return
@@ -316,14 +444,22 @@ class LineLayout {
         val handleLine = lines[ellipseLine - 1]
         val limitWidth = handleLine.widthLimit
         val unHandled: Deque<Element> = LinkedList(handleLine.popAll())
+        val handleWidth = limitWidth / 2f - ellipseElement.measureWidth / 2
         while (!unHandled.isEmpty()) {
             val el = unHandled.peek()
             if (el != null) {
-                if (handleLine.contentWidth + el.measureWidth <= limitWidth / 2f - ellipseElement.measureWidth / 2) {
+                if (handleLine.contentWidth + el.measureWidth <= handleWidth) {
                     unHandled.poll()
                     handleLine.add(el)
                     el.move(env)
                 } else {
+                    val tail = typeModel!!.splitElement(el, el.getFitClusterCount((handleWidth - handleLine.contentWidth).toInt()))
+                    if (tail != null) {
+                        unHandled.poll()
+                        handleLine.add(el)
+                        el.move(env)
+                        unHandled.addFirst(tail)
+                    }
                     break
                 }
             } else {
@@ -360,6 +496,11 @@ class LineLayout {
                         unHandled.pollLast()
                         line.addFirst(element)
                     } else {
+                        // the last clusters of the run fit the line are split from it.
+                        val fitCount = element.getFitClusterCountFromEnd(line.widthLimit - line.contentWidth)
+                        typeModel!!.splitElement(element, element.clusterCount - fitCount)?.let {
+                            line.addFirst(it)
+                        }
                         break
                     }
                 } else {
@@ -385,6 +526,10 @@ class LineLayout {
                     toAdd.add(0, element)
                     toAddWidth = (toAddWidth + element.measureWidth).toInt()
                 } else {
+                    val fitCount = element.getFitClusterCountFromEnd(handleLine.widthLimit - handleLine.contentWidth - toAddWidth)
+                    typeModel!!.splitElement(element, element.clusterCount - fitCount)?.let {
+                        toAdd.add(0, it)
+                    }
                     break
                 }
             } else {
@@ -396,8 +541,8 @@ class LineLayout {
         var effect = typeModel!!.firstEffect
         if (firstUnHandle != null && lastUnHandle != null) {
             val ellipseEffect: MutableList<Element> = ArrayList()
-            while (effect != null && effect.index <= lastUnHandle.index) {
-                if (effect.index >= firstUnHandle.index) {
+            while (effect != null && effect.start <= lastUnHandle.start) {
+                if (effect.start >= firstUnHandle.start) {
                     ellipseEffect.add(effect)
                 }
                 effect = effect.next
@@ -412,7 +557,7 @@ class LineLayout {
             el.move(env)
             handleLine.add(el)
         }
-        handleLine.handleWordBreak(env, shouldHandleWordBreak)
+        handleLine.handleWordBreak(env, shouldHandleWordBreak, typeModel)
         handleLine.layout(env, dropLastIfSpace, ellipseLine == lines.size)
         var lastEnd = handleLine.y + handleLine.contentHeight
         for (i in nextFullShowLine until lines.size) {
@@ -425,7 +570,7 @@ class LineLayout {
             }
             lastEnd = line.y + line.contentHeight
             line.move(env)
-            line.handleWordBreak(env, shouldHandleWordBreak)
+            line.handleWordBreak(env, shouldHandleWordBreak, typeModel)
             line.layout(env, dropLastIfSpace, i == lines.size - 1)
             mLines.add(line)
         }
@@ -471,5 +616,6 @@ class LineLayout {
             line.release()
         }
         mLines.clear()
+        isLayoutDirty = true
     }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qmuiteam.qmui.type
+
+import androidx.annotation.WorkerThread
+import com.qmuiteam.qmui.type.parser.TextParser
+
+/**
+ * The parse and layout result of a text, can be created in background thread and then
+ * be set to [com.qmuiteam.qmui.type.view.LineTypeView.setPrecomputedType], so the view
+ * does not need to parse and layout the text in main thread if the environment is not changed.
+ */
+class PrecomputedType private constructor(
+    val text: CharSequence?,
+    val textParser: TextParser,
+    val lineLayout: LineLayout,
+    val environment: TypeEnvironment,
+    val exactlyHeight: Boolean
+) {
+
+    companion object {
+
+        /**
+         * @param environment the environment used to layout, should be a snapshot of the view's environment
+         * with the measure limit, see [com.qmuiteam.qmui.type.view.LineTypeView.createPrecomputeEnvironment]
+         * @param layoutConfig used to config the [LineLayout], such as maxLines and ellipsize,
+         * the config must be the same as the view's config.
+         */
+        @WorkerThread
+        @JvmStatic
+        @JvmOverloads
+        fun create(
+            text: CharSequence?,
+            textParser: TextParser,
+            environment: TypeEnvironment,
+            exactlyHeight: Boolean = false,
+            layoutConfig: ((LineLayout) -> Unit)? = null
+        ): PrecomputedType {
+            val lineLayout = LineLayout()
+            layoutConfig?.invoke(lineLayout)
+            lineLayout.typeModel = textParser.parse(text)
+            lineLayout.measureAndLayout(environment, exactlyHeight)
+            return PrecomputedType(text, textParser, lineLayout, environment, exactlyHeight)
+        }
+    }
+
+    fun isReusableFor(env: TypeEnvironment, exactlyHeight: Boolean): Boolean {
+        return lineLayout.isLayoutReusable(env, exactlyHeight)
+    }
+}
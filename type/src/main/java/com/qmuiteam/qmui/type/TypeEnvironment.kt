@@ -22,6 +22,7 @@ import android.graphics.Rect
 import android.graphics.Typeface
 import android.util.Log
 import android.util.SparseArray
+import android.util.SparseIntArray
 import java.util.*
 
 class TypeEnvironment {
@@ -46,6 +47,8 @@ class TypeEnvironment {
         const val TYPE_LINE_HEIGHT = -17
 
         val DEFAULT_LAST_LINE_JUSTIFY_MAX_WIDTH = (Resources.getSystem().displayMetrics.density * 36).toInt()
+
+        private const val MAX_MEASURE_CACHE_COUNT = 8
     }
 
     enum class Alignment {
@@ -70,6 +73,8 @@ class TypeEnvironment {
         isAntiAlias = true
     }
     private val mCustomProp: SparseArray<Any?> = SparseArray()
+    private val mMeasureCaches = ArrayList<MeasureCache>()
+    private var mCurrentMeasureCache: MeasureCache? = null
     private val mStack = SparseArray<Stack<Any?>>()
 
     var workBreakMaxTryLength: Int = 10
@@ -103,6 +108,59 @@ class TypeEnvironment {
             bgPaint.color = value
         }
 
+    /**
+     * font metrics of [paint] with the current text style, the result is cached and should not be modified.
+     */
+    val fontMetricsInt: Paint.FontMetricsInt
+        get() = getMeasureCache().fontMetricsInt
+
+    /**
+     * the same as [Paint.measureText], but the width of a single char is cached for the current text style,
+     * as most elements contain only one char.
+     */
+    fun measureText(text: CharSequence): Float {
+        return measureText(text, 0, text.length)
+    }
+
+    /**
+     * the same as [measureText] for the chars of [text] in [start, end).
+     */
+    fun measureText(text: CharSequence, start: Int, end: Int): Float {
+        if (end - start != 1) {
+            return paint.measureText(text, start, end)
+        }
+        val cache = getMeasureCache()
+        val c = text[start].code
+        val index = cache.charWidths.indexOfKey(c)
+        if (index >= 0) {
+            return java.lang.Float.intBitsToFloat(cache.charWidths.valueAt(index))
+        }
+        val width = paint.measureText(text, start, end)
+        cache.charWidths.put(c, java.lang.Float.floatToRawIntBits(width))
+        return width
+    }
+
+    private fun getMeasureCache(): MeasureCache {
+        val current = mCurrentMeasureCache
+        if (current != null && current.isSameStyle(paint)) {
+            return current
+        }
+        for (i in mMeasureCaches.indices) {
+            val cache = mMeasureCaches[i]
+            if (cache.isSameStyle(paint)) {
+                mCurrentMeasureCache = cache
+                return cache
+            }
+        }
+        if (mMeasureCaches.size >= MAX_MEASURE_CACHE_COUNT) {
+            mMeasureCaches.removeAt(0)
+        }
+        val cache = MeasureCache(paint)
+        mMeasureCaches.add(cache)
+        mCurrentMeasureCache = cache
+        return cache
+    }
+
     fun setCustomProp(type: Int, value: Any?) {
         mCustomProp.put(type, value)
     }
@@ -180,6 +238,8 @@ class TypeEnvironment {
         val env = TypeEnvironment()
         env.setMeasureLimit(widthLimit, heightLimit)
         env.alignment = alignment
+        env.lastLineJustifyMaxWidth = lastLineJustifyMaxWidth
+        env.workBreakMaxTryLength = workBreakMaxTryLength
         env.lineSpace = lineSpace
         env.lineHeight = lineHeight
         env.paragraphSpace = paragraphSpace
@@ -196,6 +256,22 @@ class TypeEnvironment {
         return env
     }
 
+    /**
+     * whether the properties that affect layout are the same as [other].
+     * [heightLimit] is not compared as it only works when layout with exactly height.
+     */
+    fun isSameLayoutAs(other: TypeEnvironment): Boolean {
+        return widthLimit == other.widthLimit &&
+                alignment == other.alignment &&
+                lastLineJustifyMaxWidth == other.lastLineJustifyMaxWidth &&
+                workBreakMaxTryLength == other.workBreakMaxTryLength &&
+                lineSpace == other.lineSpace &&
+                lineHeight == other.lineHeight &&
+                paragraphSpace == other.paragraphSpace &&
+                textSize == other.textSize &&
+                typeface == other.typeface
+    }
+
     fun save(type: Int) {
         var stack = mStack[type]
         if (stack == null) {
@@ -276,4 +352,22 @@ class TypeEnvironment {
         }
         return false
     }
-}
\ No newline at end of file
+
+    private class MeasureCache(paint: Paint) {
+        private val textSize = paint.textSize
+        private val typeface = paint.typeface
+        private val textScaleX = paint.textScaleX
+        private val letterSpacing = paint.letterSpacing
+        private val isFakeBoldText = paint.isFakeBoldText
+        val fontMetricsInt: Paint.FontMetricsInt = paint.fontMetricsInt
+        val charWidths = SparseIntArray()
+
+        fun isSameStyle(paint: Paint): Boolean {
+            return textSize == paint.textSize &&
+                    typeface == paint.typeface &&
+                    textScaleX == paint.textScaleX &&
+                    letterSpacing == paint.letterSpacing &&
+                    isFakeBoldText == paint.isFakeBoldText
+        }
+    }
+}
@@ -17,16 +17,70 @@ package com.qmuiteam.qmui.type
 
 import android.graphics.Typeface
 import com.qmuiteam.qmui.type.element.Element
+import com.qmuiteam.qmui.type.element.TextRunElement
+import java.util.*
 
+/**
+ * The elements parsed from [origin]. Text between spaces, paragraphs and emojis is kept in [TextRunElement]s,
+ * which are split when an effect starts or ends inside them, and by [LineLayout] when a line ends inside them.
+ * Elements are indexed by their start positions, so [getByPos] only walks the elements split from an indexed one.
+ */
 class TypeModel(
     val origin: CharSequence,
-    private val mElementMap: Map<Int, Element>,
     private val mFirstElement: Element,
-    private val mLastElement: Element
+    lastElement: Element
 ) {
 
+    @Deprecated(
+        "the element map is not used, elements are indexed by their start positions",
+        ReplaceWith("TypeModel(origin, firstElement, lastElement)")
+    )
+    constructor(
+        origin: CharSequence,
+        @Suppress("UNUSED_PARAMETER") elementMap: Map<Int, Element>,
+        firstElement: Element,
+        lastElement: Element
+    ) : this(origin, firstElement, lastElement)
+
+    private var mLastElement: Element = lastElement
+
+    // elements ordered by index, and their start positions in [origin] for binary search.
+    // the elements split from runs are not in the index until it is built again, but they follow the
+    // indexed element they are split from, while the merged elements must be removed from the index.
+    private var mElements: Array<Element> = emptyArray()
+    private var mElementStarts: IntArray = IntArray(0)
+    private var mIsIndexDirty = false
+    private var mHasMergedElement = false
+
+    init {
+        buildIndex()
+    }
+
+    private fun buildIndex() {
+        val elements = ArrayList<Element>()
+        var element: Element? = mFirstElement
+        while (element != null) {
+            element.index = elements.size
+            elements.add(element)
+            if (element === mLastElement) {
+                break
+            }
+            element = element.next
+        }
+        mElements = elements.toTypedArray()
+        mElementStarts = IntArray(mElements.size) { mElements[it].start }
+        mIsIndexDirty = false
+        mHasMergedElement = false
+    }
+
     var firstEffect: Element? = null
 
+    /**
+     * increased when effects are added or removed, effects may change the measure result of elements.
+     */
+    var effectVersion = 0
+        private set
+
     fun addTypefaceEffect(start: Int, end: Int, typeface: Typeface): EffectRemover? {
         val types: MutableList<Int> = ArrayList()
         types.add(TypeEnvironment.TYPE_TYPEFACE)
@@ -64,6 +118,9 @@ class TypeModel(
         if (start > end) {
             throw RuntimeException("unsafeAddEffect: start($start) is bigger than end($end)")
         }
+        // the effect is applied from the start of an element to the end of an element.
+        getByPos(start)?.let { splitElement(it, it.getClusterIndex(start)) }
+        getByPos(end)?.let { splitElement(it, it.getClusterIndex(end) + 1) }
         val elementStart = getByPos(start)
         val elementEnd = getByPos(end)
         if (elementStart == null || elementEnd == null) {
@@ -80,6 +137,7 @@ class TypeModel(
             elementStart.insertEffectTo(firstEffect!!)
         }
         firstEffect = elementEnd.insertEffectTo(firstEffect!!)
+        effectVersion++
         return DefaultEffectRemove(this, start, end, types, environmentUpdater)
     }
 
@@ -96,6 +154,7 @@ class TypeModel(
         elementStart.removeEnvironmentUpdater(environmentUpdater)
         firstEffect = elementStart.removeFromEffectListIfNeeded(firstEffect)
         firstEffect = elementEnd.removeFromEffectListIfNeeded(firstEffect)
+        effectVersion++
         return true
     }
 
@@ -108,34 +167,83 @@ class TypeModel(
     }
 
 
-    fun getByPos(pos: Int): Element? {
-        val anchor = mElementMap[pos] ?: mLastElement
-        val anchorEnd = anchor.start + anchor.text.length
-        if (anchor.start <= pos && anchorEnd > pos) {
-            return anchor
-        } else if (anchorEnd <= pos) {
-            var next = anchor.next
-            while (next != null) {
-                if (next.start + next.text.length > pos) {
-                    return next
-                }
-                next = next.next
-            }
+    /**
+     * split [element] after its first [clusterCount] clusters.
+     *
+     * @return the element contains the other clusters, or null if [element] can not be split there.
+     */
+    internal fun splitElement(element: Element, clusterCount: Int): Element? {
+        if (element !is TextRunElement || clusterCount <= 0 || clusterCount >= element.clusterCount) {
             return null
-        } else {
-            var prev = anchor.prev
-            while (prev != null) {
-                if (prev.start <= pos) {
-                    return prev
+        }
+        val hasRestoreType = element.hasRestoreType()
+        val tail = element.split(clusterCount)
+        if (element === mLastElement) {
+            mLastElement = tail
+        }
+        if (hasRestoreType) {
+            firstEffect = tail.insertEffectTo(firstEffect!!)
+            firstEffect = element.removeFromEffectListIfNeeded(firstEffect)
+        }
+        mIsIndexDirty = true
+        return tail
+    }
+
+    /**
+     * merge the runs split by the last layout back, the boundaries of effects are kept.
+     */
+    internal fun mergeSplitRuns() {
+        var element: Element = mFirstElement
+        while (element !== mLastElement) {
+            val next = element.next ?: break
+            if (element is TextRunElement && element.canMergeNext()) {
+                val hasRestoreType = next.hasRestoreType()
+                element.mergeNext()
+                if (next === mLastElement) {
+                    mLastElement = element
                 }
-                prev = prev.prev
+                if (hasRestoreType) {
+                    firstEffect = element.insertEffectTo(firstEffect!!)
+                    firstEffect = next.removeFromEffectListIfNeeded(firstEffect)
+                }
+                mIsIndexDirty = true
+                mHasMergedElement = true
+            } else {
+                element = next
             }
+        }
+    }
+
+    fun getByPos(pos: Int): Element? {
+        if (pos < 0) {
             return null
         }
+        if (mHasMergedElement) {
+            buildIndex()
+        }
+        var i = Arrays.binarySearch(mElementStarts, pos)
+        if (i < 0) {
+            // the element before the insertion point contains the pos if it exists.
+            i = -i - 2
+            if (i < 0) {
+                return null
+            }
+        }
+        var element = mElements[i]
+        while (element.start + element.length <= pos) {
+            if (element === mLastElement) {
+                return null
+            }
+            element = element.next ?: return null
+        }
+        return if (element.start <= pos) element else null
     }
 
-    fun getByIndex(pos: Int): Element? {
-        return mElementMap[pos]
+    fun getByIndex(index: Int): Element? {
+        if (mIsIndexDirty) {
+            buildIndex()
+        }
+        return mElements.getOrNull(index)
     }
 
     fun interface EffectRemover {
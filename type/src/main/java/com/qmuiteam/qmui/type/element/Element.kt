@@ -22,7 +22,7 @@ import com.qmuiteam.qmui.type.TypeEnvironment
 import java.util.*
 import kotlin.collections.ArrayList
 
-abstract class Element(val text: CharSequence, val index: Int, val start: Int) {
+abstract class Element(text: CharSequence, index: Int, val start: Int) {
     companion object {
         const val VISIBLE = 0
         const val GONE = 1
@@ -45,8 +45,28 @@ abstract class Element(val text: CharSequence, val index: Int, val start: Int) {
             Arrays.sort(NOT_START_CHARS)
             Arrays.sort(NOT_END_CHARS)
         }
+
+        internal fun getLineBreakType(c: Char): Int {
+            return if (Arrays.binarySearch(NOT_START_CHARS, c) >= 0) {
+                LINE_BREAK_TYPE_NOT_START
+            } else if (Arrays.binarySearch(NOT_END_CHARS, c) >= 0) {
+                LINE_BREAK_TYPE_NOT_END
+            } else {
+                LINE_BREAK_TYPE_NORMAL
+            }
+        }
     }
 
+    var text: CharSequence = text
+        protected set
+
+    /**
+     * the position of the element in [com.qmuiteam.qmui.type.TypeModel]. The elements split from a run share its index
+     * until the model is indexed again by [com.qmuiteam.qmui.type.TypeModel.getByIndex].
+     */
+    var index: Int = index
+        internal set
+
     var prevEffect: Element? = null
         private set
     var nextEffect: Element? = null
@@ -66,11 +86,23 @@ abstract class Element(val text: CharSequence, val index: Int, val start: Int) {
     var baseLine = 0
     var nextGapWidth = 0
 
+    /**
+     * the justification gap added before each of the [innerGapCount] clusters inside the element.
+     */
+    var innerGapWidth = 0
+
+    /**
+     * the width used in line, which contains the gaps inside the element.
+     */
+    val layoutWidth: Int
+        get() = measureWidth + innerGapCount * innerGapWidth
+
     private var saveTypeList: MutableList<Int>? = null
     private var restoreTypeList: MutableList<Int>? = null
     private var environmentUpdaterList: MutableList<EnvironmentUpdater>? = null
 
-    val length: Int = text.length
+    val length: Int
+        get() = text.length
 
     private var _prev: Element? = null
     private var _next: Element? = null
@@ -93,23 +125,66 @@ abstract class Element(val text: CharSequence, val index: Int, val start: Int) {
         }
 
     private val rightWithGap: Int
-        get() = x + measureWidth + nextGapWidth
+        get() = x + layoutWidth + nextGapWidth
+
+    /**
+     * the count of clusters (a char with its combining marks) in the element. Most elements are a single cluster,
+     * [TextRunElement] contains several ones and keeps the word part, line break type and width of each.
+     */
+    open val clusterCount: Int
+        get() = 1
+
+    /**
+     * the count of clusters inside the element that a justification gap is added before.
+     */
+    open val innerGapCount: Int
+        get() = 0
 
     init {
         if(text.length == 1){
-            if (Arrays.binarySearch(NOT_START_CHARS, text[0]) >= 0) {
-                lineBreakType = LINE_BREAK_TYPE_NOT_START
-            } else if (Arrays.binarySearch(NOT_END_CHARS, text[0]) >= 0) {
-                lineBreakType = LINE_BREAK_TYPE_NOT_END
-            }
+            lineBreakType = getLineBreakType(text[0])
         }
     }
 
+    open fun getClusterIndex(pos: Int): Int {
+        return 0
+    }
+
+    open fun getClusterWordPart(cluster: Int): Int {
+        return wordPart
+    }
+
+    open fun getClusterLineBreakType(cluster: Int): Int {
+        return lineBreakType
+    }
+
+    open fun getClusterWidth(cluster: Int): Int {
+        return measureWidth
+    }
+
+    open fun getClusterX(cluster: Int): Int {
+        return x
+    }
+
+    /**
+     * the count of the leading clusters whose total width is not bigger than [width].
+     */
+    open fun getFitClusterCount(width: Int): Int {
+        return if (measureWidth <= width) 1 else 0
+    }
+
+    /**
+     * the count of the trailing clusters whose total width is not bigger than [width].
+     */
+    open fun getFitClusterCountFromEnd(width: Int): Int {
+        return getFitClusterCount(width)
+    }
+
     fun insertEffectTo(head: Element): Element {
         if (head === this) {
             return head
         }
-        if (index < head.index) {
+        if (start < head.start) {
             head.prevEffect = this
             nextEffect = head
             return this
@@ -121,7 +196,7 @@ abstract class Element(val text: CharSequence, val index: Int, val start: Int) {
                 // already in list
                 return head
             }
-            if (next.index > index) {
+            if (next.start > start) {
                 current.nextEffect = this
                 next.prevEffect = this
                 prevEffect = current
@@ -191,6 +266,14 @@ abstract class Element(val text: CharSequence, val index: Int, val start: Int) {
         }
     }
 
+    internal fun moveRestoreTypesTo(other: Element) {
+        val list = restoreTypeList ?: return
+        restoreTypeList = null
+        for (type in list) {
+            other.addRestoreType(type)
+        }
+    }
+
     fun hasEnvironmentUpdater(): Boolean {
         return (environmentUpdaterList?.size ?: 0) > 0
     }
@@ -291,8 +374,8 @@ abstract class Element(val text: CharSequence, val index: Int, val start: Int) {
         }
         if (env.borderRightWidth > 0) {
             paint.color = env.borderRightColor
-            canvas.drawRect((x + measureWidth - env.borderRightWidth).toFloat(), y.toFloat(),
-                    (x + measureWidth).toFloat(), (y + measureHeight).toFloat(), paint)
+            canvas.drawRect((x + layoutWidth - env.borderRightWidth).toFloat(), y.toFloat(),
+                    (x + layoutWidth).toFloat(), (y + measureHeight).toFloat(), paint)
         }
         if (env.borderBottomWidth > 0) {
             paint.color = env.borderBottomColor
@@ -21,10 +21,10 @@ import com.qmuiteam.qmui.type.TypeEnvironment
 open class TextElement(text: CharSequence, index: Int, start: Int) : Element(text, index, start) {
 
     override fun onMeasure(env: TypeEnvironment) {
-        val paint = env.paint
-        setMeasureDimen((paint.measureText(text, 0, text.length) + 0.5f).toInt(),
-                paint.fontMetricsInt.descent - paint.fontMetricsInt.ascent,
-                -paint.fontMetricsInt.ascent)
+        val fontMetricsInt = env.fontMetricsInt
+        setMeasureDimen((env.measureText(text) + 0.5f).toInt(),
+                fontMetricsInt.descent - fontMetricsInt.ascent,
+                -fontMetricsInt.ascent)
     }
 
     override fun onDraw(env: TypeEnvironment, canvas: Canvas) {
@@ -0,0 +1,211 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qmuiteam.qmui.type.element
+
+import android.graphics.Canvas
+import com.qmuiteam.qmui.type.TypeEnvironment
+
+/**
+ * A run of text clusters (a char with its combining marks) between the positions that need a single element,
+ * such as spaces, paragraphs and emojis. Each cluster keeps the word part, line break type and rounded width
+ * it has as a single char element and is drawn at its own position, so the run is laid out the same as
+ * the chars in it. [com.qmuiteam.qmui.type.TypeModel] splits the run when an effect or a line starts inside it.
+ */
+class TextRunElement internal constructor(
+    private val run: Run,
+    private var from: Int,
+    private var to: Int,
+    index: Int
+) : TextElement(run.getText(from, to), index, run.getClusterStart(from)) {
+
+    private var gapCount = 0
+
+    override val clusterCount: Int
+        get() = to - from
+
+    override val innerGapCount: Int
+        get() = gapCount
+
+    init {
+        onRangeChanged()
+    }
+
+    private fun onRangeChanged() {
+        wordPart = getClusterWordPart(0)
+        lineBreakType = getClusterLineBreakType(0)
+        gapCount = 0
+        for (i in 1 until clusterCount) {
+            val part = getClusterWordPart(i)
+            if (part == WORD_PART_WHOLE || part == WORD_PART_START) {
+                gapCount++
+            }
+        }
+    }
+
+    override fun getClusterIndex(pos: Int): Int {
+        var low = from
+        var high = to - 1
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (run.clusterEnds[mid] <= pos) {
+                low = mid + 1
+            } else {
+                high = mid
+            }
+        }
+        return low - from
+    }
+
+    override fun getClusterWordPart(cluster: Int): Int {
+        return run.clusterFlags[from + cluster].toInt() and 0x3
+    }
+
+    override fun getClusterLineBreakType(cluster: Int): Int {
+        return (run.clusterFlags[from + cluster].toInt() shr 2) and 0x3
+    }
+
+    override fun getClusterWidth(cluster: Int): Int {
+        return run.clusterWidths[from + cluster]
+    }
+
+    override fun getClusterX(cluster: Int): Int {
+        var ret = x
+        for (i in 0 until cluster) {
+            ret += getClusterWidth(i)
+            if (isGapBefore(i + 1)) {
+                ret += innerGapWidth
+            }
+        }
+        return ret
+    }
+
+    override fun getFitClusterCount(width: Int): Int {
+        var used = 0
+        for (i in from until to) {
+            used += run.clusterWidths[i]
+            if (used > width) {
+                return i - from
+            }
+        }
+        return clusterCount
+    }
+
+    override fun getFitClusterCountFromEnd(width: Int): Int {
+        var used = 0
+        for (i in to - 1 downTo from) {
+            used += run.clusterWidths[i]
+            if (used > width) {
+                return to - 1 - i
+            }
+        }
+        return clusterCount
+    }
+
+    private fun isGapBefore(cluster: Int): Boolean {
+        val part = getClusterWordPart(cluster)
+        return part == WORD_PART_WHOLE || part == WORD_PART_START
+    }
+
+    /**
+     * keep the first [count] clusters in this element and move the others to a new element linked after it,
+     * the restore types move to the new element as the effects end after it.
+     */
+    internal fun split(count: Int): TextRunElement {
+        val tail = TextRunElement(run, from + count, to, index)
+        to = from + count
+        text = run.getText(from, to)
+        onRangeChanged()
+        tail.next = next
+        next = tail
+        moveRestoreTypesTo(tail)
+        tail.setMeasureDimen(run.sumWidth(tail.from, tail.to), measureHeight, baseLine)
+        setMeasureDimen(run.sumWidth(from, to), measureHeight, baseLine)
+        return tail
+    }
+
+    internal fun canMergeNext(): Boolean {
+        val other = next as? TextRunElement ?: return false
+        return other.run === run && other.from == to &&
+                !hasRestoreType() && !other.hasSaveType() && !other.hasEnvironmentUpdater()
+    }
+
+    /**
+     * take back the clusters of next element, which must be checked by [canMergeNext].
+     */
+    internal fun mergeNext() {
+        val other = next as TextRunElement
+        other.moveRestoreTypesTo(this)
+        to = other.to
+        text = run.getText(from, to)
+        onRangeChanged()
+        next = other.next
+        setMeasureDimen(measureWidth + other.measureWidth, measureHeight, baseLine)
+    }
+
+    override fun onMeasure(env: TypeEnvironment) {
+        val fontMetricsInt = env.fontMetricsInt
+        var width = 0
+        for (i in from until to) {
+            val clusterWidth = (env.measureText(run.source, run.getClusterStart(i), run.clusterEnds[i]) + 0.5f).toInt()
+            run.clusterWidths[i] = clusterWidth
+            width += clusterWidth
+        }
+        setMeasureDimen(width, fontMetricsInt.descent - fontMetricsInt.ascent, -fontMetricsInt.ascent)
+    }
+
+    override fun onDraw(env: TypeEnvironment, canvas: Canvas) {
+        drawBg(env, canvas)
+        val baseline = (y + baseLine).toFloat()
+        var clusterX = x
+        for (i in from until to) {
+            if (i > from && isGapBefore(i - from)) {
+                clusterX += innerGapWidth
+            }
+            canvas.drawText(run.source, run.getClusterStart(i), run.clusterEnds[i], clusterX.toFloat(), baseline, env.paint)
+            clusterX += run.clusterWidths[i]
+        }
+        drawBorder(env, canvas)
+    }
+
+    /**
+     * the clusters shared by the elements split from one run, [clusterFlags] keeps the word part
+     * in the low two bits and the line break type in the next two bits.
+     */
+    internal class Run(
+        val source: CharSequence,
+        val start: Int,
+        val clusterEnds: IntArray,
+        val clusterFlags: ByteArray
+    ) {
+        val clusterWidths = IntArray(clusterEnds.size)
+
+        fun getClusterStart(cluster: Int): Int {
+            return if (cluster == 0) start else clusterEnds[cluster - 1]
+        }
+
+        fun getText(from: Int, to: Int): CharSequence {
+            return source.subSequence(getClusterStart(from), clusterEnds[to - 1])
+        }
+
+        fun sumWidth(from: Int, to: Int): Int {
+            var ret = 0
+            for (i in from until to) {
+                ret += clusterWidths[i]
+            }
+            return ret
+        }
+    }
+}
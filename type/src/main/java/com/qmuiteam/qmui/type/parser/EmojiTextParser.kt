@@ -20,7 +20,7 @@ import com.qmuiteam.qmui.type.element.Element
 import com.qmuiteam.qmui.type.element.EmojiElement
 import com.qmuiteam.qmui.type.element.NextParagraphElement
 import com.qmuiteam.qmui.type.element.TextElement
-import java.util.*
+import com.qmuiteam.qmui.type.element.TextRunElement
 
 class EmojiTextParser(
     private val emojiProvider: EmojiResourceProvider,
@@ -33,17 +33,37 @@ class EmojiTextParser(
         }
 
         val size = text.length
-        val map = HashMap<Int, Element>(size)
         var first: Element? = null
         var last: Element? = null
         var tmp: Element? = null
         var index = 0
+        val runBuilder = TextRunBuilder(text, wordBreakChecker)
+
+        fun append(element: Element) {
+            index++
+            if (first == null) {
+                first = element
+                last = element
+            } else {
+                last!!.next = element
+                last = element
+            }
+        }
+
+        fun appendRunIfNeeded(nextChar: Char?) {
+            if (!runBuilder.isEmpty()) {
+                append(runBuilder.build(index, nextChar != null && !ParserHelper.isEnglishLetterOrNumber(nextChar)))
+            }
+        }
+
         var i = 0
         while (i < size) {
             val c = text[i]
             if (c == '\n') {
+                appendRunIfNeeded(c)
                 tmp = NextParagraphElement(text.subSequence(i, i + 1), index, i)
             } else if (c == '\r') {
+                appendRunIfNeeded(c)
                 if (i + 1 < text.length && text[i + 1] == '\n') {
                     tmp = NextParagraphElement(text.subSequence(i, i + 2), index, i)
                     i++
@@ -59,6 +79,7 @@ class EmojiTextParser(
                         val sub = text.subSequence(i, j + 1)
                         val emoji = emojiProvider.queryForDrawable(sub)
                         if (emoji != null) {
+                            appendRunIfNeeded(c)
                             tmp = EmojiElement(emoji, text.subSequence(i, j + 1), index, i)
                             i = j
                             find = true
@@ -70,14 +91,16 @@ class EmojiTextParser(
                 if (!find) {
                     val unicode = Character.codePointAt(text, i)
                     val charCount = Character.charCount(unicode)
-                    tmp = TextElement(text.subSequence(i, i + charCount), index, i)
-                    i += charCount - 1
+                    runBuilder.add(c, i, i + charCount, last)
+                    i += charCount
+                    continue
                 }
             } else {
                 var handled = false
                 var emoji = emojiProvider.queryForDrawable(c)
                 if (emoji != null) {
                     handled = true
+                    appendRunIfNeeded(c)
                     tmp = EmojiElement(emoji, text.subSequence(i, i + 1), index, i)
                 }
                 if (!handled) {
@@ -86,6 +109,7 @@ class EmojiTextParser(
                     emoji = emojiProvider.queryForDrawable(unicode)
                     if (emoji != null) {
                         handled = true
+                        appendRunIfNeeded(c)
                         tmp = EmojiElement(emoji, text.subSequence(i, i + codeCount), index, i)
                         i += codeCount - 1
                     }
@@ -95,6 +119,7 @@ class EmojiTextParser(
                         emoji = emojiProvider.queryForDrawable(unicode, nextUnicode)
                         if (emoji != null) {
                             handled = true
+                            appendRunIfNeeded(c)
                             val nextCodeCount = Character.charCount(nextUnicode)
                             tmp = EmojiElement(emoji, text.subSequence(i, nextStart + nextCodeCount), index, i)
                             i = nextStart + nextCodeCount - 1
@@ -103,22 +128,22 @@ class EmojiTextParser(
                 }
                 if (!handled) {
                     val charCount = ParserHelper.handleUnionIfNeeded(text, i)
+                    if (c != ' ') {
+                        runBuilder.add(c, i, i + charCount, last)
+                        i += charCount
+                        continue
+                    }
+                    appendRunIfNeeded(c)
                     tmp = TextElement(text.subSequence(i, i + charCount), index, i)
                     i += charCount - 1
                 }
             }
-            ParserHelper.handleWordPart(c, last, tmp!!, wordBreakChecker)
-            index++
-            if (first == null) {
-                first = tmp
-                last = tmp
-            } else {
-                last!!.next = tmp
-                last = tmp
-            }
-            map[tmp.index] = tmp
+            // the word part of a run is handled by the builder.
+            ParserHelper.handleWordPart(c, last.takeIf { it !is TextRunElement }, tmp!!, wordBreakChecker)
+            append(tmp!!)
             i++
         }
-        return TypeModel(text, map, first!!, last!!)
+        appendRunIfNeeded(null)
+        return TypeModel(text, first!!, last!!)
     }
 }
\ No newline at end of file
@@ -16,6 +16,8 @@
 package com.qmuiteam.qmui.type.parser
 
 import com.qmuiteam.qmui.type.element.Element
+import com.qmuiteam.qmui.type.element.TextElement
+import com.qmuiteam.qmui.type.element.TextRunElement
 
 object ParserHelper {
 
@@ -59,4 +61,93 @@ object ParserHelper {
         }
         return charCount
     }
-}
\ No newline at end of file
+}
+
+/**
+ * collect the text clusters between the single elements into a [TextRunElement], the word part and
+ * line break type of each cluster are the same as [ParserHelper.handleWordPart] gives to a single char element.
+ */
+internal class TextRunBuilder(
+    private val text: CharSequence,
+    private val wordBreakChecker: (c: Char) -> Boolean
+) {
+    private var start = 0
+    private var count = 0
+    private var clusterEnds = IntArray(16)
+    private var clusterFlags = ByteArray(16)
+
+    fun isEmpty(): Boolean {
+        return count == 0
+    }
+
+    /**
+     * add the cluster of [text] in [start, end), [c] is the first char of it and [prev] is the element before the run.
+     */
+    fun add(c: Char, start: Int, end: Int, prev: Element?) {
+        if (count == 0) {
+            this.start = start
+        } else if (count == clusterEnds.size) {
+            clusterEnds = clusterEnds.copyOf(count * 2)
+            clusterFlags = clusterFlags.copyOf(count * 2)
+        }
+        val wordPart: Int
+        var lineBreakType = Element.LINE_BREAK_TYPE_NORMAL
+        if (ParserHelper.isEnglishLetterOrNumber(c)) {
+            val prevWordPart = if (count > 0) getWordPart(count - 1) else prev?.wordPart ?: Element.WORD_PART_WHOLE
+            if (prevWordPart == Element.WORD_PART_WHOLE || prevWordPart == Element.WORD_PART_END) {
+                wordPart = Element.WORD_PART_START
+            } else {
+                wordPart = Element.WORD_PART_MIDDLE
+                if (wordBreakChecker(c)) {
+                    lineBreakType = Element.LINE_BREAK_WORD_BREAK_ALLOWED
+                }
+            }
+        } else {
+            if (count > 0) {
+                endWord()
+            } else if (prev != null && prev.wordPart == Element.WORD_PART_MIDDLE) {
+                prev.wordPart = Element.WORD_PART_END
+                prev.lineBreakType = Element.LINE_BREAK_TYPE_NORMAL
+            }
+            wordPart = Element.WORD_PART_WHOLE
+            if (end - start == 1) {
+                lineBreakType = Element.getLineBreakType(c)
+            }
+        }
+        clusterEnds[count] = end
+        clusterFlags[count] = (wordPart or (lineBreakType shl 2)).toByte()
+        count++
+    }
+
+    private fun getWordPart(cluster: Int): Int {
+        return clusterFlags[cluster].toInt() and 0x3
+    }
+
+    private fun endWord() {
+        if (getWordPart(count - 1) == Element.WORD_PART_MIDDLE) {
+            clusterFlags[count - 1] = (Element.WORD_PART_END or (Element.LINE_BREAK_TYPE_NORMAL shl 2)).toByte()
+        }
+    }
+
+    /**
+     * build the element of the collected clusters and reset the builder, a single cluster is built as [TextElement].
+     *
+     * @param endsWord whether the run is followed by a char that ends the word in it.
+     */
+    fun build(index: Int, endsWord: Boolean): Element {
+        if (endsWord) {
+            endWord()
+        }
+        val element = if (count == 1) {
+            TextElement(text.subSequence(start, clusterEnds[0]), index, start).apply {
+                wordPart = getWordPart(0)
+                lineBreakType = clusterFlags[0].toInt() shr 2
+            }
+        } else {
+            val run = TextRunElement.Run(text, start, clusterEnds.copyOf(count), clusterFlags.copyOf(count))
+            TextRunElement(run, 0, count, index)
+        }
+        count = 0
+        return element
+    }
+}
@@ -19,8 +19,8 @@ import com.qmuiteam.qmui.type.TypeModel
 import com.qmuiteam.qmui.type.element.Element
 import com.qmuiteam.qmui.type.element.NextParagraphElement
 import com.qmuiteam.qmui.type.element.TextElement
+import com.qmuiteam.qmui.type.element.TextRunElement
 import com.qmuiteam.qmui.type.parser.ParserHelper.handleWordPart
-import java.util.*
 
 class PlainTextParser(
     private val wordBreakChecker: (c: Char) -> Boolean
@@ -39,17 +39,37 @@ class PlainTextParser(
             return null
         }
         val size = text.length
-        val map = HashMap<Int, Element>(size)
         var first: Element? = null
         var last: Element? = null
         var tmp: Element
         var index = 0
+        val runBuilder = TextRunBuilder(text, wordBreakChecker)
+
+        fun append(element: Element) {
+            index++
+            if (first == null) {
+                first = element
+                last = element
+            } else {
+                last!!.next = element
+                last = element
+            }
+        }
+
+        fun appendRunIfNeeded(nextChar: Char?) {
+            if (!runBuilder.isEmpty()) {
+                append(runBuilder.build(index, nextChar != null && !ParserHelper.isEnglishLetterOrNumber(nextChar)))
+            }
+        }
+
         var i = 0
         while (i < size) {
             val c = text[i]
             if (c == '\n') {
+                appendRunIfNeeded(c)
                 tmp = NextParagraphElement(text.subSequence(i, i + 1), index, i)
             } else if (c == '\r') {
+                appendRunIfNeeded(c)
                 if (i + 1 < text.length && text[i + 1] == '\n') {
                     tmp = NextParagraphElement(text.subSequence(i, i + 2), index, i)
                     i++
@@ -58,21 +78,21 @@ class PlainTextParser(
                 }
             } else {
                 val charCount = ParserHelper.handleUnionIfNeeded(text, i)
+                if (c != ' ') {
+                    runBuilder.add(c, i, i + charCount, last)
+                    i += charCount
+                    continue
+                }
+                appendRunIfNeeded(c)
                 tmp = TextElement(text.subSequence(i, i + charCount), index, i)
                 i += charCount - 1
             }
-            handleWordPart(c, last, tmp, wordBreakChecker)
-            index++
-            if (first == null) {
-                first = tmp
-                last = tmp
-            } else {
-                last!!.next = tmp
-                last = tmp
-            }
-            map[tmp.index] = tmp
+            // the word part of a run is handled by the builder.
+            handleWordPart(c, last.takeIf { it !is TextRunElement }, tmp, wordBreakChecker)
+            append(tmp)
             i++
         }
-        return TypeModel(text, map, first!!, last!!)
+        appendRunIfNeeded(null)
+        return TypeModel(text, first!!, last!!)
     }
 }
\ No newline at end of file
@@ -26,6 +26,7 @@ import android.view.MotionEvent
 import android.view.accessibility.AccessibilityNodeInfo
 import androidx.annotation.ColorInt
 import com.qmuiteam.qmui.type.LineLayout
+import com.qmuiteam.qmui.type.PrecomputedType
 import com.qmuiteam.qmui.type.TypeEnvironment
 import com.qmuiteam.qmui.type.TypeModel
 import com.qmuiteam.qmui.type.parser.PlainTextParser
@@ -36,13 +37,18 @@ private const val TAG = "LineTypeView"
 
 open class LineTypeView : BaseTypeView {
 
-    val lineLayout = LineLayout()
+    var lineLayout = LineLayout()
+        private set
 
-    var textParser: TextParser = PlainTextParser.instance
+    private var mTextParser: TextParser = PlainTextParser.instance
+    private var mText: CharSequence? = null
+
+    var textParser: TextParser
+        get() = mTextParser
         set(value) {
-            if (field != value) {
-                field = value
-                lineLayout.typeModel = value.parse(text)
+            if (mTextParser != value) {
+                mTextParser = value
+                lineLayout.typeModel = value.parse(mText)
                 requestLayout()
             }
         }
@@ -60,7 +66,10 @@ open class LineTypeView : BaseTypeView {
         val heightSize = MeasureSpec.getSize(heightMeasureSpec)
         val heightMode = MeasureSpec.getMode(heightMeasureSpec)
         environment.setMeasureLimit(widthSize - paddingLeft - paddingRight, heightSize - paddingTop - paddingBottom)
-        lineLayout.measureAndLayout(environment, heightMode == MeasureSpec.EXACTLY)
+        val exactlyHeight = heightMode == MeasureSpec.EXACTLY
+        if (!lineLayout.isLayoutReusable(environment, exactlyHeight)) {
+            lineLayout.measureAndLayout(environment, exactlyHeight)
+        }
         val usedWidth = if (widthMode == MeasureSpec.AT_MOST) {
             lineLayout.maxLayoutWidth + paddingLeft + paddingRight
         } else widthSize
@@ -70,17 +79,52 @@ open class LineTypeView : BaseTypeView {
         setMeasuredDimension(usedWidth, usedHeight)
     }
 
-    var text: CharSequence? = null
+    var text: CharSequence?
+        get() = mText
         set(value) {
-            if (field != value) {
-                field = value
+            if (mText != value) {
+                mText = value
                 touchSpanList.clear()
                 currentTouchSpan = null
-                lineLayout.typeModel = textParser.parse(value)
+                lineLayout.typeModel = mTextParser.parse(value)
                 requestLayout()
             }
         }
 
+    /**
+     * create the environment used by [PrecomputedType.create] to layout the text with [width],
+     * must be called in main thread.
+     */
+    fun createPrecomputeEnvironment(width: Int, height: Int = 0): TypeEnvironment {
+        val env = environment.snapshot()
+        env.setMeasureLimit(width - paddingLeft - paddingRight, height - paddingTop - paddingBottom)
+        return env
+    }
+
+    /**
+     * use the parse and layout result of [precomputedType] directly. If the environment
+     * is not changed when measuring, the view will not layout the text again.
+     */
+    fun setPrecomputedType(precomputedType: PrecomputedType) {
+        val newLineLayout = precomputedType.lineLayout
+        if (newLineLayout === lineLayout) {
+            return
+        }
+        // keep the draw config of current lineLayout
+        newLineLayout.moreTextColor = lineLayout.moreTextColor
+        newLineLayout.moreUnderlineColor = lineLayout.moreUnderlineColor
+        newLineLayout.moreBgColor = lineLayout.moreBgColor
+        newLineLayout.moreUnderlineHeight = lineLayout.moreUnderlineHeight
+        lineLayout.release()
+        lineLayout = newLineLayout
+        mTextParser = precomputedType.textParser
+        mText = precomputedType.text
+        touchSpanList.clear()
+        currentTouchSpan = null
+        requestLayout()
+        invalidate()
+    }
+
     var ellipsized: TextUtils.TruncateAt?
         get() = lineLayout.ellipsize
         set(value) {
@@ -253,15 +297,19 @@ open class LineTypeView : BaseTypeView {
     private fun isSpanTouched(typeModel: TypeModel, touchSpan: TouchSpan, x: Float, y: Float): Boolean {
         val start = typeModel.getByPos(touchSpan.start) ?: return false
         val end = typeModel.getByPos(touchSpan.end) ?: return false
+        // the span may start or end inside a run.
+        val startX = start.getClusterX(start.getClusterIndex(touchSpan.start))
+        val endCluster = end.getClusterIndex(touchSpan.end)
+        val endX = end.getClusterX(endCluster)
         if (start.y + paddingTop > y || end.y + paddingTop + end.measureHeight < y) {
             return false
         } else if (start.y == end.y) { // in one line
-            return !(start.x + paddingLeft > x || end.x + paddingLeft < x)
+            return !(startX + paddingLeft > x || endX + paddingLeft < x)
         } else {
             // in muti line
-            if (x < start.x + paddingLeft && y < start.y + start.measureHeight + paddingTop) {
+            if (x < startX + paddingLeft && y < start.y + start.measureHeight + paddingTop) {
                 return false
-            } else if (x > end.x + end.measureWidth + paddingLeft && y > end.y) {
+            } else if (x > endX + end.getClusterWidth(endCluster) + paddingLeft && y > end.y) {
                 return false
             }
             return true